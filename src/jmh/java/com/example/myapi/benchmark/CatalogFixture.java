@@ -0,0 +1,125 @@
+package com.example.myapi.benchmark;
+
+import com.example.myapi.MyapiApplication;
+import com.example.myapi.dto.ProductResponseDto;
+import com.example.myapi.model.Product;
+import org.springframework.boot.WebApplicationType;
+import org.springframework.boot.builder.SpringApplicationBuilder;
+import org.springframework.context.ConfigurableApplicationContext;
+import org.springframework.jdbc.core.JdbcTemplate;
+
+import java.math.BigDecimal;
+import java.sql.Date;
+import java.time.LocalDate;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Random;
+
+// Deterministic product data and a Spring context over a seeded in-memory H2 for the benchmarks
+final class CatalogFixture {
+    static final String[] CATEGORIES = {"Cars", "Bikes", "Phones", "Laptops", "Tablets", "Cameras", "Watches",
+            "Shoes", "Jackets", "Kitchen", "Garden", "Toys", "Books", "Music", "Games", "Tools", "Sports",
+            "Beauty", "Health", "Office"};
+    private static final String[] ADJECTIVES = {"compact", "premium", "rugged", "stylish", "classic", "smart",
+            "electric", "portable", "wireless", "ultra", "modern", "vintage", "hybrid", "pro", "mini"};
+    private static final String[] NOUNS = {"suv", "sedan", "hatchback", "phone", "kettle", "camera", "watch",
+            "sneaker", "jacket", "drill", "racket", "speaker", "console", "novel", "blender"};
+    private static final int BRANDS = 200;
+    private static final int FIRST_ID = 1000;
+
+    private CatalogFixture() {
+    }
+
+    static ProductResponseDto responseDto(Random random, int id) {
+        return ProductResponseDto.builder()
+                .id(id)
+                .name(name(random))
+                .desc(description(random))
+                .brand(brand(random))
+                .price(price(random))
+                .category(CATEGORIES[random.nextInt(CATEGORIES.length)])
+                .releaseDate(Date.valueOf(releaseDate(random)))
+                .available(random.nextBoolean())
+                .quantity(random.nextInt(500))
+                .version((long) random.nextInt(5))
+                .build();
+    }
+
+    static List<ProductResponseDto> responseDtos(int count) {
+        Random random = new Random(42);
+        List<ProductResponseDto> dtos = new ArrayList<>(count);
+        for (int i = 0; i < count; i++) {
+            dtos.add(responseDto(random, FIRST_ID + i));
+        }
+        return dtos;
+    }
+
+    // Boots the application without a web server on its own in-memory database and seeds it with rows products
+    static ConfigurableApplicationContext startSeeded(int rows) {
+        return startSeeded(rows, WebApplicationType.NONE);
+    }
+
+    static ConfigurableApplicationContext startSeeded(int rows, WebApplicationType webApplicationType, String... properties) {
+        ConfigurableApplicationContext context = new SpringApplicationBuilder(MyapiApplication.class)
+                .web(webApplicationType)
+                .properties(
+                        "spring.datasource.url=jdbc:h2:mem:bench-" + System.nanoTime() + ";DB_CLOSE_DELAY=-1;DB_CLOSE_ON_EXIT=FALSE",
+                        "spring.jpa.show-sql=false",
+                        "myapi.inventory.log-dir=" + System.getProperty("java.io.tmpdir") + "/bench-inventory-" + System.nanoTime(),
+                        "logging.level.root=WARN",
+                        "logging.level.com.example.myapi=WARN")
+                .properties(properties)
+                .run();
+        seed(context.getBean(JdbcTemplate.class), rows);
+        return context;
+    }
+
+    private static void seed(JdbcTemplate jdbcTemplate, int rows) {
+        Random random = new Random(42);
+        int batchSize = 5_000;
+        List<Object[]> batch = new ArrayList<>(batchSize);
+        for (int i = 0; i < rows; i++) {
+            String name = name(random);
+            String description = description(random);
+            String brand = brand(random);
+            BigDecimal price = price(random);
+            String category = CATEGORIES[random.nextInt(CATEGORIES.length)];
+            batch.add(new Object[]{FIRST_ID + i, name, description, brand, price, category,
+                    Date.valueOf(releaseDate(random)), random.nextBoolean(), random.nextInt(500),
+                    Product.normalize(name), Product.normalize(brand), Product.normalize(category)});
+            if (batch.size() == batchSize || i == rows - 1) {
+                jdbcTemplate.batchUpdate("INSERT INTO product (id, name, desc, brand, price, category, release_date, " +
+                        "available, quantity, version, name_norm, brand_norm, category_norm) " +
+                        "VALUES (?, ?, ?, ?, ?, ?, ?, ?, ?, 0, ?, ?, ?)", batch);
+                batch.clear();
+            }
+        }
+    }
+
+    private static String name(Random random) {
+        return capitalize(ADJECTIVES[random.nextInt(ADJECTIVES.length)]) + " "
+                + capitalize(NOUNS[random.nextInt(NOUNS.length)]) + " " + (100 + random.nextInt(900));
+    }
+
+    private static String description(Random random) {
+        return "A " + ADJECTIVES[random.nextInt(ADJECTIVES.length)] + " " + NOUNS[random.nextInt(NOUNS.length)]
+                + " with " + ADJECTIVES[random.nextInt(ADJECTIVES.length)] + " features and a "
+                + ADJECTIVES[random.nextInt(ADJECTIVES.length)] + " design.";
+    }
+
+    private static String brand(Random random) {
+        return "Brand " + random.nextInt(BRANDS);
+    }
+
+    private static BigDecimal price(Random random) {
+        return BigDecimal.valueOf(random.nextInt(10_000_000), 2);
+    }
+
+    private static LocalDate releaseDate(Random random) {
+        return LocalDate.of(2015, 1, 1).plusDays(random.nextInt(3650));
+    }
+
+    private static String capitalize(String word) {
+        return Character.toUpperCase(word.charAt(0)) + word.substring(1);
+    }
+}
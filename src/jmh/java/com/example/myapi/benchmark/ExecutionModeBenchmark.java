@@ -0,0 +1,131 @@
+package com.example.myapi.benchmark;
+
+import org.openjdk.jmh.annotations.AuxCounters;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+import org.springframework.boot.WebApplicationType;
+import org.springframework.context.ConfigurableApplicationContext;
+
+import java.net.URI;
+import java.net.http.HttpClient;
+import java.net.http.HttpRequest;
+import java.net.http.HttpResponse;
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Platform vs virtual thread request execution. Every invocation fires a burst of concurrent
+ * keyset /filter/cursor requests (short queries that still block on JDBC) and waits for all of them,
+ * the burst time gives the throughput and the p50/p99 request latencies are reported as secondary metrics.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.SingleShotTime)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 2)
+@Measurement(iterations = 5)
+@Fork(value = 1, jvmArgsAppend = {"-Xms2g", "-Xmx2g"})
+public class ExecutionModeBenchmark {
+    @Param({"platform", "virtual"})
+    public String mode;
+
+    @Param({"1000", "5000", "10000"})
+    public int concurrency;
+
+    private ConfigurableApplicationContext context;
+    private ExecutorService clients;
+    private HttpClient httpClient;
+    private URI[] uris;
+
+    @State(Scope.Thread)
+    @AuxCounters(AuxCounters.Type.EVENTS)
+    public static class Latency {
+        public double p50Millis;
+        public double p99Millis;
+        public long failures;
+
+        @Setup(Level.Iteration)
+        public void reset() {
+            p50Millis = 0;
+            p99Millis = 0;
+            failures = 0;
+        }
+    }
+
+    @Setup(Level.Trial)
+    public void setUp() {
+        context = CatalogFixture.startSeeded(10_000, WebApplicationType.SERVLET,
+                "server.port=0",
+                "spring.threads.virtual.enabled=" + "virtual".equals(mode),
+                "server.tomcat.max-connections=" + (concurrency * 2),
+                "server.tomcat.accept-count=" + concurrency);
+        String port = context.getEnvironment().getProperty("local.server.port");
+        clients = Executors.newVirtualThreadPerTaskExecutor();
+        httpClient = HttpClient.newBuilder()
+                .executor(clients)
+                .connectTimeout(Duration.ofSeconds(30))
+                .build();
+        uris = new URI[CatalogFixture.CATEGORIES.length];
+        for (int i = 0; i < uris.length; i++) {
+            uris[i] = URI.create("http://localhost:" + port + "/api/products/filter/cursor?category="
+                    + CatalogFixture.CATEGORIES[i] + "&size=20");
+        }
+    }
+
+    @TearDown(Level.Trial)
+    public void tearDown() {
+        clients.close();
+        context.close();
+    }
+
+    @Benchmark
+    public int burst(Latency latency) throws Exception {
+        List<Future<Long>> responses = new ArrayList<>(concurrency);
+        for (int i = 0; i < concurrency; i++) {
+            HttpRequest request = HttpRequest.newBuilder(uris[i % uris.length]).GET().build();
+            responses.add(clients.submit(() -> {
+                long start = System.nanoTime();
+                HttpResponse<Void> response = httpClient.send(request, HttpResponse.BodyHandlers.discarding());
+                return response.statusCode() == 200 ? System.nanoTime() - start : -1L;
+            }));
+        }
+
+        long[] latencies = new long[concurrency];
+        int completed = 0;
+        for (Future<Long> response : responses) {
+            long nanos;
+            try {
+                nanos = response.get();
+            } catch (Exception e) {
+                nanos = -1L;
+            }
+            if (nanos < 0) {
+                latency.failures++;
+            } else {
+                latencies[completed++] = nanos;
+            }
+        }
+        Arrays.sort(latencies, 0, completed);
+        if (completed > 0) {
+            latency.p50Millis = latencies[(int) (completed * 0.50)] / 1_000_000.0;
+            latency.p99Millis = latencies[Math.min(completed - 1, (int) (completed * 0.99))] / 1_000_000.0;
+        }
+        return completed;
+    }
+}
@@ -0,0 +1,71 @@
+package com.example.myapi.benchmark;
+
+import com.example.myapi.config.MyapiProperties;
+import com.example.myapi.dto.FacetResponseDto;
+import com.example.myapi.dto.ProductResponseDto;
+import com.example.myapi.event.ProductChangeEvent;
+import com.example.myapi.facet.ProductFacets;
+import com.example.myapi.model.Product;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.util.concurrent.TimeUnit;
+
+// Facet queries and incremental updates against in-memory counters over the whole catalog
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(value = 1, jvmArgsAppend = {"-Xms2g", "-Xmx2g"})
+public class FacetBenchmark {
+    @Param({"1000000"})
+    public int rows;
+
+    private ProductFacets productFacets;
+    private ProductChangeEvent[] updates;
+    private int next;
+
+    @Setup
+    public void setUp() {
+        productFacets = new ProductFacets(new MyapiProperties());
+        ProductFacets.Rebuild rebuild = productFacets.startRebuild();
+        for (ProductResponseDto dto : CatalogFixture.responseDtos(rows)) {
+            rebuild.add(dto.getId(), dto.getCategory(), dto.getBrand(), dto.isAvailable(), dto.getPrice());
+        }
+        productFacets.finishRebuild(rebuild);
+        updates = CatalogFixture.responseDtos(1024).stream()
+                .map(dto -> ProductChangeEvent.updated(Product.builder().id(dto.getId()).category(dto.getCategory())
+                        .brand(dto.getBrand()).available(!dto.isAvailable()).price(dto.getPrice()).build()))
+                .toArray(ProductChangeEvent[]::new);
+    }
+
+    @Benchmark
+    public FacetResponseDto allProducts() {
+        return productFacets.facets(null, null);
+    }
+
+    @Benchmark
+    public FacetResponseDto byCategory() {
+        return productFacets.facets("Cars", null);
+    }
+
+    @Benchmark
+    public FacetResponseDto byCategoryAndBrand() {
+        return productFacets.facets("Cars", "Brand 7");
+    }
+
+    @Benchmark
+    public void applyUpdate() {
+        productFacets.onProductChange(updates[next++ & (updates.length - 1)]);
+    }
+}
@@ -0,0 +1,46 @@
+package com.example.myapi.benchmark;
+
+import com.example.myapi.dto.ProductResponseDto;
+import com.example.myapi.mapper.ProductMapper;
+import com.example.myapi.mapper.ProductMapperImpl;
+import com.example.myapi.model.Product;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class ProductMapperBenchmark {
+    private final ProductMapper productMapper = new ProductMapperImpl();
+    private Product[] products;
+    private int next;
+
+    @Setup
+    public void setUp() {
+        List<ProductResponseDto> dtos = CatalogFixture.responseDtos(1024);
+        products = dtos.stream()
+                .map(dto -> new Product(dto.getId(), dto.getName(), dto.getDesc(), dto.getBrand(), dto.getPrice(),
+                        dto.getCategory(), dto.getReleaseDate(), dto.isAvailable(), dto.getQuantity(), dto.getVersion(), null, null, null))
+                .toArray(Product[]::new);
+    }
+
+    @Benchmark
+    public ProductResponseDto toResponseDto() {
+        Product product = products[next++ & (products.length - 1)];
+        return productMapper.toResponseDto(product);
+    }
+}
@@ -0,0 +1,82 @@
+package com.example.myapi.benchmark;
+
+import com.example.myapi.dto.ProductResponseDto;
+import com.example.myapi.mapper.ProductMapper;
+import com.example.myapi.model.Product;
+import com.example.myapi.repo.ProductRepo;
+import jakarta.persistence.EntityManager;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+import org.springframework.context.ConfigurableApplicationContext;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+// One page of products read in a read-only transaction, as managed entities copied by ProductMapper versus
+// projected into response dtos by the query. Run with -prof gc: gc.alloc.rate.norm / pageSize is the
+// allocation per returned row
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(value = 1, jvmArgsAppend = {"-Xms2g", "-Xmx2g"})
+public class ProductProjectionBenchmark {
+    private static final int ROWS = 100_000;
+
+    @Param({"20", "500"})
+    public int pageSize;
+
+    private ConfigurableApplicationContext context;
+    private TransactionTemplate readOnly;
+    private EntityManager entityManager;
+    private ProductMapper productMapper;
+
+    @Setup(Level.Trial)
+    public void setUp() {
+        context = CatalogFixture.startSeeded(ROWS);
+        readOnly = new TransactionTemplate(context.getBean(PlatformTransactionManager.class));
+        readOnly.setReadOnly(true);
+        entityManager = context.getBean(EntityManager.class);
+        productMapper = context.getBean(ProductMapper.class);
+    }
+
+    @TearDown(Level.Trial)
+    public void tearDown() {
+        context.close();
+    }
+
+    @Benchmark
+    public List<ProductResponseDto> entitiesMapped() {
+        return readOnly.execute(status -> entityManager
+                .createQuery("SELECT p FROM Product p WHERE p.id > :afterId ORDER BY p.id", Product.class)
+                .setParameter("afterId", 0)
+                .setMaxResults(pageSize)
+                .getResultList()
+                .stream()
+                .map(productMapper::toResponseDto)
+                .toList());
+    }
+
+    @Benchmark
+    public List<ProductResponseDto> projected() {
+        return readOnly.execute(status -> entityManager
+                .createQuery(ProductRepo.RESPONSE_DTO + "WHERE p.id > :afterId ORDER BY p.id", ProductResponseDto.class)
+                .setParameter("afterId", 0)
+                .setMaxResults(pageSize)
+                .getResultList());
+    }
+}
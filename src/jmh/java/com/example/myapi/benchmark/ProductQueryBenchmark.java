@@ -0,0 +1,101 @@
+package com.example.myapi.benchmark;
+
+import com.example.myapi.dto.CursorPageResponseDto;
+import com.example.myapi.dto.ProductResponseDto;
+import com.example.myapi.repo.ProductRepo;
+import com.example.myapi.search.ProductSearchIndexLoader;
+import com.example.myapi.service.IProductService;
+import com.example.myapi.service.MatchMode;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+import org.springframework.context.ConfigurableApplicationContext;
+import org.springframework.data.domain.Page;
+import org.springframework.data.domain.PageRequest;
+import org.springframework.data.domain.Slice;
+
+import java.util.concurrent.TimeUnit;
+
+// Search and filter queries through ProductService against a seeded H2, at varying catalog sizes and page depths
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(value = 1, jvmArgsAppend = {"-Xms4g", "-Xmx4g"})
+public class ProductQueryBenchmark {
+    private static final int PAGE_SIZE = 20;
+
+    @Param({"100000", "1000000"})
+    public int rows;
+
+    @Param({"0", "100", "1000"})
+    public int page;
+
+    private ConfigurableApplicationContext context;
+    private IProductService productService;
+    private ProductRepo productRepo;
+    private String cursorAtPage;
+
+    @Setup(Level.Trial)
+    public void setUp() {
+        context = CatalogFixture.startSeeded(rows);
+        productService = context.getBean(IProductService.class);
+        productRepo = context.getBean(ProductRepo.class);
+        context.getBean(ProductSearchIndexLoader.class).rebuild();
+
+        // Walk the keyset pages once so the cursor benchmark starts at the same depth as the offset one
+        String after = null;
+        for (int i = 0; i < page; i++) {
+            CursorPageResponseDto<ProductResponseDto> slice =
+                    productService.filterProductByNameAndCategoryAfter("compact", null, after, PAGE_SIZE);
+            after = slice.getNextCursor();
+        }
+        cursorAtPage = after;
+    }
+
+    @TearDown(Level.Trial)
+    public void tearDown() {
+        context.close();
+    }
+
+    @Benchmark
+    public Page<ProductResponseDto> searchByKeyword() {
+        return productService.searchProductByKeyword("compact sedan", PageRequest.of(page, PAGE_SIZE));
+    }
+
+    @Benchmark
+    public Slice<ProductResponseDto> searchByKeywordLike() {
+        return productRepo.searchProducts("compact", PageRequest.of(page, PAGE_SIZE));
+    }
+
+    @Benchmark
+    public Page<ProductResponseDto> filterByNameAndCategory() {
+        return productService.filterProductByNameAndCategoryPage("compact", "cars", MatchMode.CONTAINS, page, PAGE_SIZE);
+    }
+
+    @Benchmark
+    public Page<ProductResponseDto> filterByNameAndCategoryPrefix() {
+        return productService.filterProductByNameAndCategoryPage("compact", "cars", MatchMode.PREFIX, page, PAGE_SIZE);
+    }
+
+    @Benchmark
+    public Page<ProductResponseDto> filterByCategoryExact() {
+        return productService.filterProductByNameAndCategoryPage(null, "cars", MatchMode.EXACT, page, PAGE_SIZE);
+    }
+
+    @Benchmark
+    public CursorPageResponseDto<ProductResponseDto> filterByNameAfterCursor() {
+        return productService.filterProductByNameAndCategoryAfter("compact", null, cursorAtPage, PAGE_SIZE);
+    }
+}
@@ -0,0 +1,76 @@
+package com.example.myapi.benchmark;
+
+import com.example.myapi.config.JacksonConfig;
+import com.example.myapi.config.MyapiProperties;
+import com.example.myapi.dto.ProductResponseDto;
+import com.example.myapi.json.ProductJsonCache;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+import org.springframework.data.domain.Page;
+import org.springframework.data.domain.PageImpl;
+import org.springframework.data.domain.PageRequest;
+import org.springframework.http.converter.json.Jackson2ObjectMapperBuilder;
+
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+// Jackson encoding of single products and pages, including the dd-MM-yyyy releaseDate formatting
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class ProductSerializationBenchmark {
+    @Param({"10", "100", "1000"})
+    public int pageSize;
+
+    // Same defaults as the ObjectMapper Spring Boot configures for the controllers
+    private final ObjectMapper objectMapper = Jackson2ObjectMapperBuilder.json().build();
+    // Same, with products written from ProductJsonCache as the application does
+    private ObjectMapper cachingObjectMapper;
+    private ProductResponseDto product;
+    private Page<ProductResponseDto> page;
+
+    @Setup
+    public void setUp() {
+        List<ProductResponseDto> dtos = CatalogFixture.responseDtos(pageSize);
+        product = dtos.get(0);
+        page = new PageImpl<>(dtos, PageRequest.of(3, pageSize), 1_000_000);
+        ProductJsonCache productJsonCache = new ProductJsonCache(new MyapiProperties(), new SimpleMeterRegistry());
+        cachingObjectMapper = Jackson2ObjectMapperBuilder.json()
+                .modules(new JacksonConfig().productJsonCacheModule(productJsonCache))
+                .build();
+    }
+
+    @Benchmark
+    public byte[] serializeProduct() throws Exception {
+        return objectMapper.writeValueAsBytes(product);
+    }
+
+    @Benchmark
+    public byte[] serializePage() throws Exception {
+        return objectMapper.writeValueAsBytes(page);
+    }
+
+    @Benchmark
+    public byte[] serializeProductCached() throws Exception {
+        return cachingObjectMapper.writeValueAsBytes(product);
+    }
+
+    @Benchmark
+    public byte[] serializePageCached() throws Exception {
+        return cachingObjectMapper.writeValueAsBytes(page);
+    }
+}
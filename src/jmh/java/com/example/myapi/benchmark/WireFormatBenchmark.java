@@ -0,0 +1,76 @@
+package com.example.myapi.benchmark;
+
+import com.example.myapi.dto.ProductResponseDto;
+import com.fasterxml.jackson.annotation.JsonIgnoreProperties;
+import com.fasterxml.jackson.core.JsonFactory;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fasterxml.jackson.databind.ObjectReader;
+import com.fasterxml.jackson.dataformat.cbor.CBORFactory;
+import com.fasterxml.jackson.dataformat.smile.SmileFactory;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+import org.springframework.data.domain.Page;
+import org.springframework.data.domain.PageImpl;
+import org.springframework.data.domain.PageRequest;
+import org.springframework.http.converter.json.Jackson2ObjectMapperBuilder;
+
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+// Encode and decode cost of a Page<ProductResponseDto> per negotiable wire format, payload sizes are printed at setup
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class WireFormatBenchmark {
+    @Param({"json", "cbor", "smile"})
+    public String format;
+
+    @Param({"100", "1000"})
+    public int pageSize;
+
+    private ObjectMapper objectMapper;
+    private ObjectReader pageReader;
+    private Page<ProductResponseDto> page;
+    private byte[] encoded;
+
+    // What a caller binds a page to, Spring's PageImpl has no creator
+    @JsonIgnoreProperties(ignoreUnknown = true)
+    public record PageBody(List<ProductResponseDto> content, long totalElements, int totalPages) {
+    }
+
+    @Setup
+    public void setUp() throws Exception {
+        JsonFactory factory = switch (format) {
+            case "cbor" -> new CBORFactory();
+            case "smile" -> new SmileFactory();
+            default -> new JsonFactory();
+        };
+        objectMapper = Jackson2ObjectMapperBuilder.json().factory(factory).build();
+        pageReader = objectMapper.readerFor(PageBody.class);
+        page = new PageImpl<>(CatalogFixture.responseDtos(pageSize), PageRequest.of(3, pageSize), 1_000_000);
+        encoded = objectMapper.writeValueAsBytes(page);
+        System.out.printf("%n%s page of %d: %d bytes%n", format, pageSize, encoded.length);
+    }
+
+    @Benchmark
+    public byte[] encodePage() throws Exception {
+        return objectMapper.writeValueAsBytes(page);
+    }
+
+    @Benchmark
+    public PageBody decodePage() throws Exception {
+        return pageReader.readValue(encoded);
+    }
+}
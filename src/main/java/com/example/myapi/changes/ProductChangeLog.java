@@ -0,0 +1,146 @@
+package com.example.myapi.changes;
+
+import com.example.myapi.config.MyapiProperties;
+import com.example.myapi.event.ProductChangeEvent;
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.event.TransactionalEventListener;
+
+import java.time.Duration;
+import java.time.Instant;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentSkipListMap;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.locks.ReentrantLock;
+
+/**
+ * Ordered log of committed product changes for downstream caches and replicas. Every change gets the next
+ * sequence number and consumers ask for the changes after the last sequence they have seen. The log is
+ * compacted per product, only the latest change of a product is kept since readers resolve it to the current
+ * state anyway. Changes older than the retention are dropped, a consumer that falls behind them has to pull
+ * the catalog again. The log is kept in memory and starts empty, the epoch tells a consumer that its sequence
+ * is from an earlier run.
+ */
+@Component
+public class ProductChangeLog {
+
+    public record Entry(long sequence, ProductChangeEvent.Type type, int productId, Instant committedAt) {
+    }
+
+    // next is the sequence to ask for the following changes with
+    public record Slice(List<Entry> entries, long next, boolean resetRequired) {
+    }
+
+    // Starts at the boot time so sequences of an earlier run are recognized
+    private final long epoch = System.currentTimeMillis();
+    private final ConcurrentSkipListMap<Long, Entry> entries = new ConcurrentSkipListMap<>();
+    // Sequence of the latest change of every product in the log, guarded by appendLock
+    private final Map<Integer, Long> latest = new HashMap<>();
+    private final ReentrantLock appendLock = new ReentrantLock();
+    private final Set<CompletableFuture<Void>> waiters = ConcurrentHashMap.newKeySet();
+    private final Duration retention;
+    private final int maxEntries;
+    private final Duration maxWait;
+    private final Counter resets;
+    // Written after the entry is in the log, a reader that sees a sequence also sees its entry
+    private volatile long lastSequence;
+    // Highest sequence dropped by retention, consumers at or behind it have missed changes
+    private volatile long truncatedThrough;
+
+    public ProductChangeLog(MyapiProperties properties, MeterRegistry meterRegistry) {
+        this.retention = properties.getChanges().getRetention();
+        this.maxEntries = properties.getChanges().getMaxEntries();
+        this.maxWait = properties.getChanges().getMaxWait();
+        this.resets = Counter.builder("changes.resets")
+                .description("Change feed requests answered with resetRequired")
+                .register(meterRegistry);
+        Gauge.builder("changes.retained", entries, Map::size)
+                .description("Product changes kept in the change log")
+                .register(meterRegistry);
+    }
+
+    public long epoch() {
+        return epoch;
+    }
+
+    @TransactionalEventListener(fallbackExecution = true)
+    public void onProductChange(ProductChangeEvent event) {
+        Instant now = Instant.now();
+        appendLock.lock();
+        try {
+            long sequence = lastSequence + 1;
+            Long previous = latest.put(event.getProductId(), sequence);
+            if (previous != null) {
+                entries.remove(previous);
+            }
+            entries.put(sequence, new Entry(sequence, event.getType(), event.getProductId(), now));
+            lastSequence = sequence;
+            trim(now);
+        } finally {
+            appendLock.unlock();
+        }
+        waiters.forEach(waiter -> waiter.complete(null));
+    }
+
+    // A missing since only returns the current position, consumers take it before their first full pull
+    public Slice read(Long epoch, Long since, int limit) {
+        long last = lastSequence;
+        if (since == null) {
+            return new Slice(List.of(), last, false);
+        }
+        if (epoch != null && epoch != this.epoch || since > last) {
+            resets.increment();
+            return new Slice(List.of(), last, true);
+        }
+        List<Entry> slice = new ArrayList<>(Math.min(limit, 256));
+        for (Entry entry : entries.subMap(since, false, last, true).values()) {
+            slice.add(entry);
+            if (slice.size() == limit) {
+                break;
+            }
+        }
+        // Checked after reading, entries dropped while reading are missed as well
+        if (since < truncatedThrough) {
+            resets.increment();
+            return new Slice(List.of(), last, true);
+        }
+        long next = slice.size() == limit ? slice.get(limit - 1).sequence() : last;
+        return new Slice(slice, next, false);
+    }
+
+    // Completes once there is a change after since, right away if there is one already or the read would fail
+    public CompletableFuture<Void> awaitChange(Long epoch, Long since, Duration wait) {
+        if (since == null || epoch != null && epoch != this.epoch || since != lastSequence || !wait.isPositive()) {
+            return CompletableFuture.completedFuture(null);
+        }
+        CompletableFuture<Void> waiter = new CompletableFuture<>();
+        waiters.add(waiter);
+        waiter.whenComplete((ignored, e) -> waiters.remove(waiter));
+        // An append between the check above and add did not see the waiter
+        if (since != lastSequence) {
+            waiter.complete(null);
+        }
+        Duration timeout = wait.compareTo(maxWait) > 0 ? maxWait : wait;
+        return waiter.completeOnTimeout(null, timeout.toMillis(), TimeUnit.MILLISECONDS);
+    }
+
+    private void trim(Instant now) {
+        Instant oldest = now.minus(retention);
+        Map.Entry<Long, Entry> first;
+        while ((first = entries.firstEntry()) != null
+                && (entries.size() > maxEntries || first.getValue().committedAt().isBefore(oldest))) {
+            Entry entry = first.getValue();
+            entries.remove(entry.sequence());
+            latest.remove(entry.productId(), entry.sequence());
+            truncatedThrough = entry.sequence();
+        }
+    }
+}
@@ -0,0 +1,143 @@
+package com.example.myapi.coalesce;
+
+import com.example.myapi.config.MyapiProperties;
+import com.example.myapi.etag.ProductVersions;
+import com.example.myapi.replica.ReadYourWritesFilter;
+import com.github.benmanes.caffeine.cache.Cache;
+import com.github.benmanes.caffeine.cache.Caffeine;
+import com.github.benmanes.caffeine.cache.Expiry;
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.MeterRegistry;
+import org.springframework.stereotype.Component;
+
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.CancellationException;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ExecutionException;
+import java.util.function.Supplier;
+
+/**
+ * Runs identical concurrent reads once. A call with the same method and arguments at the same catalog generation
+ * waits on the computation already running and gets its result or exception. A finished result is kept for the
+ * coalescing window and answers identical calls arriving within it. Any committed write moves the generation on,
+ * so a caller is never handed a result read before a write it could have seen. Failures are not kept, and callers
+ * whose computation was cancelled with its own request compute again.
+ */
+@Component
+public class SingleFlight {
+    private final ProductVersions productVersions;
+    private final MeterRegistry meterRegistry;
+    private final boolean enabled;
+    private final long windowNanos;
+    private final Cache<Key, Flight> flights;
+    private final Map<String, Counters> counters = new ConcurrentHashMap<>();
+
+    // Clients that have just written read from the primary, they do not share results read from a replica
+    private record Key(long generation, boolean primary, String method, List<?> arguments) {
+    }
+
+    private static final class Flight {
+        private final CompletableFuture<Object> result = new CompletableFuture<>();
+    }
+
+    private record Counters(Counter computed, Counter joined) {
+    }
+
+    public SingleFlight(ProductVersions productVersions, MyapiProperties properties, MeterRegistry meterRegistry) {
+        MyapiProperties.Coalescing coalescing = properties.getCoalescing();
+        this.productVersions = productVersions;
+        this.meterRegistry = meterRegistry;
+        this.enabled = coalescing.isEnabled();
+        this.windowNanos = coalescing.getWindow().toNanos();
+        // Running flights never expire, a finished one is replaced by itself and then expires after the window
+        this.flights = Caffeine.newBuilder()
+                .expireAfter(new Expiry<Key, Flight>() {
+                    @Override
+                    public long expireAfterCreate(Key key, Flight flight, long currentTime) {
+                        return Long.MAX_VALUE;
+                    }
+
+                    @Override
+                    public long expireAfterUpdate(Key key, Flight flight, long currentTime, long currentDuration) {
+                        return windowNanos;
+                    }
+
+                    @Override
+                    public long expireAfterRead(Key key, Flight flight, long currentTime, long currentDuration) {
+                        return currentDuration;
+                    }
+                })
+                .build();
+    }
+
+    @SuppressWarnings("unchecked")
+    public <T> T call(String method, List<?> arguments, Supplier<T> computation) {
+        if (!enabled) {
+            return computation.get();
+        }
+        Counters methodCounters = counters.computeIfAbsent(method, this::counters);
+        while (true) {
+            Key key = new Key(productVersions.generation(), ReadYourWritesFilter.primaryRequired(), method, arguments);
+            Flight flight = new Flight();
+            Flight running = flights.asMap().putIfAbsent(key, flight);
+            if (running == null) {
+                methodCounters.computed().increment();
+                return (T) lead(key, flight, computation);
+            }
+            methodCounters.joined().increment();
+            try {
+                return (T) running.result.get();
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+                throw new CancellationException("Interrupted while waiting for an identical call");
+            } catch (CancellationException e) {
+                // The request that computed was cancelled, this one was not
+                if (Thread.currentThread().isInterrupted()) {
+                    throw e;
+                }
+            } catch (ExecutionException e) {
+                throw rethrow(e.getCause());
+            }
+        }
+    }
+
+    private Object lead(Key key, Flight flight, Supplier<?> computation) {
+        Object value;
+        try {
+            value = computation.get();
+        } catch (RuntimeException | Error e) {
+            // Removed before it completes: callers arriving from now on compute again
+            flights.asMap().remove(key, flight);
+            flight.result.completeExceptionally(e);
+            throw e;
+        }
+        if (windowNanos > 0) {
+            flights.asMap().replace(key, flight, flight);
+        } else {
+            flights.asMap().remove(key, flight);
+        }
+        flight.result.complete(value);
+        return value;
+    }
+
+    private static RuntimeException rethrow(Throwable cause) {
+        if (cause instanceof Error error) {
+            throw error;
+        }
+        return cause instanceof RuntimeException runtimeException ? runtimeException : new IllegalStateException(cause);
+    }
+
+    private Counters counters(String method) {
+        return new Counters(counter(method, "computed"), counter(method, "joined"));
+    }
+
+    private Counter counter(String method, String result) {
+        return Counter.builder("coalescing.calls")
+                .description("Read calls that computed a result or joined an identical call for it")
+                .tag("method", method)
+                .tag("result", result)
+                .register(meterRegistry);
+    }
+}
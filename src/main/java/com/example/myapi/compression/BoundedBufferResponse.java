@@ -0,0 +1,172 @@
+package com.example.myapi.compression;
+
+import jakarta.servlet.ServletOutputStream;
+import jakarta.servlet.WriteListener;
+import jakarta.servlet.http.HttpServletResponse;
+import jakarta.servlet.http.HttpServletResponseWrapper;
+
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.OutputStreamWriter;
+import java.io.PrintWriter;
+import java.io.UncheckedIOException;
+
+// Holds the body back up to limit bytes so it can be cached. A larger body is not cached: what was held back is
+// written out and the rest streams through to the response as it is written
+class BoundedBufferResponse extends HttpServletResponseWrapper {
+    private final int limit;
+    private ByteArrayOutputStream buffer = new ByteArrayOutputStream();
+    private ServletOutputStream outputStream;
+    private PrintWriter writer;
+    // Held back with the body, it no longer applies once the body is compressed for the cache
+    private Long contentLength;
+
+    BoundedBufferResponse(HttpServletResponse response, int limit) {
+        super(response);
+        this.limit = limit;
+    }
+
+    boolean isOverflowed() {
+        return buffer == null;
+    }
+
+    // Call before looking at the body, text still in the writer may overflow the limit
+    void flushWriter() {
+        if (writer != null) {
+            writer.flush();
+        }
+    }
+
+    byte[] getBody() {
+        return buffer.toByteArray();
+    }
+
+    // Writes the body held back as it is, for responses that are not cached
+    void copyBodyToResponse() throws IOException {
+        flushWriter();
+        if (isOverflowed()) {
+            super.flushBuffer();
+            return;
+        }
+        if (contentLength != null) {
+            super.setContentLengthLong(contentLength);
+        }
+        if (buffer.size() > 0) {
+            buffer.writeTo(super.getOutputStream());
+        }
+        buffer = null;
+        super.flushBuffer();
+    }
+
+    @Override
+    public ServletOutputStream getOutputStream() {
+        if (writer != null) {
+            throw new IllegalStateException("getWriter() has already been called");
+        }
+        return stream();
+    }
+
+    @Override
+    public PrintWriter getWriter() throws IOException {
+        if (outputStream != null && writer == null) {
+            throw new IllegalStateException("getOutputStream() has already been called");
+        }
+        if (writer == null) {
+            writer = new PrintWriter(new OutputStreamWriter(stream(), getCharacterEncoding()));
+        }
+        return writer;
+    }
+
+    @Override
+    public void setContentLength(int len) {
+        setContentLengthLong(len);
+    }
+
+    @Override
+    public void setContentLengthLong(long len) {
+        if (isOverflowed()) {
+            super.setContentLengthLong(len);
+        } else {
+            contentLength = len;
+        }
+    }
+
+    // Flushing would commit the response, which has to stay open while the body may still be cached
+    @Override
+    public void flushBuffer() throws IOException {
+        if (isOverflowed()) {
+            flushWriter();
+            super.flushBuffer();
+        }
+    }
+
+    @Override
+    public void resetBuffer() {
+        if (!isOverflowed()) {
+            buffer.reset();
+        }
+        super.resetBuffer();
+    }
+
+    @Override
+    public void reset() {
+        if (!isOverflowed()) {
+            buffer.reset();
+            contentLength = null;
+        }
+        super.reset();
+    }
+
+    private ServletOutputStream stream() {
+        if (outputStream == null) {
+            outputStream = new ServletOutputStream() {
+                @Override
+                public void write(int b) throws IOException {
+                    write(new byte[]{(byte) b}, 0, 1);
+                }
+
+                @Override
+                public void write(byte[] b, int off, int len) throws IOException {
+                    append(b, off, len);
+                }
+
+                @Override
+                public void flush() throws IOException {
+                    if (isOverflowed()) {
+                        BoundedBufferResponse.super.getOutputStream().flush();
+                    }
+                }
+
+                @Override
+                public boolean isReady() {
+                    return true;
+                }
+
+                @Override
+                public void setWriteListener(WriteListener writeListener) {
+                    try {
+                        BoundedBufferResponse.super.getOutputStream().setWriteListener(writeListener);
+                    } catch (IOException e) {
+                        throw new UncheckedIOException(e);
+                    }
+                }
+            };
+        }
+        return outputStream;
+    }
+
+    private void append(byte[] b, int off, int len) throws IOException {
+        if (!isOverflowed() && buffer.size() + len > limit) {
+            if (contentLength != null) {
+                super.setContentLengthLong(contentLength);
+            }
+            buffer.writeTo(super.getOutputStream());
+            buffer = null;
+        }
+        if (isOverflowed()) {
+            super.getOutputStream().write(b, off, len);
+        } else {
+            buffer.write(b, off, len);
+        }
+    }
+}
@@ -0,0 +1,201 @@
+package com.example.myapi.compression;
+
+import com.example.myapi.config.MyapiProperties;
+import com.example.myapi.etag.ProductVersions;
+import com.github.benmanes.caffeine.cache.Cache;
+import com.github.benmanes.caffeine.cache.Caffeine;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.binder.cache.CaffeineCacheMetrics;
+import jakarta.servlet.FilterChain;
+import jakarta.servlet.ServletException;
+import jakarta.servlet.http.HttpServletRequest;
+import jakarta.servlet.http.HttpServletResponse;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnWebApplication;
+import org.springframework.boot.autoconfigure.web.ServerProperties;
+import org.springframework.boot.web.server.Compression;
+import org.springframework.http.HttpHeaders;
+import org.springframework.http.HttpMethod;
+import org.springframework.http.MediaType;
+import org.springframework.stereotype.Component;
+import org.springframework.web.filter.OncePerRequestFilter;
+import org.springframework.web.servlet.HandlerMapping;
+import org.springframework.web.util.WebUtils;
+
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.util.Arrays;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Set;
+import java.util.concurrent.TimeUnit;
+import java.util.zip.GZIPOutputStream;
+
+/**
+ * Keeps hot list, search and facet responses gzip compressed, keyed by URL, Accept and catalog generation.
+ * A hit is written as stored, without querying, serializing or compressing again. On a miss the body is
+ * held back up to the max entry size, a larger one streams through uncached. Any committed write
+ * moves the generation on so stale entries are never looked up and age out. Responses for clients
+ * that do not accept gzip, conditional and cross-origin requests and everything else stream through
+ * untouched and are compressed on the fly by Tomcat (server.compression.*).
+ */
+// Needs the server settings, which only exist in a servlet web application
+@Component
+@ConditionalOnWebApplication(type = ConditionalOnWebApplication.Type.SERVLET)
+public class CompressedResponseCache extends OncePerRequestFilter {
+    // Key of a response that is completed on an async dispatch, computed on the initial dispatch
+    private static final String KEY_ATTRIBUTE = CompressedResponseCache.class.getName() + ".key";
+    private final ProductVersions productVersions;
+    private final Set<String> paths;
+    private final int minResponseSize;
+    private final int maxEntryBytes;
+    private final List<MediaType> mimeTypes;
+    private final Cache<String, CachedResponse> entries;
+
+    private record CachedResponse(String contentType, String eTag, byte[] gzip) {
+    }
+
+    public CompressedResponseCache(ProductVersions productVersions, MyapiProperties properties,
+                                   ServerProperties serverProperties, MeterRegistry meterRegistry) {
+        MyapiProperties.ResponseCache responseCache = properties.getResponseCache();
+        Compression compression = serverProperties.getCompression();
+        this.productVersions = productVersions;
+        this.paths = new HashSet<>(responseCache.getPaths());
+        this.minResponseSize = (int) compression.getMinResponseSize().toBytes();
+        this.maxEntryBytes = (int) responseCache.getMaxEntrySize().toBytes();
+        this.mimeTypes = Arrays.stream(compression.getMimeTypes()).map(MediaType::parseMediaType).toList();
+        this.entries = Caffeine.newBuilder()
+                .maximumWeight(responseCache.getMaximumSize().toBytes())
+                .<String, CachedResponse>weigher((key, value) -> key.length() + value.gzip().length)
+                .expireAfterWrite(responseCache.getTimeToLive().toMillis(), TimeUnit.MILLISECONDS)
+                .recordStats()
+                .build();
+        CaffeineCacheMetrics.monitor(meterRegistry, entries, "product.responses");
+    }
+
+    @Override
+    protected boolean shouldNotFilter(HttpServletRequest request) {
+        return !HttpMethod.GET.matches(request.getMethod())
+                || !paths.contains(request.getRequestURI())
+                || !acceptsGzip(request.getHeader(HttpHeaders.ACCEPT_ENCODING))
+                // The controller answers conditional requests from memory already
+                || request.getHeader(HttpHeaders.IF_NONE_MATCH) != null
+                // CORS headers are added by the DispatcherServlet, which a hit never reaches
+                || request.getHeader(HttpHeaders.ORIGIN) != null;
+    }
+
+    // gzip;q=0 refuses gzip, a wildcard only stands in for it when gzip is not listed itself
+    static boolean acceptsGzip(String acceptEncoding) {
+        if (acceptEncoding == null) {
+            return false;
+        }
+        Boolean wildcard = null;
+        for (String coding : acceptEncoding.split(",")) {
+            String[] parts = coding.split(";");
+            String name = parts[0].trim();
+            boolean accepted = quality(parts) > 0;
+            if (name.equalsIgnoreCase("gzip") || name.equalsIgnoreCase("x-gzip")) {
+                return accepted;
+            }
+            if (name.equals("*")) {
+                wildcard = accepted;
+            }
+        }
+        return Boolean.TRUE.equals(wildcard);
+    }
+
+    private static double quality(String[] parts) {
+        for (int i = 1; i < parts.length; i++) {
+            String parameter = parts[i].trim();
+            if (parameter.regionMatches(true, 0, "q=", 0, 2)) {
+                try {
+                    return Double.parseDouble(parameter.substring(2).trim());
+                } catch (NumberFormatException e) {
+                    // A malformed weight is treated as not acceptable
+                    return 0;
+                }
+            }
+        }
+        return 1;
+    }
+
+    // Async handlers such as the keyword search write their body on an async dispatch
+    @Override
+    protected boolean shouldNotFilterAsyncDispatch() {
+        return false;
+    }
+
+    @Override
+    protected void doFilterInternal(HttpServletRequest request, HttpServletResponse response, FilterChain filterChain)
+            throws ServletException, IOException {
+        if (isAsyncDispatch(request)) {
+            // The response was wrapped when async processing started, the async dispatch writes into that wrapper
+            BoundedBufferResponse wrapper = WebUtils.getNativeResponse(response, BoundedBufferResponse.class);
+            filterChain.doFilter(request, response);
+            if (wrapper != null && !isAsyncStarted(request)) {
+                store((String) request.getAttribute(KEY_ATTRIBUTE), wrapper);
+            }
+            return;
+        }
+        // Read before the handler runs, a result computed after a later write is only ever stored under an older key
+        String key = productVersions.generation() + " " + request.getRequestURI() + "?" + request.getQueryString()
+                + " " + request.getHeader(HttpHeaders.ACCEPT);
+        CachedResponse cached = entries.getIfPresent(key);
+        if (cached != null) {
+            // No handler runs on a hit, tag its metrics with the path, every cached path is a pattern without variables
+            request.setAttribute(HandlerMapping.BEST_MATCHING_PATTERN_ATTRIBUTE, request.getRequestURI());
+            write(response, cached);
+            return;
+        }
+
+        BoundedBufferResponse wrapper = new BoundedBufferResponse(response, maxEntryBytes);
+        filterChain.doFilter(request, wrapper);
+        if (isAsyncStarted(request)) {
+            request.setAttribute(KEY_ATTRIBUTE, key);
+            return;
+        }
+        store(key, wrapper);
+    }
+
+    private void store(String key, BoundedBufferResponse wrapper) throws IOException {
+        wrapper.flushWriter();
+        if (wrapper.isOverflowed() || wrapper.getStatus() != HttpServletResponse.SC_OK
+                || wrapper.getBody().length < minResponseSize || !compressible(wrapper.getContentType())) {
+            wrapper.copyBodyToResponse();
+            return;
+        }
+        CachedResponse compressed = new CachedResponse(wrapper.getContentType(), wrapper.getHeader(HttpHeaders.ETAG),
+                gzip(wrapper.getBody()));
+        entries.put(key, compressed);
+        write((HttpServletResponse) wrapper.getResponse(), compressed);
+    }
+
+    private boolean compressible(String contentType) {
+        if (contentType == null) {
+            return false;
+        }
+        MediaType mediaType = MediaType.parseMediaType(contentType);
+        return mimeTypes.stream().anyMatch(mimeType -> mimeType.isCompatibleWith(mediaType));
+    }
+
+    private static void write(HttpServletResponse response, CachedResponse cached) throws IOException {
+        response.setStatus(HttpServletResponse.SC_OK);
+        response.setContentType(cached.contentType());
+        if (cached.eTag() != null) {
+            response.setHeader(HttpHeaders.ETAG, cached.eTag());
+        }
+        // Tomcat leaves responses that already carry a Content-Encoding alone
+        response.setHeader(HttpHeaders.CONTENT_ENCODING, "gzip");
+        response.setHeader(HttpHeaders.VARY, HttpHeaders.ACCEPT);
+        response.addHeader(HttpHeaders.VARY, HttpHeaders.ACCEPT_ENCODING);
+        response.setContentLength(cached.gzip().length);
+        response.getOutputStream().write(cached.gzip());
+    }
+
+    private static byte[] gzip(byte[] body) throws IOException {
+        ByteArrayOutputStream bytes = new ByteArrayOutputStream(body.length / 4);
+        try (GZIPOutputStream gzip = new GZIPOutputStream(bytes)) {
+            gzip.write(body);
+        }
+        return bytes.toByteArray();
+    }
+}
@@ -0,0 +1,33 @@
+package com.example.myapi.config;
+
+import com.example.myapi.dto.ProductResponseDto;
+import com.example.myapi.json.CachedProductJsonSerializer;
+import com.example.myapi.json.ProductJsonCache;
+import com.fasterxml.jackson.databind.BeanDescription;
+import com.fasterxml.jackson.databind.JsonSerializer;
+import com.fasterxml.jackson.databind.Module;
+import com.fasterxml.jackson.databind.SerializationConfig;
+import com.fasterxml.jackson.databind.module.SimpleModule;
+import com.fasterxml.jackson.databind.ser.BeanSerializerModifier;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+
+@Configuration
+public class JacksonConfig {
+
+    // Picked up by Spring Boot's ObjectMapper, products are written from pre-encoded JSON
+    @Bean
+    public Module productJsonCacheModule(ProductJsonCache productJsonCache) {
+        SimpleModule module = new SimpleModule("ProductJsonCache");
+        module.setSerializerModifier(new BeanSerializerModifier() {
+            @Override
+            public JsonSerializer<?> modifySerializer(SerializationConfig config, BeanDescription beanDesc, JsonSerializer<?> serializer) {
+                if (beanDesc.getBeanClass() == ProductResponseDto.class) {
+                    return new CachedProductJsonSerializer(serializer, productJsonCache);
+                }
+                return serializer;
+            }
+        });
+        return module;
+    }
+}
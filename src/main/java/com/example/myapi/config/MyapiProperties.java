@@ -0,0 +1,161 @@
+package com.example.myapi.config;
+
+import lombok.Data;
+import org.springframework.boot.context.properties.ConfigurationProperties;
+import org.springframework.util.unit.DataSize;
+
+import java.math.BigDecimal;
+import java.nio.file.Path;
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.List;
+
+// Application specific settings, bound from the myapi.* keys in application.properties
+@Data
+@ConfigurationProperties(prefix = "myapi")
+public class MyapiProperties {
+    private final Bulk bulk = new Bulk();
+    private final AccessLog accessLog = new AccessLog();
+    private final Facets facets = new Facets();
+    private final JsonCache jsonCache = new JsonCache();
+    private final ResponseCache responseCache = new ResponseCache();
+    private final Inventory inventory = new Inventory();
+    private final Reservations reservations = new Reservations();
+    private final Changes changes = new Changes();
+    private final Replicas replicas = new Replicas();
+    private final Snapshot snapshot = new Snapshot();
+    private final Search search = new Search();
+    private final Counts counts = new Counts();
+    private final Coalescing coalescing = new Coalescing();
+
+    @Data
+    public static class Bulk {
+        // Items applied per transaction, keep it a multiple of hibernate.jdbc.batch_size
+        private int chunkSize = 500;
+    }
+
+    @Data
+    public static class AccessLog {
+        // Fraction of requests written to the access log
+        private double sampleRate = 0.01;
+        // Requests at least this slow are always logged
+        private long slowThresholdMillis = 1000;
+    }
+
+    @Data
+    public static class Facets {
+        // Upper bounds of the price buckets, the last bucket is open ended
+        private List<BigDecimal> priceBuckets = List.of(new BigDecimal("1000"), new BigDecimal("10000"),
+                new BigDecimal("100000"), new BigDecimal("1000000"));
+        // How often the counters are rebuilt from the database
+        private Duration reconcileInterval = Duration.ofMinutes(10);
+    }
+
+    @Data
+    public static class JsonCache {
+        // Products kept as encoded JSON, about 300 bytes each
+        private long maximumSize = 100_000;
+    }
+
+    @Data
+    public static class ResponseCache {
+        // Read endpoints whose gzip compressed responses are cached per catalog generation
+        private List<String> paths = List.of("/api/products/filter", "/api/products/search",
+                "/api/products/filter/cursor", "/api/products/search/cursor", "/api/products/facets",
+                "/api/products/query");
+        // Total compressed bytes kept
+        private DataSize maximumSize = DataSize.ofMegabytes(32);
+        // Larger responses are compressed on the fly instead of being cached
+        private DataSize maxEntrySize = DataSize.ofMegabytes(1);
+        private Duration timeToLive = Duration.ofMinutes(10);
+    }
+
+    @Data
+    public static class Inventory {
+        // Log of accepted deltas not yet flushed, must survive restarts
+        private Path logDir = Path.of("data", "inventory");
+        // Pending deltas are written to the database at least this often
+        private Duration flushInterval = Duration.ofSeconds(1);
+        // Flush early once this many products have pending deltas
+        private int maxPending = 10_000;
+    }
+
+    @Data
+    public static class Reservations {
+        private Duration defaultTtl = Duration.ofMinutes(5);
+        private Duration maxTtl = Duration.ofHours(1);
+        // How often expired reservations are released
+        private Duration sweepInterval = Duration.ofSeconds(5);
+        // Confirmed sales written per transaction
+        private int maxBatch = 1000;
+    }
+
+    @Data
+    public static class Changes {
+        // Changes older than this are dropped, consumers further behind have to pull the catalog again
+        private Duration retention = Duration.ofHours(24);
+        // Upper bound of retained changes, one per product after compaction
+        private int maxEntries = 1_000_000;
+        // Longest a long-poll request is held open
+        private Duration maxWait = Duration.ofSeconds(30);
+    }
+
+    @Data
+    public static class Counts {
+        // Totals of paged filters and searches kept, per query and catalog generation
+        private long maximumSize = 10_000;
+        private Duration timeToLive = Duration.ofMinutes(1);
+        // Totals above this are estimated and flagged as approximate, 0 always counts exactly
+        private long approximateAbove = 0;
+    }
+
+    @Data
+    public static class Coalescing {
+        // Identical concurrent reads wait on the one already running and share its result
+        private boolean enabled = true;
+        // A finished result also answers identical reads arriving this long after it, at the same catalog generation
+        private Duration window = Duration.ofMillis(5);
+    }
+
+    @Data
+    public static class Search {
+        // Threads matching partitions of keyword searches, shared by all requests
+        private int parallelism = Runtime.getRuntime().availableProcessors();
+        // Id ranges a broad search is split into, a few per thread evens out uneven ranges
+        private int partitions = 16;
+        // Searches covering fewer posting entries run on the request thread in one piece
+        private long minParallelPostings = 100_000;
+        // Searches still running after this are cancelled and answered with 503
+        private Duration timeout = Duration.ofSeconds(10);
+    }
+
+    @Data
+    public static class Snapshot {
+        // How often the catalog snapshot is rebuilt, which also frees the rows of deleted products
+        private Duration rebuildInterval = Duration.ofMinutes(10);
+    }
+
+    @Data
+    public static class Replicas {
+        // Route read-only transactions to the instances below
+        private boolean enabled;
+        private List<Instance> instances = new ArrayList<>();
+        // Connections per replica
+        private int poolSize = 20;
+        // A replica that does not hand out a connection within this is taken out until the next check
+        private Duration connectionTimeout = Duration.ofSeconds(1);
+        // Heartbeat and health check interval, after a write replicas serve reads again once the next heartbeat arrived
+        private Duration checkInterval = Duration.ofMillis(250);
+        // Replicas with an older heartbeat are not used
+        private Duration maxLag = Duration.ofSeconds(5);
+        // Reads of a client that has written stay on the primary this long
+        private Duration stickyFor = Duration.ofSeconds(5);
+
+        @Data
+        public static class Instance {
+            private String url;
+            private String username;
+            private String password;
+        }
+    }
+}
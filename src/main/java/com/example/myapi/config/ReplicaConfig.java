@@ -0,0 +1,56 @@
+package com.example.myapi.config;
+
+import com.example.myapi.etag.ProductVersions;
+import com.example.myapi.replica.ReadYourWritesFilter;
+import com.example.myapi.replica.ReplicaDataSource;
+import com.zaxxer.hikari.HikariDataSource;
+import io.micrometer.core.instrument.MeterRegistry;
+import org.springframework.boot.actuate.health.HealthIndicator;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.boot.autoconfigure.jdbc.DataSourceProperties;
+import org.springframework.boot.context.properties.ConfigurationProperties;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+import org.springframework.context.annotation.Primary;
+import org.springframework.jdbc.datasource.LazyConnectionDataSourceProxy;
+
+import javax.sql.DataSource;
+
+// Read-only transactions are served by the replicas in myapi.replicas.instances, writes stay on spring.datasource
+@Configuration
+@ConditionalOnProperty(name = "myapi.replicas.enabled", havingValue = "true")
+public class ReplicaConfig {
+
+    // Built here because the DataSource bean below replaces the one Spring Boot would create
+    @Bean
+    @ConfigurationProperties("spring.datasource.hikari")
+    public HikariDataSource primaryDataSource(DataSourceProperties dataSourceProperties) {
+        return dataSourceProperties.initializeDataSourceBuilder().type(HikariDataSource.class).build();
+    }
+
+    @Bean
+    public ReplicaDataSource replicaDataSource(HikariDataSource primaryDataSource, MyapiProperties properties,
+                                               ProductVersions productVersions, MeterRegistry meterRegistry) {
+        return new ReplicaDataSource(primaryDataSource, properties.getReplicas(), productVersions, meterRegistry);
+    }
+
+    // The connection is only taken on the first statement, by then a read-only transaction has marked it read-only.
+    // Like a Hikari pool, it does not support getConnection(username, password)
+    @Bean
+    @Primary
+    public DataSource dataSource(HikariDataSource primaryDataSource, ReplicaDataSource replicaDataSource) {
+        LazyConnectionDataSourceProxy dataSource = new LazyConnectionDataSourceProxy(primaryDataSource);
+        dataSource.setReadOnlyDataSource(replicaDataSource);
+        return dataSource;
+    }
+
+    @Bean
+    public ReadYourWritesFilter readYourWritesFilter(MyapiProperties properties) {
+        return new ReadYourWritesFilter(properties.getReplicas().getStickyFor());
+    }
+
+    @Bean
+    public HealthIndicator replicasHealthIndicator(ReplicaDataSource replicaDataSource) {
+        return replicaDataSource::health;
+    }
+}
@@ -1,94 +1,352 @@
 package com.example.myapi.controller;
 
+import com.example.myapi.changes.ProductChangeLog;
+import com.example.myapi.config.MyapiProperties;
+import com.example.myapi.dto.BulkResponseDto;
+import com.example.myapi.dto.ChangeFeedResponseDto;
+import com.example.myapi.dto.CursorPageResponseDto;
+import com.example.myapi.dto.FacetResponseDto;
+import com.example.myapi.dto.InventoryAdjustDto;
 import com.example.myapi.dto.ProductCreateDto;
+import com.example.myapi.dto.ProductPatchDto;
 import com.example.myapi.dto.ProductResponseDto;
 import com.example.myapi.dto.ProductUpdateDto;
+import com.example.myapi.dto.ReservationCreateDto;
+import com.example.myapi.dto.ReservationResponseDto;
+import com.example.myapi.etag.ETags;
+import com.example.myapi.etag.ProductVersions;
+import com.example.myapi.exception.BadRequestException;
+import com.example.myapi.exception.PreconditionFailedException;
+import com.example.myapi.json.ProductJsonCache;
 import com.example.myapi.service.IProductService;
-import com.example.myapi.service.ProductService;
+import com.example.myapi.service.MatchMode;
+import com.example.myapi.service.ProductQuery;
+import com.fasterxml.jackson.core.JsonGenerator;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fasterxml.jackson.databind.ObjectWriter;
+import com.fasterxml.jackson.databind.SerializationFeature;
 import jakarta.validation.Valid;
-import org.slf4j.LoggerFactory;
-import org.slf4j.Logger;
+import org.springframework.beans.factory.annotation.Qualifier;
+import org.springframework.boot.autoconfigure.task.TaskExecutionAutoConfiguration;
+import org.springframework.core.task.AsyncTaskExecutor;
+import org.springframework.dao.OptimisticLockingFailureException;
 import org.springframework.data.domain.Page;
 import org.springframework.data.domain.PageRequest;
+import org.springframework.format.annotation.DateTimeFormat;
+import org.springframework.http.HttpHeaders;
 import org.springframework.http.HttpStatus;
+import org.springframework.http.MediaType;
 import org.springframework.http.ResponseEntity;
 import org.springframework.web.bind.annotation.*;
+import org.springframework.web.context.request.WebRequest;
+import org.springframework.web.context.request.async.WebAsyncTask;
+import org.springframework.web.servlet.mvc.method.annotation.StreamingResponseBody;
 
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.math.BigDecimal;
+import java.time.Duration;
+import java.time.LocalDate;
 import java.util.List;
+import java.util.concurrent.Callable;
+import java.util.concurrent.CompletableFuture;
+import java.util.function.Supplier;
 @RestController
-@CrossOrigin
+@CrossOrigin(exposedHeaders = HttpHeaders.ETAG)
 @RequestMapping("/api/products")
 public class ProductController {
-    private static final Logger logger = LoggerFactory.getLogger(ProductController.class);
+    private static final int MAX_CHANGES = 1000;
     private final IProductService productService;
+    private final ObjectMapper objectMapper;
+    private final ProductVersions productVersions;
+    private final ProductChangeLog productChangeLog;
+    private final AsyncTaskExecutor taskExecutor;
+    private final Duration searchTimeout;
 
-    public ProductController(ProductService productService) {
+    public ProductController(IProductService productService, ObjectMapper objectMapper, ProductVersions productVersions,
+                             ProductChangeLog productChangeLog,
+                             @Qualifier(TaskExecutionAutoConfiguration.APPLICATION_TASK_EXECUTOR_BEAN_NAME) AsyncTaskExecutor taskExecutor,
+                             MyapiProperties properties) {
         this.productService = productService;
+        this.objectMapper = objectMapper;
+        this.productVersions = productVersions;
+        this.productChangeLog = productChangeLog;
+        this.taskExecutor = taskExecutor;
+        this.searchTimeout = properties.getSearch().getTimeout();
     }
 
     @GetMapping
-    public ResponseEntity<List<ProductResponseDto>> getAllProducts(){
-        logger.info("Received request to get all products");
-        List<ProductResponseDto> productResponseDtos = productService.getAll();
-        logger.debug("Returning {} products",productResponseDtos.size());
-        return ResponseEntity.ok(productResponseDtos);
+    public ResponseEntity<List<ProductResponseDto>> getAllProducts(WebRequest request){
+        return ifCatalogModified(request, productService::getAll);
+    }
+
+    @GetMapping(value = "/export", produces = MediaType.APPLICATION_NDJSON_VALUE)
+    public ResponseEntity<StreamingResponseBody> exportProducts(){
+        // The export touches every product once, keep it out of the JSON cache
+        ObjectWriter writer = objectMapper.writerFor(ProductResponseDto.class)
+                .withAttribute(ProductJsonCache.BYPASS, Boolean.TRUE)
+                .withRootValueSeparator("\n")
+                .without(SerializationFeature.FLUSH_AFTER_WRITE_VALUE);
+        StreamingResponseBody body = outputStream -> {
+            try (JsonGenerator generator = objectMapper.getFactory().createGenerator(outputStream)) {
+                generator.disable(JsonGenerator.Feature.AUTO_CLOSE_TARGET);
+                productService.exportAll(productResponseDto -> {
+                    try {
+                        writer.writeValue(generator, productResponseDto);
+                    } catch (IOException e) {
+                        throw new UncheckedIOException(e);
+                    }
+                });
+                generator.writeRaw('\n');
+            }
+        };
+        return ResponseEntity.ok()
+                .contentType(MediaType.APPLICATION_NDJSON)
+                .body(body);
     }
 
     @GetMapping("/filter")
     public ResponseEntity<Page<ProductResponseDto>> filterProducts(
             @RequestParam(required = false) String name,
             @RequestParam(required = false) String category,
+            @RequestParam(defaultValue = "CONTAINS") MatchMode match,
             @RequestParam(defaultValue = "0") int page,
-            @RequestParam(defaultValue = "10") int size) {
-        logger.info("Received request to filter products by name={} category={}",name,category);
-        Page<ProductResponseDto> productResponseDtos =  productService.filterProductByNameAndCategoryPage(name, category, page, size);
-        logger.debug("Returning {} products", productResponseDtos.getSize());
-        return new ResponseEntity<>(productResponseDtos, HttpStatus.OK);
+            @RequestParam(defaultValue = "10") int size,
+            WebRequest request) {
+        return ifCatalogModified(request, () -> productService.filterProductByNameAndCategoryPage(name, category, match, page, size));
     }
 
+    // Searched on the task executor: when the container reports the client gone or the timeout passes, the search
+    // thread is interrupted and the partitions still running are cancelled. Over HTTP/1.1 Tomcat only notices a
+    // dropped connection on I/O, the timeout bounds the work left behind by clients that went away
     @GetMapping("/search")
-    public ResponseEntity<Page<ProductResponseDto>> searchProductsByKeyword(
+    public WebAsyncTask<ResponseEntity<Page<ProductResponseDto>>> searchProductsByKeyword(
             @RequestParam(required = false) String keyword,
             @RequestParam(defaultValue = "0") int page,
-            @RequestParam(defaultValue = "10") int size){
-        logger.info("Received request to search product by keyword: {}", keyword);
-        Page<ProductResponseDto> productResponseDtos = productService.searchProductByKeyword(keyword, PageRequest.of(page,size));
-        logger.debug("Returning {} products", productResponseDtos.getSize());
-        return new ResponseEntity<>(productResponseDtos, HttpStatus.OK);
+            @RequestParam(defaultValue = "10") int size,
+            WebRequest request){
+        return new WebAsyncTask<>(searchTimeout.toMillis(),
+                ifCatalogModifiedAsync(request, () -> productService.searchProductByKeyword(keyword, PageRequest.of(page,size))));
     }
 
+    // Every predicate is optional and inclusive, release dates are dd-MM-yyyy like in product bodies
+    @GetMapping("/query")
+    public ResponseEntity<Page<ProductResponseDto>> queryProducts(
+            @RequestParam(required = false) Boolean available,
+            @RequestParam(required = false) String category,
+            @RequestParam(required = false) String brand,
+            @RequestParam(required = false) BigDecimal minPrice,
+            @RequestParam(required = false) BigDecimal maxPrice,
+            @RequestParam(required = false) @DateTimeFormat(pattern = "dd-MM-yyyy") LocalDate releasedFrom,
+            @RequestParam(required = false) @DateTimeFormat(pattern = "dd-MM-yyyy") LocalDate releasedTo,
+            @RequestParam(defaultValue = "0") int page,
+            @RequestParam(defaultValue = "10") int size,
+            WebRequest request) {
+        ProductQuery query = new ProductQuery(available, category, brand, minPrice, maxPrice, releasedFrom, releasedTo);
+        return ifCatalogModified(request, () -> productService.queryProducts(query, page, size));
+    }
+
+    @GetMapping("/filter/cursor")
+    public ResponseEntity<CursorPageResponseDto<ProductResponseDto>> filterProductsByCursor(
+            @RequestParam(required = false) String name,
+            @RequestParam(required = false) String category,
+            @RequestParam(required = false) String after,
+            @RequestParam(defaultValue = "10") int size,
+            WebRequest request) {
+        return ifCatalogModified(request, () -> productService.filterProductByNameAndCategoryAfter(name, category, after, size));
+    }
+
+    @GetMapping("/search/cursor")
+    public ResponseEntity<CursorPageResponseDto<ProductResponseDto>> searchProductsByKeywordAndCursor(
+            @RequestParam(required = false) String keyword,
+            @RequestParam(required = false) String after,
+            @RequestParam(defaultValue = "10") int size,
+            WebRequest request){
+        return ifCatalogModified(request, () -> productService.searchProductByKeywordAfter(keyword, after, size));
+    }
+
+    @GetMapping("/facets")
+    public ResponseEntity<FacetResponseDto> getFacets(
+            @RequestParam(required = false) String category,
+            @RequestParam(required = false) String brand,
+            WebRequest request) {
+        return ifCatalogModified(request, () -> productService.getFacets(category, brand));
+    }
+
+    // Long-poll: with wait (seconds) and nothing after since yet, the response is held until a change is committed
+    @GetMapping("/changes")
+    public CompletableFuture<ChangeFeedResponseDto> getChanges(
+            @RequestParam(required = false) Long since,
+            @RequestParam(required = false) Long epoch,
+            @RequestParam(defaultValue = "100") int limit,
+            @RequestParam(defaultValue = "0") long wait) {
+        if (limit < 1 || limit > MAX_CHANGES) {
+            throw new BadRequestException("limit must be between 1 and " + MAX_CHANGES);
+        }
+        CompletableFuture<Void> change = productChangeLog.awaitChange(epoch, since, Duration.ofSeconds(Math.max(0, wait)));
+        if (change.isDone()) {
+            return CompletableFuture.completedFuture(productService.getChanges(epoch, since, limit));
+        }
+        // The request thread is released while waiting, the changes are read on the task executor
+        return change.thenApplyAsync(ignored -> productService.getChanges(epoch, since, limit), taskExecutor);
+    }
 
     @GetMapping("/{id}")
-    public ResponseEntity<ProductResponseDto> getProductById(@PathVariable int id){
-        logger.info("Received request to get product by ID: {}",id);
+    public ResponseEntity<ProductResponseDto> getProductById(@PathVariable int id, WebRequest request){
+        // A known version answers If-None-Match without reading or serializing the product
+        Long knownVersion = productVersions.version(id);
+        if (knownVersion != null && request.checkNotModified(ETags.product(id, knownVersion))) {
+            return ResponseEntity.status(HttpStatus.NOT_MODIFIED).eTag(ETags.product(id, knownVersion))
+                    .varyBy(HttpHeaders.ACCEPT).build();
+        }
+        long generation = productVersions.generation();
         ProductResponseDto productResponseDto = productService.getById(id);
-        logger.debug("Returning product with ID: {}",id);
-        return new ResponseEntity<>(productResponseDto, HttpStatus.OK);
+        if (productResponseDto.getVersion() != null) {
+            productVersions.record(id, productResponseDto.getVersion(), generation);
+        }
+        return ResponseEntity.ok()
+                .eTag(ETags.product(id, productResponseDto.getVersion()))
+                .varyBy(HttpHeaders.ACCEPT)
+                .body(productResponseDto);
     }
 
     @PostMapping
     public ResponseEntity<ProductResponseDto> createProduct(@Valid @RequestBody ProductCreateDto productCreateDto){
-        logger.info("Received request to create new product");
         ProductResponseDto productResponseDto = productService.create(productCreateDto);
-        logger.debug("Returning product with ID: {}",productResponseDto.getId());
-        return new ResponseEntity<>(productResponseDto, HttpStatus.CREATED);
+        return ResponseEntity.status(HttpStatus.CREATED)
+                .eTag(ETags.product(productResponseDto.getId(), productResponseDto.getVersion()))
+                .body(productResponseDto);
     }
 
     @PutMapping
-    public ResponseEntity<ProductResponseDto> updateProduct(@Valid @RequestBody ProductUpdateDto productUpdateDto) {
-        logger.info("Received request to update product by ID: {}",productUpdateDto.getId());
-        ProductResponseDto productResponseDto = productService.update(productUpdateDto);
-        logger.debug("Returning product with ID: {}",productResponseDto.getId());
-        return new ResponseEntity<>(productResponseDto, HttpStatus.OK);
+    public ResponseEntity<ProductResponseDto> updateProduct(
+            @RequestHeader(value = HttpHeaders.IF_MATCH, required = false) String ifMatch,
+            @Valid @RequestBody ProductUpdateDto productUpdateDto) {
+        Long expectedVersion = ETags.expectedVersion(ifMatch, productUpdateDto.getId());
+        if (expectedVersion != null) {
+            if (productUpdateDto.getVersion() != null && !productUpdateDto.getVersion().equals(expectedVersion)) {
+                throw new PreconditionFailedException("If-Match does not match the version in the request body");
+            }
+            productUpdateDto.setVersion(expectedVersion);
+        }
+        ProductResponseDto productResponseDto = ifMatched(expectedVersion, () -> productService.update(productUpdateDto));
+        return ResponseEntity.ok()
+                .eTag(ETags.product(productResponseDto.getId(), productResponseDto.getVersion()))
+                .body(productResponseDto);
+    }
+
+    @PatchMapping("/{id}")
+    public ResponseEntity<Void> patchProduct(
+            @PathVariable int id,
+            @RequestHeader(value = HttpHeaders.IF_MATCH, required = false) String ifMatch,
+            @Valid @RequestBody ProductPatchDto productPatchDto) {
+        Long expectedVersion = ETags.expectedVersion(ifMatch, id);
+        if (expectedVersion != null) {
+            if (productPatchDto.getVersion() != null && !productPatchDto.getVersion().equals(expectedVersion)) {
+                throw new PreconditionFailedException("If-Match does not match the version in the request body");
+            }
+            productPatchDto.setVersion(expectedVersion);
+        }
+        ifMatched(expectedVersion, () -> {
+            productService.patch(id, productPatchDto);
+            return null;
+        });
+        return ResponseEntity.noContent().build();
+    }
+
+    // 202, the delta is logged and applied to the database by the next flush. 409 when it takes the quantity below zero
+    @PostMapping("/{id}/inventory")
+    public ResponseEntity<Void> adjustInventory(@PathVariable int id, @Valid @RequestBody InventoryAdjustDto inventoryAdjustDto) {
+        productService.adjustInventory(id, inventoryAdjustDto.getDelta());
+        return ResponseEntity.accepted().build();
+    }
+
+    // 409 when fewer units are available, the units are held until confirmed, released or expired
+    @PostMapping("/{id}/reservations")
+    public ResponseEntity<ReservationResponseDto> reserve(@PathVariable int id, @Valid @RequestBody ReservationCreateDto reservationCreateDto) {
+        ReservationResponseDto reservationResponseDto = productService.reserve(id, reservationCreateDto);
+        return ResponseEntity.status(HttpStatus.CREATED).body(reservationResponseDto);
+    }
+
+    // 204 once the sale is written, 404 when the reservation has expired
+    @PostMapping("/reservations/{reservationId}/confirm")
+    public ResponseEntity<Void> confirmReservation(@PathVariable String reservationId) {
+        productService.confirmReservation(reservationId);
+        return ResponseEntity.noContent().build();
+    }
+
+    @DeleteMapping("/reservations/{reservationId}")
+    public ResponseEntity<Void> releaseReservation(@PathVariable String reservationId) {
+        productService.releaseReservation(reservationId);
+        return ResponseEntity.noContent().build();
     }
 
     @DeleteMapping("/{id}")
-    public ResponseEntity<Void> deleteProduct(@PathVariable int id){
-        logger.info("Received request to delete product by ID: {}",id);
-        productService.deleteById(id);
+    public ResponseEntity<Void> deleteProduct(
+            @PathVariable int id,
+            @RequestHeader(value = HttpHeaders.IF_MATCH, required = false) String ifMatch){
+        Long expectedVersion = ETags.expectedVersion(ifMatch, id);
+        if (expectedVersion == null) {
+            productService.deleteById(id);
+        } else {
+            ifMatched(expectedVersion, () -> {
+                productService.deleteById(id, expectedVersion);
+                return null;
+            });
+        }
         return ResponseEntity.noContent().build();
     }
 
+    @PostMapping("/bulk")
+    public ResponseEntity<BulkResponseDto> createProducts(@RequestBody List<ProductCreateDto> productCreateDtos){
+        BulkResponseDto bulkResponseDto = productService.createAll(productCreateDtos);
+        return new ResponseEntity<>(bulkResponseDto, HttpStatus.OK);
+    }
+
+    @PutMapping("/bulk")
+    public ResponseEntity<BulkResponseDto> updateProducts(@RequestBody List<ProductUpdateDto> productUpdateDtos){
+        BulkResponseDto bulkResponseDto = productService.updateAll(productUpdateDtos);
+        return new ResponseEntity<>(bulkResponseDto, HttpStatus.OK);
+    }
+
+    @DeleteMapping("/bulk")
+    public ResponseEntity<BulkResponseDto> deleteProducts(@RequestBody List<Integer> ids){
+        BulkResponseDto bulkResponseDto = productService.deleteAllById(ids);
+        return new ResponseEntity<>(bulkResponseDto, HttpStatus.OK);
+    }
+
+    // List results are tagged with the catalog generation they were read at, any committed write moves it on
+    private <T> ResponseEntity<T> ifCatalogModified(WebRequest request, Supplier<T> body) {
+        String eTag = ETags.generation(productVersions.generation());
+        // The same tag is used for every encoding of a result, caches have to key on Accept as well
+        if (request.checkNotModified(eTag)) {
+            return ResponseEntity.status(HttpStatus.NOT_MODIFIED).eTag(eTag).varyBy(HttpHeaders.ACCEPT).build();
+        }
+        return ResponseEntity.ok().eTag(eTag).varyBy(HttpHeaders.ACCEPT).body(body.get());
+    }
+
+    // Conditional requests are answered on the request thread, only the body is computed asynchronously
+    private <T> Callable<ResponseEntity<T>> ifCatalogModifiedAsync(WebRequest request, Supplier<T> body) {
+        String eTag = ETags.generation(productVersions.generation());
+        if (request.checkNotModified(eTag)) {
+            ResponseEntity<T> notModified = ResponseEntity.status(HttpStatus.NOT_MODIFIED).eTag(eTag).varyBy(HttpHeaders.ACCEPT).build();
+            return () -> notModified;
+        }
+        return () -> ResponseEntity.ok().eTag(eTag).varyBy(HttpHeaders.ACCEPT).body(body.get());
+    }
+
+    // A version conflict on a write guarded by If-Match is a failed precondition (412) rather than a conflict (409)
+    private static <T> T ifMatched(Long expectedVersion, Supplier<T> write) {
+        try {
+            return write.get();
+        } catch (OptimisticLockingFailureException e) {
+            if (expectedVersion == null) {
+                throw e;
+            }
+            throw new PreconditionFailedException("Product has been modified, If-Match no longer matches");
+        }
+    }
+
 // hateoas library applied to create links with the response: (LEARNING)
 
 //    private ProductResponseDto addLinksToProduct(ProductResponseDto product){
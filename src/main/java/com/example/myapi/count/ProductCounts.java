@@ -0,0 +1,53 @@
+package com.example.myapi.count;
+
+import com.example.myapi.config.MyapiProperties;
+import com.example.myapi.etag.ProductVersions;
+import com.example.myapi.repo.MatchCount;
+import com.github.benmanes.caffeine.cache.Cache;
+import com.github.benmanes.caffeine.cache.Caffeine;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.binder.cache.CaffeineCacheMetrics;
+import org.springframework.stereotype.Component;
+
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+import java.util.function.LongFunction;
+
+/**
+ * Totals of paged queries, keyed by query, normalized arguments and catalog generation. Paging through
+ * a result counts it once, any committed write moves the generation on so stale totals are never looked up
+ * and age out. Totals above the approximate-above setting are estimated instead of counted.
+ */
+@Component
+public class ProductCounts {
+    private final ProductVersions productVersions;
+    private final long approximateAbove;
+    private final Cache<Key, MatchCount> entries;
+
+    private record Key(long generation, String query, List<?> arguments) {
+    }
+
+    public ProductCounts(ProductVersions productVersions, MyapiProperties properties, MeterRegistry meterRegistry) {
+        MyapiProperties.Counts counts = properties.getCounts();
+        this.productVersions = productVersions;
+        this.approximateAbove = counts.getApproximateAbove();
+        this.entries = Caffeine.newBuilder()
+                .maximumSize(counts.getMaximumSize())
+                .expireAfterWrite(counts.getTimeToLive().toMillis(), TimeUnit.MILLISECONDS)
+                .recordStats()
+                .build();
+        CaffeineCacheMetrics.monitor(meterRegistry, entries, "product.counts");
+    }
+
+    // counter is passed the limit to count up to, see ProductRepoCustom
+    public MatchCount count(String query, List<?> arguments, LongFunction<MatchCount> counter) {
+        // Read before counting, a count taken while a write commits is only ever stored under the older generation
+        Key key = new Key(productVersions.generation(), query, arguments);
+        MatchCount count = entries.getIfPresent(key);
+        if (count == null) {
+            count = counter.apply(approximateAbove);
+            entries.put(key, count);
+        }
+        return count;
+    }
+}
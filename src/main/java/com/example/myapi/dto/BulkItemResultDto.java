@@ -0,0 +1,18 @@
+package com.example.myapi.dto;
+
+import lombok.AllArgsConstructor;
+import lombok.Builder;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+@Data
+@AllArgsConstructor
+@NoArgsConstructor
+@Builder
+public class BulkItemResultDto {
+    // Position of the item in the request body
+    private int index;
+    private Integer id;
+    private int status;
+    private String error;
+}
@@ -0,0 +1,24 @@
+package com.example.myapi.dto;
+
+import lombok.AllArgsConstructor;
+import lombok.Builder;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+import java.util.List;
+
+@Data
+@AllArgsConstructor
+@NoArgsConstructor
+@Builder
+public class BulkResponseDto {
+    private int total;
+    private int succeeded;
+    private int failed;
+    private List<BulkItemResultDto> items;
+
+    public static BulkResponseDto of(List<BulkItemResultDto> items) {
+        int failed = (int) items.stream().filter(item -> item.getError() != null).count();
+        return new BulkResponseDto(items.size(), items.size() - failed, failed, items);
+    }
+}
@@ -0,0 +1,20 @@
+package com.example.myapi.dto;
+
+import lombok.AllArgsConstructor;
+import lombok.Builder;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+import java.util.List;
+
+// resetRequired: changes after since are no longer known, pull the catalog again and continue from next
+@Data
+@AllArgsConstructor
+@NoArgsConstructor
+@Builder
+public class ChangeFeedResponseDto {
+    private long epoch;
+    private long next;
+    private boolean resetRequired;
+    private List<ProductChangeDto> changes;
+}
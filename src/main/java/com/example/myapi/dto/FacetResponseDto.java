@@ -0,0 +1,21 @@
+package com.example.myapi.dto;
+
+import lombok.AllArgsConstructor;
+import lombok.Builder;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+import java.util.Map;
+
+// Product counts per facet value within a category and/or brand filter, maps are ordered by count
+@Data
+@AllArgsConstructor
+@NoArgsConstructor
+@Builder
+public class FacetResponseDto {
+    private long total;
+    private Map<String, Long> categories;
+    private Map<String, Long> brands;
+    private Map<String, Long> availability;
+    private Map<String, Long> priceBuckets;
+}
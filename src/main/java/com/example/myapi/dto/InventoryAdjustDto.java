@@ -0,0 +1,22 @@
+package com.example.myapi.dto;
+
+// Relative stock change, positive for incoming and negative for outgoing units
+
+import jakarta.validation.constraints.Max;
+import jakarta.validation.constraints.Min;
+import jakarta.validation.constraints.NotNull;
+import lombok.AllArgsConstructor;
+import lombok.Builder;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+@Data
+@AllArgsConstructor
+@NoArgsConstructor
+@Builder
+public class InventoryAdjustDto {
+    @NotNull(message = "Inventory delta cannot be null")
+    @Min(value = -1_000_000, message = "Inventory delta must be between -1000000 and 1000000")
+    @Max(value = 1_000_000, message = "Inventory delta must be between -1000000 and 1000000")
+    private Integer delta;
+}
@@ -0,0 +1,22 @@
+package com.example.myapi.dto;
+
+import com.example.myapi.event.ProductChangeEvent;
+import lombok.AllArgsConstructor;
+import lombok.Builder;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+import java.time.Instant;
+
+// Latest change of a product, product is its current state and null once it is deleted
+@Data
+@AllArgsConstructor
+@NoArgsConstructor
+@Builder
+public class ProductChangeDto {
+    private long sequence;
+    private ProductChangeEvent.Type type;
+    private int productId;
+    private Instant committedAt;
+    private ProductResponseDto product;
+}
@@ -0,0 +1,36 @@
+package com.example.myapi.dto;
+
+// Partial update, only the non-null fields are written
+
+import jakarta.validation.constraints.Min;
+import jakarta.validation.constraints.Size;
+import lombok.AllArgsConstructor;
+import lombok.Builder;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+import java.math.BigDecimal;
+
+@Data
+@AllArgsConstructor
+@NoArgsConstructor
+@Builder
+public class ProductPatchDto {
+    @Size(min = 2, max = 100, message = "Product name must be between 2 and 100 characters")
+    private String name;
+    private String desc;
+    private String brand;
+    @Min(value = 0, message = "Product price cannot be negative")
+    private BigDecimal price;
+    private String category;
+    private Boolean available;
+    @Min(value = 0, message = "Product quantity cannot be negative")
+    private Integer quantity;
+    // Expected current version, the update is rejected with 409 when it does not match
+    private Long version;
+
+    public boolean isEmpty() {
+        return name == null && desc == null && brand == null && price == null
+                && category == null && available == null && quantity == null;
+    }
+}
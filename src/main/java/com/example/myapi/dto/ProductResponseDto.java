@@ -24,5 +24,6 @@ public class ProductResponseDto {
     private Date releaseDate;
     private boolean available;
     private int quantity;
+    private Long version;
 
 }
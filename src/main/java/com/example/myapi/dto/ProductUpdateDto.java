@@ -33,4 +33,6 @@ public class ProductUpdateDto {
     private boolean available;
     @Min(value = 0, message = "Product quantity cannot be negative")
     private int quantity;
+    // Optional expected version, a mismatch is rejected with 409
+    private Long version;
 }
@@ -0,0 +1,23 @@
+package com.example.myapi.dto;
+
+// Units to hold for a product, released again unless confirmed within the TTL
+
+import jakarta.validation.constraints.Min;
+import jakarta.validation.constraints.NotNull;
+import lombok.AllArgsConstructor;
+import lombok.Builder;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+@Data
+@AllArgsConstructor
+@NoArgsConstructor
+@Builder
+public class ReservationCreateDto {
+    @NotNull(message = "Reservation quantity cannot be null")
+    @Min(value = 1, message = "Reservation quantity must be at least 1")
+    private Integer quantity;
+    // Defaults to myapi.reservations.default-ttl, capped at myapi.reservations.max-ttl
+    @Min(value = 1, message = "Reservation TTL must be at least 1 second")
+    private Long ttlSeconds;
+}
@@ -0,0 +1,19 @@
+package com.example.myapi.dto;
+
+import lombok.AllArgsConstructor;
+import lombok.Builder;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+import java.time.Instant;
+
+@Data
+@AllArgsConstructor
+@NoArgsConstructor
+@Builder
+public class ReservationResponseDto {
+    private String id;
+    private int productId;
+    private int quantity;
+    private Instant expiresAt;
+}
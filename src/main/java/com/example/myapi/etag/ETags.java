@@ -0,0 +1,40 @@
+package com.example.myapi.etag;
+
+import com.example.myapi.exception.PreconditionFailedException;
+
+// Strong entity tags for products ("id-version") and for list results ("g-generation")
+public final class ETags {
+    private ETags() {
+    }
+
+    // Null for a product without a version, a strong tag would have to change with every change to it
+    public static String product(int id, Long version) {
+        return version != null ? "\"" + id + "-" + version + "\"" : null;
+    }
+
+    public static String generation(long generation) {
+        return "\"g-" + generation + "\"";
+    }
+
+    /**
+     * Expected version of product id from an If-Match header, null when there is no header or it is "*".
+     * Weak tags and tags of other products can never match under the strong comparison If-Match uses.
+     */
+    public static Long expectedVersion(String ifMatch, int id) {
+        if (ifMatch == null || ifMatch.isBlank() || ifMatch.trim().equals("*")) {
+            return null;
+        }
+        String prefix = "\"" + id + "-";
+        for (String tag : ifMatch.split(",")) {
+            tag = tag.trim();
+            if (tag.startsWith(prefix) && tag.endsWith("\"") && tag.length() > prefix.length() + 1) {
+                try {
+                    return Long.parseLong(tag.substring(prefix.length(), tag.length() - 1));
+                } catch (NumberFormatException e) {
+                    // not one of our tags, keep looking
+                }
+            }
+        }
+        throw new PreconditionFailedException("If-Match does not match product with ID: " + id);
+    }
+}
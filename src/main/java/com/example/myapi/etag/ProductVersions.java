@@ -0,0 +1,54 @@
+package com.example.myapi.etag;
+
+import com.example.myapi.event.ProductChangeEvent;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.event.TransactionalEventListener;
+
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Last known version of every product plus a catalog generation that moves on every committed change.
+ * Lets conditional GETs be answered with 304 without reading the database: a product ETag is its
+ * id and version, a list ETag is the generation the result was read at.
+ */
+@Component
+public class ProductVersions {
+    // Starts at the boot time so list ETags from an earlier run never match
+    private final AtomicLong generation = new AtomicLong(System.currentTimeMillis());
+    private final Map<Integer, Long> versions = new ConcurrentHashMap<>();
+
+    public long generation() {
+        return generation.get();
+    }
+
+    // Null when the version is not known, the caller has to read the product
+    public Long version(int id) {
+        return versions.get(id);
+    }
+
+    // Records a version read at generation, a change that raced with the read discards it again
+    public void record(int id, long version, long readAtGeneration) {
+        versions.put(id, version);
+        if (generation.get() != readAtGeneration) {
+            versions.remove(id, version);
+        }
+    }
+
+    // For changes to what reads return that do not come with a ProductChangeEvent, e.g. a rebuilt search index
+    public void advance() {
+        generation.incrementAndGet();
+    }
+
+    @TransactionalEventListener(fallbackExecution = true)
+    public void onProductChange(ProductChangeEvent event) {
+        // Bump first, a read that records after this point sees the new generation and backs off
+        generation.incrementAndGet();
+        if (event.getProduct() != null && event.getProduct().getVersion() != null) {
+            versions.put(event.getProductId(), event.getProduct().getVersion());
+        } else {
+            versions.remove(event.getProductId());
+        }
+    }
+}
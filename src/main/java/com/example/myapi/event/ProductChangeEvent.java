@@ -0,0 +1,47 @@
+package com.example.myapi.event;
+
+import com.example.myapi.dto.ProductPatchDto;
+import com.example.myapi.model.Product;
+import lombok.AllArgsConstructor;
+import lombok.Getter;
+import lombok.ToString;
+
+// Published by ProductService after every write so in-memory views can stay in sync with the database
+@Getter
+@ToString
+@AllArgsConstructor
+public class ProductChangeEvent {
+    public enum Type { CREATED, UPDATED, DELETED }
+
+    private final Type type;
+    private final int productId;
+    // Current state of the product, null for DELETED and for partial updates
+    private final Product product;
+    // Changed fields of a partial update, only set when product is null
+    private final ProductPatchDto patch;
+
+    public static ProductChangeEvent created(Product product) {
+        return new ProductChangeEvent(Type.CREATED, product.getId(), product, null);
+    }
+
+    public static ProductChangeEvent updated(Product product) {
+        return new ProductChangeEvent(Type.UPDATED, product.getId(), product, null);
+    }
+
+    public static ProductChangeEvent patched(int productId, ProductPatchDto patch) {
+        return new ProductChangeEvent(Type.UPDATED, productId, null, patch);
+    }
+
+    // Only the quantity changed, by a delta, the new value is not known until it is flushed
+    public static ProductChangeEvent inventoryAdjusted(int productId) {
+        return new ProductChangeEvent(Type.UPDATED, productId, null, new ProductPatchDto());
+    }
+
+    public static ProductChangeEvent deleted(int productId) {
+        return new ProductChangeEvent(Type.DELETED, productId, null, null);
+    }
+
+    public boolean isPartial() {
+        return type == Type.UPDATED && product == null;
+    }
+}
@@ -0,0 +1,204 @@
+package com.example.myapi.facet;
+
+import com.example.myapi.dto.FacetResponseDto;
+import com.example.myapi.model.Product;
+
+import java.math.BigDecimal;
+import java.util.Comparator;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.Objects;
+
+/**
+ * Facet counters for every scope a query can ask for: all products, one category, one brand and
+ * one category/brand pair. Every product contributes to four scopes, so a write touches a handful
+ * of counters and a query reads one scope. Not thread safe, guarded by ProductFacets.
+ */
+class FacetState {
+    private static final String GLOBAL_SCOPE = "";
+
+    private final BigDecimal[] priceBounds;
+    // Facet values of every product, needed to take its old contribution back out on update and delete
+    private final Map<Integer, FacetEntry> entries = new HashMap<>();
+    private final Map<String, FacetCounts> scopes = new HashMap<>();
+    // Shares one String instance per distinct category and brand across all entries
+    private final Map<String, String> values = new HashMap<>();
+
+    record FacetEntry(String category, String brand, boolean available, int priceBucket) {
+    }
+
+    FacetState(BigDecimal[] priceBounds) {
+        this.priceBounds = priceBounds;
+    }
+
+    int size() {
+        return entries.size();
+    }
+
+    FacetEntry get(int id) {
+        return entries.get(id);
+    }
+
+    void put(int id, String category, String brand, boolean available, BigDecimal price) {
+        put(id, new FacetEntry(canonical(Product.normalize(category)), canonical(Product.normalize(brand)),
+                available, priceBucket(price)));
+    }
+
+    void put(int id, FacetEntry entry) {
+        FacetEntry previous = entries.put(id, entry);
+        if (previous != null) {
+            apply(previous, -1);
+        }
+        apply(entry, 1);
+    }
+
+    // Applies the non-null fields of a partial update, unknown ids are left to the next reconcile
+    void patch(int id, String category, String brand, Boolean available, BigDecimal price) {
+        FacetEntry current = entries.get(id);
+        if (current == null) {
+            return;
+        }
+        put(id, new FacetEntry(
+                category != null ? canonical(Product.normalize(category)) : current.category(),
+                brand != null ? canonical(Product.normalize(brand)) : current.brand(),
+                available != null ? available : current.available(),
+                price != null ? priceBucket(price) : current.priceBucket()));
+    }
+
+    void remove(int id) {
+        FacetEntry previous = entries.remove(id);
+        if (previous != null) {
+            apply(previous, -1);
+        }
+    }
+
+    // Number of products whose facet values differ between this state and other
+    int diff(FacetState other) {
+        int differences = 0;
+        for (Map.Entry<Integer, FacetEntry> entry : entries.entrySet()) {
+            if (!Objects.equals(entry.getValue(), other.entries.get(entry.getKey()))) {
+                differences++;
+            }
+        }
+        for (Integer id : other.entries.keySet()) {
+            if (!entries.containsKey(id)) {
+                differences++;
+            }
+        }
+        return differences;
+    }
+
+    FacetResponseDto facets(String category, String brand) {
+        FacetCounts counts = scopes.get(scopeKey(Product.normalize(category), Product.normalize(brand)));
+        if (counts == null) {
+            counts = new FacetCounts(priceBounds.length + 1);
+        }
+        Map<String, Long> availability = new LinkedHashMap<>();
+        availability.put("available", (long) counts.available[1]);
+        availability.put("unavailable", (long) counts.available[0]);
+        Map<String, Long> priceBuckets = new LinkedHashMap<>();
+        for (int i = 0; i < counts.priceBuckets.length; i++) {
+            priceBuckets.put(bucketLabel(i), (long) counts.priceBuckets[i]);
+        }
+        return FacetResponseDto.builder()
+                .total(counts.total)
+                .categories(sortedByCount(counts.categories))
+                .brands(sortedByCount(counts.brands))
+                .availability(availability)
+                .priceBuckets(priceBuckets)
+                .build();
+    }
+
+    private void apply(FacetEntry entry, int delta) {
+        update(GLOBAL_SCOPE, entry, delta);
+        if (entry.category() != null) {
+            update(scopeKey(entry.category(), null), entry, delta);
+        }
+        if (entry.brand() != null) {
+            update(scopeKey(null, entry.brand()), entry, delta);
+        }
+        if (entry.category() != null && entry.brand() != null) {
+            update(scopeKey(entry.category(), entry.brand()), entry, delta);
+        }
+    }
+
+    private void update(String scope, FacetEntry entry, int delta) {
+        FacetCounts counts = scopes.computeIfAbsent(scope, key -> new FacetCounts(priceBounds.length + 1));
+        counts.add(entry, delta);
+        if (counts.total == 0) {
+            scopes.remove(scope);
+        }
+    }
+
+    private static String scopeKey(String category, String brand) {
+        if (category == null && brand == null) {
+            return GLOBAL_SCOPE;
+        }
+        if (brand == null) {
+            return "c:" + category;
+        }
+        if (category == null) {
+            return "b:" + brand;
+        }
+        return "cb:" + category + '\u0000' + brand;
+    }
+
+    private String canonical(String value) {
+        return value == null ? null : values.computeIfAbsent(value, key -> key);
+    }
+
+    private int priceBucket(BigDecimal price) {
+        if (price == null) {
+            return 0;
+        }
+        int bucket = 0;
+        while (bucket < priceBounds.length && price.compareTo(priceBounds[bucket]) >= 0) {
+            bucket++;
+        }
+        return bucket;
+    }
+
+    private String bucketLabel(int bucket) {
+        String lower = bucket == 0 ? "0" : priceBounds[bucket - 1].stripTrailingZeros().toPlainString();
+        return bucket == priceBounds.length ? lower + "+" : lower + "-" + priceBounds[bucket].stripTrailingZeros().toPlainString();
+    }
+
+    private static Map<String, Long> sortedByCount(Map<String, Integer> counts) {
+        Map<String, Long> sorted = new LinkedHashMap<>();
+        counts.entrySet().stream()
+                .sorted(Map.Entry.<String, Integer>comparingByValue(Comparator.reverseOrder()).thenComparing(Map.Entry.comparingByKey()))
+                .forEach(entry -> sorted.put(entry.getKey(), (long) entry.getValue()));
+        return sorted;
+    }
+
+    private static final class FacetCounts {
+        private int total;
+        private final Map<String, Integer> categories = new HashMap<>();
+        private final Map<String, Integer> brands = new HashMap<>();
+        // Indexed by available ? 1 : 0
+        private final int[] available = new int[2];
+        private final int[] priceBuckets;
+
+        private FacetCounts(int buckets) {
+            this.priceBuckets = new int[buckets];
+        }
+
+        private void add(FacetEntry entry, int delta) {
+            total += delta;
+            if (entry.category() != null) {
+                adjust(categories, entry.category(), delta);
+            }
+            if (entry.brand() != null) {
+                adjust(brands, entry.brand(), delta);
+            }
+            available[entry.available() ? 1 : 0] += delta;
+            priceBuckets[entry.priceBucket()] += delta;
+        }
+
+        private static void adjust(Map<String, Integer> counts, String value, int delta) {
+            // merge drops the key once its count reaches zero
+            counts.merge(value, delta, (current, change) -> current + change == 0 ? null : current + change);
+        }
+    }
+}
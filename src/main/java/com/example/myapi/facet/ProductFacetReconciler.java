@@ -0,0 +1,47 @@
+package com.example.myapi.facet;
+
+import com.example.myapi.etag.ProductVersions;
+import com.example.myapi.service.IProductService;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.boot.context.event.ApplicationReadyEvent;
+import org.springframework.context.event.EventListener;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Component;
+
+// Loads the facet counts once the application has started and rebuilds them from the database periodically
+@Component
+public class ProductFacetReconciler {
+    private static final Logger logger = LoggerFactory.getLogger(ProductFacetReconciler.class);
+    private final ProductFacets productFacets;
+    private final IProductService productService;
+    private final ProductVersions productVersions;
+
+    public ProductFacetReconciler(ProductFacets productFacets, IProductService productService,
+                                  ProductVersions productVersions) {
+        this.productFacets = productFacets;
+        this.productService = productService;
+        this.productVersions = productVersions;
+    }
+
+    @EventListener(ApplicationReadyEvent.class)
+    @Scheduled(initialDelayString = "${myapi.facets.reconcile-interval}", fixedDelayString = "${myapi.facets.reconcile-interval}")
+    public void reconcile() {
+        long start = System.nanoTime();
+        ProductFacets.Rebuild rebuild = productFacets.startRebuild();
+        try {
+            productService.exportAll(product -> rebuild.add(product.getId(), product.getCategory(), product.getBrand(),
+                    product.isAvailable(), product.getPrice()));
+        } catch (RuntimeException e) {
+            productFacets.abandonRebuild();
+            throw e;
+        }
+        int drift = productFacets.finishRebuild(rebuild);
+        if (drift > 0) {
+            logger.warn("Facet counts had drifted for {} products", drift);
+            productVersions.advance();
+        }
+        logger.info("Facet counts rebuilt with {} products in {} ms",
+                productFacets.size(), (System.nanoTime() - start) / 1_000_000);
+    }
+}
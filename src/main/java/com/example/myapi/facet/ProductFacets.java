@@ -0,0 +1,135 @@
+package com.example.myapi.facet;
+
+import com.example.myapi.config.MyapiProperties;
+import com.example.myapi.dto.FacetResponseDto;
+import com.example.myapi.dto.ProductPatchDto;
+import com.example.myapi.event.ProductChangeEvent;
+import com.example.myapi.model.Product;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.event.TransactionalEventListener;
+
+import java.math.BigDecimal;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.locks.ReadWriteLock;
+import java.util.concurrent.locks.ReentrantReadWriteLock;
+
+/**
+ * In-memory category, brand, availability and price bucket counts, kept current from
+ * ProductChangeEvent so a facet query reads a few counters instead of scanning the table.
+ * ProductFacetReconciler periodically rebuilds the counts from the database to correct drift.
+ */
+@Component
+public class ProductFacets {
+    private static final Logger logger = LoggerFactory.getLogger(ProductFacets.class);
+
+    private final ReadWriteLock lock = new ReentrantReadWriteLock();
+    private final BigDecimal[] priceBounds;
+    private FacetState state;
+    // Changes seen while a rebuild is running, replayed onto the rebuilt state before it is swapped in
+    private List<ProductChangeEvent> pendingChanges;
+    private boolean loaded;
+
+    public ProductFacets(MyapiProperties properties) {
+        this.priceBounds = properties.getFacets().getPriceBuckets().stream()
+                .sorted()
+                .toArray(BigDecimal[]::new);
+        this.state = new FacetState(priceBounds);
+    }
+
+    public FacetResponseDto facets(String category, String brand) {
+        lock.readLock().lock();
+        try {
+            return state.facets(category, brand);
+        } finally {
+            lock.readLock().unlock();
+        }
+    }
+
+    public int size() {
+        lock.readLock().lock();
+        try {
+            return state.size();
+        } finally {
+            lock.readLock().unlock();
+        }
+    }
+
+    // Starts recording changes, the caller fills the returned state from the database and passes it to finishRebuild
+    public Rebuild startRebuild() {
+        lock.writeLock().lock();
+        try {
+            pendingChanges = new ArrayList<>();
+        } finally {
+            lock.writeLock().unlock();
+        }
+        return new Rebuild(new FacetState(priceBounds));
+    }
+
+    // Swaps in the rebuilt counts and returns how many products had drifted from the database
+    public int finishRebuild(Rebuild rebuild) {
+        lock.writeLock().lock();
+        try {
+            // Replaying is idempotent, every change sets a product's facet values rather than adjusting counts
+            pendingChanges.forEach(change -> apply(rebuild.state, change));
+            pendingChanges = null;
+            // The first load replaces the empty startup state, that is not drift
+            int drift = loaded ? state.diff(rebuild.state) : 0;
+            state = rebuild.state;
+            loaded = true;
+            return drift;
+        } finally {
+            lock.writeLock().unlock();
+        }
+    }
+
+    public void abandonRebuild() {
+        lock.writeLock().lock();
+        try {
+            pendingChanges = null;
+        } finally {
+            lock.writeLock().unlock();
+        }
+    }
+
+    @TransactionalEventListener(fallbackExecution = true)
+    public void onProductChange(ProductChangeEvent event) {
+        lock.writeLock().lock();
+        try {
+            apply(state, event);
+            if (pendingChanges != null) {
+                pendingChanges.add(event);
+            }
+        } finally {
+            lock.writeLock().unlock();
+        }
+        logger.debug("Facet counts updated for product ID: {}", event.getProductId());
+    }
+
+    private static void apply(FacetState target, ProductChangeEvent event) {
+        if (event.getType() == ProductChangeEvent.Type.DELETED) {
+            target.remove(event.getProductId());
+        } else if (event.isPartial()) {
+            ProductPatchDto patch = event.getPatch();
+            target.patch(event.getProductId(), patch.getCategory(), patch.getBrand(), patch.getAvailable(), patch.getPrice());
+        } else {
+            Product product = event.getProduct();
+            target.put(product.getId(), product.getCategory(), product.getBrand(), product.isAvailable(), product.getPrice());
+        }
+    }
+
+    // Counts being rebuilt off to the side, not visible to queries until finishRebuild
+    public static final class Rebuild {
+        private final FacetState state;
+
+        private Rebuild(FacetState state) {
+            this.state = state;
+        }
+
+        public void add(int id, String category, String brand, boolean available, BigDecimal price) {
+            state.put(id, category, brand, available, price);
+        }
+    }
+}
@@ -0,0 +1,210 @@
+package com.example.myapi.inventory;
+
+import java.io.Closeable;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.channels.OverlappingFileLockException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.locks.ReentrantLock;
+import java.util.stream.Stream;
+import java.util.zip.CRC32C;
+
+/**
+ * Append-only log of accepted inventory deltas, split into segments named by their first sequence number.
+ * Records are fixed size and checksummed, replay of a segment stops at a torn or corrupt record. The owner
+ * rolls to a new segment when it drains deltas for a flush and deletes the closed segments once the flush
+ * is checkpointed. append and roll must not be called concurrently, sync may be called from any thread.
+ */
+class InventoryLog implements Closeable {
+    private static final int RECORD_SIZE = 20;
+    private static final String PREFIX = "inventory-";
+    private static final String SUFFIX = ".log";
+
+    record Entry(long sequence, int productId, int delta) {
+    }
+
+    private final Path directory;
+    private final FileChannel lockChannel;
+    private final ByteBuffer record = ByteBuffer.allocate(RECORD_SIZE);
+    // Held across force, a monitor would pin the carrier of a virtual thread waiting on the disk
+    private final ReentrantLock syncLock = new ReentrantLock();
+    // Segments no longer written to, oldest first
+    private final List<Path> closedSegments = new CopyOnWriteArrayList<>();
+    private List<Entry> recovered;
+    private FileChannel current;
+    private long firstSequenceOfCurrent;
+    private long lastSequence;
+    private volatile long writtenSequence;
+    private volatile long syncedSequence;
+
+    InventoryLog(Path directory) throws IOException {
+        this.directory = directory;
+        Files.createDirectories(directory);
+        this.lockChannel = FileChannel.open(directory.resolve(".lock"), StandardOpenOption.CREATE, StandardOpenOption.WRITE);
+        try {
+            if (lockChannel.tryLock() == null) {
+                throw new IllegalStateException("Inventory log " + directory + " is in use by another process");
+            }
+        } catch (OverlappingFileLockException e) {
+            lockChannel.close();
+            throw new IllegalStateException("Inventory log " + directory + " is already open", e);
+        } catch (IOException | RuntimeException e) {
+            lockChannel.close();
+            throw e;
+        }
+        // Every segment found on disk is closed, its entries are handed to the owner for replay
+        List<Entry> entries = new ArrayList<>();
+        for (Path segment : segments()) {
+            lastSequence = Math.max(lastSequence, firstSequence(segment) - 1);
+            for (Entry entry : read(segment)) {
+                lastSequence = Math.max(lastSequence, entry.sequence());
+                entries.add(entry);
+            }
+            closedSegments.add(segment);
+        }
+        // An empty newest segment is reopened as the current one
+        closedSegments.remove(segment(lastSequence + 1));
+        this.recovered = entries;
+        this.writtenSequence = lastSequence;
+        this.syncedSequence = lastSequence;
+        open(lastSequence + 1);
+    }
+
+    // Entries of the segments found on open, only returned once
+    List<Entry> takeRecovered() {
+        List<Entry> entries = recovered;
+        recovered = List.of();
+        return entries;
+    }
+
+    long append(int productId, int delta) throws IOException {
+        long sequence = lastSequence + 1;
+        record.clear();
+        record.putLong(sequence).putInt(productId).putInt(delta);
+        record.putInt(checksum(record.array()));
+        record.flip();
+        while (record.hasRemaining()) {
+            current.write(record);
+        }
+        lastSequence = sequence;
+        writtenSequence = sequence;
+        return sequence;
+    }
+
+    // Group commit: returns once sequence is on disk, one force covers every record written before it
+    void sync(long sequence) throws IOException {
+        if (syncedSequence >= sequence) {
+            return;
+        }
+        syncLock.lock();
+        try {
+            if (syncedSequence >= sequence) {
+                return;
+            }
+            long target = writtenSequence;
+            current.force(false);
+            syncedSequence = target;
+        } finally {
+            syncLock.unlock();
+        }
+    }
+
+    // Closes the current segment and starts a new one, returns the last sequence in the closed segment
+    long roll() throws IOException {
+        syncLock.lock();
+        try {
+            current.force(false);
+            syncedSequence = writtenSequence;
+            current.close();
+            closedSegments.add(segment(firstSequenceOfCurrent));
+            open(lastSequence + 1);
+        } finally {
+            syncLock.unlock();
+        }
+        return lastSequence;
+    }
+
+    // Deletes the closed segments whose entries are all at or below sequence
+    void deleteThrough(long sequence) throws IOException {
+        for (Path segment : closedSegments) {
+            if (firstSequence(segment) <= sequence) {
+                Files.deleteIfExists(segment);
+                closedSegments.remove(segment);
+            }
+        }
+    }
+
+    @Override
+    public void close() throws IOException {
+        syncLock.lock();
+        try {
+            current.force(false);
+            current.close();
+        } finally {
+            syncLock.unlock();
+        }
+        lockChannel.close();
+    }
+
+    private void open(long firstSequence) throws IOException {
+        // A file of that name can only hold a torn record, real entries would have moved lastSequence past it
+        current = FileChannel.open(segment(firstSequence), StandardOpenOption.CREATE, StandardOpenOption.WRITE,
+                StandardOpenOption.TRUNCATE_EXISTING);
+        firstSequenceOfCurrent = firstSequence;
+    }
+
+    private Path segment(long firstSequence) {
+        return directory.resolve(PREFIX + String.format("%020d", firstSequence) + SUFFIX);
+    }
+
+    private List<Path> segments() throws IOException {
+        try (Stream<Path> files = Files.list(directory)) {
+            return files.filter(file -> {
+                        String name = file.getFileName().toString();
+                        return name.startsWith(PREFIX) && name.endsWith(SUFFIX);
+                    })
+                    .sorted()
+                    .toList();
+        }
+    }
+
+    private static long firstSequence(Path segment) {
+        String name = segment.getFileName().toString();
+        return Long.parseLong(name.substring(PREFIX.length(), name.length() - SUFFIX.length()));
+    }
+
+    static List<Entry> read(Path segment) throws IOException {
+        List<Entry> entries = new ArrayList<>();
+        ByteBuffer buffer = ByteBuffer.allocate(RECORD_SIZE);
+        try (FileChannel channel = FileChannel.open(segment, StandardOpenOption.READ)) {
+            while (readRecord(channel, buffer) && buffer.getInt(16) == checksum(buffer.array())) {
+                buffer.flip();
+                entries.add(new Entry(buffer.getLong(), buffer.getInt(), buffer.getInt()));
+            }
+        }
+        return entries;
+    }
+
+    // False when the file ends before a whole record was read
+    private static boolean readRecord(FileChannel channel, ByteBuffer buffer) throws IOException {
+        buffer.clear();
+        while (buffer.hasRemaining()) {
+            if (channel.read(buffer) < 0) {
+                return false;
+            }
+        }
+        return true;
+    }
+
+    private static int checksum(byte[] record) {
+        CRC32C crc = new CRC32C();
+        crc.update(record, 0, 16);
+        return (int) crc.getValue();
+    }
+}
@@ -0,0 +1,323 @@
+package com.example.myapi.inventory;
+
+import com.example.myapi.config.MyapiProperties;
+import com.example.myapi.dto.ProductResponseDto;
+import com.example.myapi.etag.ProductVersions;
+import com.example.myapi.exception.InsufficientStockException;
+import com.example.myapi.model.InventoryCheckpoint;
+import com.example.myapi.repo.InventoryCheckpointRepo;
+import com.example.myapi.repo.ProductRepo;
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.Timer;
+import jakarta.annotation.PreDestroy;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.boot.context.event.ApplicationReadyEvent;
+import org.springframework.context.event.EventListener;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.scheduling.TaskScheduler;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.TransactionDefinition;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.time.Instant;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.locks.ReentrantLock;
+
+/**
+ * Write-behind for inventory deltas. An adjustment is acknowledged once it is in the local log, deltas are
+ * coalesced per product in memory and a periodic flush applies them as one batched UPDATE per product,
+ * checkpointing the log in the same transaction. Each adjustment counts as a version, so a read that adds
+ * the pending deltas (applyPending) returns the same quantity and version before and after the flush.
+ * A delta that would take the quantity below zero is rejected when it is adjusted, not clamped later.
+ */
+@Component
+public class InventoryWriteBehind {
+    private static final Logger logger = LoggerFactory.getLogger(InventoryWriteBehind.class);
+    private static final String CHECKPOINT = "inventory";
+    // The floor only applies when a sale commits between the check in adjust and the flush
+    private static final String APPLY_DELTA =
+            "UPDATE product SET quantity = GREATEST(quantity + ?, 0), version = version + ? WHERE id = ?";
+    private static final int BATCH_SIZE = 500;
+
+    // Sum of the coalesced deltas of a product and how many adjustments they were
+    record Delta(long quantity, int count) {
+        Delta plus(Delta other) {
+            return new Delta(quantity + other.quantity, count + other.count);
+        }
+    }
+
+    // Deltas taken by a flush, appliedVersions holds the row versions the flush wrote
+    private static final class Batch {
+        private final Map<Integer, Delta> deltas;
+        private final long lastSequence;
+        private volatile Map<Integer, Long> appliedVersions = Map.of();
+        private volatile boolean committed;
+
+        private Batch(Map<Integer, Delta> deltas, long lastSequence) {
+            this.deltas = deltas;
+            this.lastSequence = lastSequence;
+        }
+    }
+
+    // Replaced as a whole when a flush takes the pending deltas, a reader never sees a delta twice
+    private record State(ConcurrentHashMap<Integer, Delta> pending, Batch flushing) {
+    }
+
+    private final InventoryLog log;
+    private final JdbcTemplate jdbcTemplate;
+    private final ProductRepo productRepo;
+    private final InventoryCheckpointRepo checkpointRepo;
+    private final TransactionTemplate transactionTemplate;
+    private final TaskScheduler taskScheduler;
+    private final ProductVersions productVersions;
+    private final int maxPending;
+    private final ReentrantLock appendLock = new ReentrantLock();
+    private final ReentrantLock flushLock = new ReentrantLock();
+    private final AtomicBoolean flushRequested = new AtomicBoolean();
+    private final Counter adjustments;
+    private final Counter dropped;
+    private final Timer flushes;
+    private volatile State state = new State(new ConcurrentHashMap<>(), null);
+    private volatile boolean recovered;
+
+    public InventoryWriteBehind(MyapiProperties properties, JdbcTemplate jdbcTemplate, ProductRepo productRepo,
+                                InventoryCheckpointRepo checkpointRepo, PlatformTransactionManager transactionManager,
+                                TaskScheduler taskScheduler, ProductVersions productVersions,
+                                MeterRegistry meterRegistry) throws IOException {
+        this.log = new InventoryLog(properties.getInventory().getLogDir());
+        this.jdbcTemplate = jdbcTemplate;
+        this.productRepo = productRepo;
+        this.checkpointRepo = checkpointRepo;
+        // Writes that flush first may already run in a transaction, the flush commits on its own
+        this.transactionTemplate = new TransactionTemplate(transactionManager);
+        this.transactionTemplate.setPropagationBehavior(TransactionDefinition.PROPAGATION_REQUIRES_NEW);
+        this.taskScheduler = taskScheduler;
+        this.productVersions = productVersions;
+        this.maxPending = properties.getInventory().getMaxPending();
+        this.adjustments = Counter.builder("inventory.adjustments")
+                .description("Inventory deltas accepted")
+                .register(meterRegistry);
+        this.dropped = Counter.builder("inventory.dropped")
+                .description("Coalesced inventory deltas dropped because the product no longer exists")
+                .register(meterRegistry);
+        this.flushes = Timer.builder("inventory.flush")
+                .description("Time to write pending inventory deltas to the database")
+                .register(meterRegistry);
+        Gauge.builder("inventory.pending", this, writeBehind -> writeBehind.state.pending().size())
+                .description("Products with inventory deltas not yet flushed")
+                .register(meterRegistry);
+    }
+
+    // Returns once the delta is durable in the log, the database is updated by a later flush.
+    // current is the product as read from the database, a delta taking it below zero with the pending ones is rejected
+    public void adjust(ProductResponseDto current, int delta) {
+        int productId = current.getId();
+        long sequence;
+        int pending;
+        appendLock.lock();
+        try {
+            if (delta < 0) {
+                // Nothing is appended while the lock is held, the pending deltas cannot change under the check
+                Delta unflushed = unflushed(current);
+                long quantity = current.getQuantity() + (unflushed != null ? unflushed.quantity() : 0);
+                if (quantity + delta < 0) {
+                    throw new InsufficientStockException("Only " + Math.max(0, quantity)
+                            + " units in stock for product with ID: " + productId);
+                }
+            }
+            sequence = log.append(productId, delta);
+            ConcurrentHashMap<Integer, Delta> deltas = state.pending();
+            deltas.merge(productId, new Delta(delta, 1), Delta::plus);
+            pending = deltas.size();
+        } catch (IOException e) {
+            throw new UncheckedIOException("Inventory log write failed", e);
+        } finally {
+            appendLock.unlock();
+        }
+        try {
+            log.sync(sequence);
+        } catch (IOException e) {
+            throw new UncheckedIOException("Inventory log sync failed", e);
+        }
+        adjustments.increment();
+        if (pending >= maxPending && flushRequested.compareAndSet(false, true)) {
+            taskScheduler.schedule(() -> {
+                flushRequested.set(false);
+                flush();
+            }, Instant.now());
+        }
+    }
+
+    // Adds the deltas that are not in the row the dto was read from yet
+    public void applyPending(ProductResponseDto productResponseDto) {
+        Delta delta = unflushed(productResponseDto);
+        if (delta != null) {
+            productResponseDto.setQuantity((int) Math.max(0, productResponseDto.getQuantity() + delta.quantity()));
+            if (productResponseDto.getVersion() != null) {
+                productResponseDto.setVersion(productResponseDto.getVersion() + delta.count());
+            }
+        }
+    }
+
+    private Delta unflushed(ProductResponseDto productResponseDto) {
+        State current = state;
+        int id = productResponseDto.getId();
+        Delta delta = current.pending().get(id);
+        Batch flushing = current.flushing();
+        Delta flushingDelta = flushing != null ? flushing.deltas.get(id) : null;
+        if (flushingDelta != null) {
+            // The flush adds the count to the version, a row read before it committed has a lower one
+            Long appliedVersion = flushing.appliedVersions.get(id);
+            if (appliedVersion == null || productResponseDto.getVersion() == null
+                    || productResponseDto.getVersion() < appliedVersion) {
+                delta = delta != null ? delta.plus(flushingDelta) : flushingDelta;
+            }
+        }
+        return delta;
+    }
+
+    // True while deltas of the product are not committed, other writes to it have to flush first to keep their order
+    public boolean hasPending(int productId) {
+        State current = state;
+        Batch flushing = current.flushing();
+        return current.pending().containsKey(productId)
+                || flushing != null && !flushing.committed && flushing.deltas.containsKey(productId);
+    }
+
+    public boolean hasPending() {
+        State current = state;
+        return !current.pending().isEmpty() || current.flushing() != null && !current.flushing().committed;
+    }
+
+    @EventListener(ApplicationReadyEvent.class)
+    public void recover() {
+        long checkpoint = checkpointRepo.findById(CHECKPOINT).map(InventoryCheckpoint::getLastSequence).orElse(0L);
+        int replayed = 0;
+        appendLock.lock();
+        try {
+            for (InventoryLog.Entry entry : log.takeRecovered()) {
+                // Entries at or below the checkpoint were flushed, their segment was not deleted yet
+                if (entry.sequence() > checkpoint) {
+                    state.pending().merge(entry.productId(), new Delta(entry.delta(), 1), Delta::plus);
+                    replayed++;
+                }
+            }
+        } finally {
+            appendLock.unlock();
+        }
+        recovered = true;
+        if (replayed > 0) {
+            logger.info("Replayed {} inventory adjustments from the log", replayed);
+        }
+        flush();
+    }
+
+    @Scheduled(initialDelayString = "${myapi.inventory.flush-interval}", fixedDelayString = "${myapi.inventory.flush-interval}")
+    public void flush() {
+        if (!recovered) {
+            return;
+        }
+        flushLock.lock();
+        try {
+            Batch batch = take();
+            if (batch == null) {
+                return;
+            }
+            long start = System.nanoTime();
+            try {
+                transactionTemplate.executeWithoutResult(status -> write(batch));
+            } catch (RuntimeException e) {
+                putBack(batch);
+                throw e;
+            }
+            batch.committed = true;
+            // Reads return the same either way, but read replicas have to catch up with the written rows
+            productVersions.advance();
+            flushes.record(System.nanoTime() - start, TimeUnit.NANOSECONDS);
+            try {
+                log.deleteThrough(batch.lastSequence);
+            } catch (IOException e) {
+                // Harmless, the entries are below the checkpoint and skipped on replay
+                logger.warn("Could not delete flushed inventory log segments: {}", e.getMessage());
+            }
+            logger.debug("Flushed inventory deltas of {} products", batch.deltas.size());
+        } finally {
+            flushLock.unlock();
+        }
+    }
+
+    @PreDestroy
+    public void close() throws IOException {
+        try {
+            flush();
+        } finally {
+            log.close();
+        }
+    }
+
+    private Batch take() {
+        appendLock.lock();
+        try {
+            State current = state;
+            if (current.pending().isEmpty()) {
+                return null;
+            }
+            long lastSequence = log.roll();
+            Batch batch = new Batch(Map.copyOf(current.pending()), lastSequence);
+            state = new State(new ConcurrentHashMap<>(), batch);
+            return batch;
+        } catch (IOException e) {
+            throw new UncheckedIOException("Inventory log roll failed", e);
+        } finally {
+            appendLock.unlock();
+        }
+    }
+
+    // A failed flush hands its deltas back, they are retried by the next one
+    private void putBack(Batch batch) {
+        appendLock.lock();
+        try {
+            ConcurrentHashMap<Integer, Delta> pending = new ConcurrentHashMap<>(batch.deltas);
+            state.pending().forEach((id, delta) -> pending.merge(id, delta, Delta::plus));
+            state = new State(pending, null);
+        } finally {
+            appendLock.unlock();
+        }
+    }
+
+    private void write(Batch batch) {
+        List<Map.Entry<Integer, Delta>> deltas = new ArrayList<>(batch.deltas.entrySet());
+        jdbcTemplate.batchUpdate(APPLY_DELTA, deltas, BATCH_SIZE, (statement, entry) -> {
+            statement.setLong(1, entry.getValue().quantity());
+            statement.setInt(2, entry.getValue().count());
+            statement.setInt(3, entry.getKey());
+        });
+        Map<Integer, Long> versions = new HashMap<>(deltas.size() * 2);
+        List<Integer> ids = deltas.stream().map(Map.Entry::getKey).toList();
+        for (int from = 0; from < ids.size(); from += BATCH_SIZE) {
+            for (Object[] row : productRepo.findVersions(ids.subList(from, Math.min(from + BATCH_SIZE, ids.size())))) {
+                versions.put((Integer) row[0], (Long) row[1]);
+            }
+        }
+        if (versions.size() < deltas.size()) {
+            dropped.increment(deltas.size() - versions.size());
+            logger.warn("Dropped inventory deltas of {} products that no longer exist", deltas.size() - versions.size());
+        }
+        checkpointRepo.save(new InventoryCheckpoint(CHECKPOINT, batch.lastSequence));
+        // Set before the commit, concurrent reads still see the old rows with lower versions
+        batch.appliedVersions = versions;
+    }
+}
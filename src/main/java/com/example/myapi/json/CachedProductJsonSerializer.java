@@ -0,0 +1,75 @@
+package com.example.myapi.json;
+
+import com.example.myapi.dto.ProductResponseDto;
+import com.fasterxml.jackson.core.JsonEncoding;
+import com.fasterxml.jackson.core.JsonFactory;
+import com.fasterxml.jackson.core.JsonGenerator;
+import com.fasterxml.jackson.core.json.JsonGeneratorImpl;
+import com.fasterxml.jackson.core.util.ByteArrayBuilder;
+import com.fasterxml.jackson.databind.BeanProperty;
+import com.fasterxml.jackson.databind.JsonMappingException;
+import com.fasterxml.jackson.databind.JsonSerializer;
+import com.fasterxml.jackson.databind.SerializerProvider;
+import com.fasterxml.jackson.databind.ser.ContextualSerializer;
+import com.fasterxml.jackson.databind.ser.ResolvableSerializer;
+import com.fasterxml.jackson.databind.ser.std.StdSerializer;
+
+import java.io.IOException;
+
+/**
+ * Writes ProductResponseDto from ProductJsonCache, encoding it with the regular bean serializer
+ * only on a miss. Non JSON and pretty printing generators and products without a version always use
+ * the bean serializer.
+ */
+public class CachedProductJsonSerializer extends StdSerializer<ProductResponseDto>
+        implements ResolvableSerializer, ContextualSerializer {
+    private static final JsonFactory FRAGMENT_FACTORY = new JsonFactory();
+
+    private final JsonSerializer<Object> beanSerializer;
+    private final ProductJsonCache productJsonCache;
+
+    @SuppressWarnings("unchecked")
+    public CachedProductJsonSerializer(JsonSerializer<?> beanSerializer, ProductJsonCache productJsonCache) {
+        super(ProductResponseDto.class);
+        this.beanSerializer = (JsonSerializer<Object>) beanSerializer;
+        this.productJsonCache = productJsonCache;
+    }
+
+    @Override
+    public void resolve(SerializerProvider provider) throws JsonMappingException {
+        if (beanSerializer instanceof ResolvableSerializer resolvable) {
+            resolvable.resolve(provider);
+        }
+    }
+
+    @Override
+    public JsonSerializer<?> createContextual(SerializerProvider provider, BeanProperty property) throws JsonMappingException {
+        JsonSerializer<?> contextual = provider.handleSecondaryContextualization(beanSerializer, property);
+        return contextual == beanSerializer ? this : new CachedProductJsonSerializer(contextual, productJsonCache);
+    }
+
+    @Override
+    public void serialize(ProductResponseDto product, JsonGenerator generator, SerializerProvider provider) throws IOException {
+        // Entries are keyed by version, a product without one cannot be cached
+        if (!(generator instanceof JsonGeneratorImpl) || generator.getPrettyPrinter() != null || product.getVersion() == null
+                || Boolean.TRUE.equals(provider.getAttribute(ProductJsonCache.BYPASS))) {
+            beanSerializer.serialize(product, generator, provider);
+            return;
+        }
+        RawJson json = productJsonCache.get(product.getId(), product.getVersion());
+        if (json == null) {
+            json = encode(product, provider);
+            productJsonCache.put(product.getId(), product.getVersion(), json);
+        }
+        generator.writeRawValue(json);
+    }
+
+    private RawJson encode(ProductResponseDto product, SerializerProvider provider) throws IOException {
+        try (ByteArrayBuilder bytes = new ByteArrayBuilder(512);
+             JsonGenerator fragment = FRAGMENT_FACTORY.createGenerator(bytes, JsonEncoding.UTF8)) {
+            beanSerializer.serialize(product, fragment, provider);
+            fragment.flush();
+            return new RawJson(bytes.toByteArray());
+        }
+    }
+}
@@ -0,0 +1,55 @@
+package com.example.myapi.json;
+
+import com.example.myapi.config.MyapiProperties;
+import com.example.myapi.event.ProductChangeEvent;
+import com.github.benmanes.caffeine.cache.Cache;
+import com.github.benmanes.caffeine.cache.Caffeine;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.binder.cache.CaffeineCacheMetrics;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.event.TransactionalEventListener;
+
+/**
+ * Encoded JSON of recently served products, keyed by id and tagged with the version it was encoded at.
+ * Every write bumps the version, so an entry for an older version is never served; change events
+ * drop entries eagerly to free the memory.
+ */
+@Component
+public class ProductJsonCache {
+    // Set as an ObjectWriter attribute to encode without consulting or filling the cache, e.g. for the full export
+    public static final String BYPASS = ProductJsonCache.class.getName() + ".bypass";
+
+    private final Cache<Integer, Entry> entries;
+
+    private record Entry(long version, RawJson json) {
+    }
+
+    public ProductJsonCache(MyapiProperties properties, MeterRegistry meterRegistry) {
+        this.entries = Caffeine.newBuilder()
+                .maximumSize(properties.getJsonCache().getMaximumSize())
+                .recordStats()
+                .build();
+        CaffeineCacheMetrics.monitor(meterRegistry, entries, "product.json");
+    }
+
+    // Null when the product is not cached at this version
+    public RawJson get(int id, long version) {
+        Entry entry = entries.getIfPresent(id);
+        return entry != null && entry.version() == version ? entry.json() : null;
+    }
+
+    public void put(int id, long version, RawJson json) {
+        // Never replace a newer version with an older one read by a slower request
+        entries.asMap().merge(id, new Entry(version, json),
+                (current, candidate) -> candidate.version() >= current.version() ? candidate : current);
+    }
+
+    public void invalidate(int id) {
+        entries.invalidate(id);
+    }
+
+    @TransactionalEventListener(fallbackExecution = true)
+    public void onProductChange(ProductChangeEvent event) {
+        invalidate(event.getProductId());
+    }
+}
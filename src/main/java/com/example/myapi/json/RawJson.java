@@ -0,0 +1,110 @@
+package com.example.myapi.json;
+
+import com.fasterxml.jackson.core.SerializableString;
+import com.fasterxml.jackson.core.io.SerializedString;
+
+import java.io.IOException;
+import java.io.OutputStream;
+import java.nio.ByteBuffer;
+import java.nio.charset.StandardCharsets;
+
+/**
+ * An already encoded JSON value as UTF-8 bytes, written verbatim through JsonGenerator.writeRawValue.
+ * UTF-8 generators copy the bytes straight into their output buffer, the char based methods decode on demand.
+ * The quoting methods escape the text as a JSON string, for writeString and writeFieldName.
+ */
+public final class RawJson implements SerializableString {
+    private final byte[] utf8;
+
+    public RawJson(byte[] utf8) {
+        this.utf8 = utf8;
+    }
+
+    public int byteLength() {
+        return utf8.length;
+    }
+
+    @Override
+    public String getValue() {
+        return new String(utf8, StandardCharsets.UTF_8);
+    }
+
+    @Override
+    public int charLength() {
+        return getValue().length();
+    }
+
+    @Override
+    public byte[] asUnquotedUTF8() {
+        return utf8;
+    }
+
+    @Override
+    public int appendUnquotedUTF8(byte[] buffer, int offset) {
+        if (offset + utf8.length > buffer.length) {
+            return -1;
+        }
+        System.arraycopy(utf8, 0, buffer, offset, utf8.length);
+        return utf8.length;
+    }
+
+    @Override
+    public int appendUnquoted(char[] buffer, int offset) {
+        String value = getValue();
+        if (offset + value.length() > buffer.length) {
+            return -1;
+        }
+        value.getChars(0, value.length(), buffer, offset);
+        return value.length();
+    }
+
+    @Override
+    public int writeUnquotedUTF8(OutputStream out) throws IOException {
+        out.write(utf8);
+        return utf8.length;
+    }
+
+    @Override
+    public int putUnquotedUTF8(ByteBuffer buffer) {
+        if (buffer.remaining() < utf8.length) {
+            return -1;
+        }
+        buffer.put(utf8);
+        return utf8.length;
+    }
+
+    // Writing it as a string value escapes the text, as SerializedString does
+    @Override
+    public char[] asQuotedChars() {
+        return asString().asQuotedChars();
+    }
+
+    @Override
+    public byte[] asQuotedUTF8() {
+        return asString().asQuotedUTF8();
+    }
+
+    @Override
+    public int appendQuotedUTF8(byte[] buffer, int offset) {
+        return asString().appendQuotedUTF8(buffer, offset);
+    }
+
+    @Override
+    public int appendQuoted(char[] buffer, int offset) {
+        return asString().appendQuoted(buffer, offset);
+    }
+
+    @Override
+    public int writeQuotedUTF8(OutputStream out) throws IOException {
+        return asString().writeQuotedUTF8(out);
+    }
+
+    @Override
+    public int putQuotedUTF8(ByteBuffer buffer) {
+        return asString().putQuotedUTF8(buffer);
+    }
+
+    private SerializedString asString() {
+        return new SerializedString(getValue());
+    }
+}
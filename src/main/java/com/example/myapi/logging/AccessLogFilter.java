@@ -0,0 +1,42 @@
+package com.example.myapi.logging;
+
+import com.example.myapi.config.MyapiProperties;
+import jakarta.servlet.FilterChain;
+import jakarta.servlet.ServletException;
+import jakarta.servlet.http.HttpServletRequest;
+import jakarta.servlet.http.HttpServletResponse;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.stereotype.Component;
+import org.springframework.web.filter.OncePerRequestFilter;
+
+import java.io.IOException;
+import java.util.concurrent.ThreadLocalRandom;
+
+// Sampled structured access log, server errors and slow requests are always logged
+@Component
+public class AccessLogFilter extends OncePerRequestFilter {
+    private static final Logger accessLogger = LoggerFactory.getLogger("access");
+    private final MyapiProperties.AccessLog properties;
+
+    public AccessLogFilter(MyapiProperties properties) {
+        this.properties = properties.getAccessLog();
+    }
+
+    @Override
+    protected void doFilterInternal(HttpServletRequest request, HttpServletResponse response, FilterChain filterChain)
+            throws ServletException, IOException {
+        long start = System.nanoTime();
+        try {
+            filterChain.doFilter(request, response);
+        } finally {
+            long durationMillis = (System.nanoTime() - start) / 1_000_000;
+            int status = response.getStatus();
+            if (status >= 500 || durationMillis >= properties.getSlowThresholdMillis()
+                    || ThreadLocalRandom.current().nextDouble() < properties.getSampleRate()) {
+                accessLogger.info("method={} uri={} query={} status={} durationMs={}",
+                        request.getMethod(), request.getRequestURI(), request.getQueryString(), status, durationMillis);
+            }
+        }
+    }
+}
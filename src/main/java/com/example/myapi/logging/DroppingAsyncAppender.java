@@ -0,0 +1,60 @@
+package com.example.myapi.logging;
+
+import ch.qos.logback.classic.AsyncAppender;
+import ch.qos.logback.classic.Level;
+import ch.qos.logback.classic.LoggerContext;
+import ch.qos.logback.classic.spi.ILoggingEvent;
+import ch.qos.logback.classic.spi.LoggingEvent;
+
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * Bounded, non-blocking async appender. Events that do not fit in the ring buffer are dropped
+ * instead of stalling the request thread, and a single WARN line summarizes how many were lost.
+ */
+public class DroppingAsyncAppender extends AsyncAppender {
+    private final LongAdder dropped = new LongAdder();
+    private final AtomicLong lastSummary = new AtomicLong();
+    private long summaryIntervalMillis = 10_000;
+
+    public DroppingAsyncAppender() {
+        setNeverBlock(true);
+        setIncludeCallerData(false);
+    }
+
+    public void setSummaryIntervalMillis(long summaryIntervalMillis) {
+        this.summaryIntervalMillis = summaryIntervalMillis;
+    }
+
+    @Override
+    protected void append(ILoggingEvent eventObject) {
+        int remaining = getRemainingCapacity();
+        // Same conditions AsyncAppenderBase uses to discard, checked up front so drops can be counted
+        if (remaining == 0 || (remaining < getDiscardingThreshold() && isDiscardable(eventObject))) {
+            dropped.increment();
+        }
+        super.append(eventObject);
+        summarizeDrops(false);
+    }
+
+    @Override
+    public void stop() {
+        summarizeDrops(true);
+        super.stop();
+    }
+
+    private void summarizeDrops(boolean force) {
+        long now = System.currentTimeMillis();
+        long last = lastSummary.get();
+        if ((!force && now - last < summaryIntervalMillis) || dropped.sum() == 0 || !lastSummary.compareAndSet(last, now)) {
+            return;
+        }
+        long count = dropped.sumThenReset();
+        LoggerContext loggerContext = (LoggerContext) getContext();
+        LoggingEvent summary = new LoggingEvent(DroppingAsyncAppender.class.getName(),
+                loggerContext.getLogger(DroppingAsyncAppender.class), Level.WARN,
+                "Log queue full, dropped {} events", null, new Object[]{count});
+        super.append(summary);
+    }
+}
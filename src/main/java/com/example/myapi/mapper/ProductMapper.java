@@ -5,6 +5,7 @@ import com.example.myapi.dto.ProductResponseDto;
 import com.example.myapi.dto.ProductUpdateDto;
 import com.example.myapi.model.Product;
 import org.mapstruct.Mapper;
+import org.mapstruct.Mapping;
 import org.mapstruct.MappingTarget;
 import org.mapstruct.factory.Mappers;
 
@@ -12,8 +13,21 @@ import org.mapstruct.factory.Mappers;
 public interface ProductMapper {
     ProductMapper INSTANCE = Mappers.getMapper(ProductMapper.class);
 
+    // The *_norm columns are derived from name, brand and category by the entity before it is written
+    @Mapping(target = "version", ignore = true)
+    @Mapping(target = "nameNorm", ignore = true)
+    @Mapping(target = "brandNorm", ignore = true)
+    @Mapping(target = "categoryNorm", ignore = true)
     Product toEntityFromCreateDto(ProductCreateDto dto);
+    @Mapping(target = "nameNorm", ignore = true)
+    @Mapping(target = "brandNorm", ignore = true)
+    @Mapping(target = "categoryNorm", ignore = true)
     Product toEntityFromUpdateDto(ProductUpdateDto dto);
+    // The version is owned by Hibernate, the expected version from the dto is checked by the service
+    @Mapping(target = "version", ignore = true)
+    @Mapping(target = "nameNorm", ignore = true)
+    @Mapping(target = "brandNorm", ignore = true)
+    @Mapping(target = "categoryNorm", ignore = true)
     Product updateProductFromUpdateDto(ProductUpdateDto dto, @MappingTarget Product product);
 
     ProductCreateDto toCreateDto(Product product);
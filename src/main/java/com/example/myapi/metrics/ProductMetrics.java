@@ -0,0 +1,56 @@
+package com.example.myapi.metrics;
+
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.DistributionSummary;
+import io.micrometer.core.instrument.MeterRegistry;
+import org.springframework.stereotype.Component;
+
+// Pre-registered product meters, the hot path only increments them
+@Component
+public class ProductMetrics {
+    private final DistributionSummary searchScanned;
+    private final DistributionSummary searchMatched;
+    private final DistributionSummary searchReturned;
+    private final DistributionSummary filterFetched;
+    private final DistributionSummary filterReturned;
+    private final MeterRegistry meterRegistry;
+
+    public ProductMetrics(MeterRegistry meterRegistry) {
+        this.meterRegistry = meterRegistry;
+        this.searchScanned = rows("search", "scanned");
+        this.searchMatched = rows("search", "matched");
+        this.searchReturned = rows("search", "returned");
+        this.filterFetched = rows("filter", "fetched");
+        this.filterReturned = rows("filter", "returned");
+    }
+
+    // scanned: index postings visited, matched: total hits of the query, returned: rows in the response page
+    public void recordSearch(long scanned, long matched, long returned) {
+        searchScanned.record(scanned);
+        searchMatched.record(matched);
+        searchReturned.record(returned);
+    }
+
+    // fetched: rows the page query read from the database, returned: rows in the response page.
+    // Totals may come from the count cache or an estimate, they say nothing about the work of a request
+    public void recordFilter(long fetched, long returned) {
+        filterFetched.record(fetched);
+        filterReturned.record(returned);
+    }
+
+    public Counter exceptionCounter(String type) {
+        return Counter.builder("product.exceptions")
+                .description("Exceptions handled by GlobalExceptionHandler")
+                .tag("type", type)
+                .register(meterRegistry);
+    }
+
+    private DistributionSummary rows(String query, String kind) {
+        return DistributionSummary.builder("product.query.rows")
+                .description("Rows scanned, matched, fetched and returned per product query")
+                .tag("query", query)
+                .tag("kind", kind)
+                .publishPercentiles(0.5, 0.99)
+                .register(meterRegistry);
+    }
+}
@@ -0,0 +1,90 @@
+package com.example.myapi.metrics;
+
+import io.micrometer.core.instrument.DistributionSummary;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.Timer;
+import jakarta.servlet.ServletException;
+import org.apache.catalina.AccessLog;
+import org.apache.catalina.connector.Request;
+import org.apache.catalina.connector.Response;
+import org.apache.catalina.valves.ValveBase;
+import org.springframework.web.servlet.HandlerMapping;
+
+import java.io.IOException;
+import java.lang.management.ManagementFactory;
+import java.lang.management.ThreadMXBean;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Records bytes on the wire and request thread CPU time per URI pattern and content encoding.
+ * Runs as a Tomcat access log, after the response is finished, so the byte count is the size after compression.
+ * CPU time covers the request thread only, async continuations such as the export stream are not included.
+ * It is not recorded at all for requests on virtual threads, the JVM does not measure their CPU time.
+ */
+public class ResponseMetricsValve extends ValveBase implements AccessLog {
+    private static final String CPU_NANOS_ATTRIBUTE = ResponseMetricsValve.class.getName() + ".cpuNanos";
+    private static final ThreadMXBean THREADS = ManagementFactory.getThreadMXBean();
+
+    private final MeterRegistry meterRegistry;
+    private final Map<String, DistributionSummary> bytes = new ConcurrentHashMap<>();
+    private final Map<String, Timer> cpu = new ConcurrentHashMap<>();
+    private boolean requestAttributesEnabled;
+
+    public ResponseMetricsValve(MeterRegistry meterRegistry) {
+        super(true);
+        this.meterRegistry = meterRegistry;
+    }
+
+    @Override
+    public void invoke(Request request, Response response) throws IOException, ServletException {
+        // -1 when CPU time is not measured for this thread, always the case for virtual threads
+        long start = THREADS.getCurrentThreadCpuTime();
+        try {
+            getNext().invoke(request, response);
+        } finally {
+            long end = THREADS.getCurrentThreadCpuTime();
+            if (start >= 0 && end >= 0) {
+                request.setAttribute(CPU_NANOS_ATTRIBUTE, end - start);
+            }
+        }
+    }
+
+    @Override
+    public void log(Request request, Response response, long time) {
+        if (!request.getRequestURI().startsWith("/api/")) {
+            return;
+        }
+        Object pattern = request.getAttribute(HandlerMapping.BEST_MATCHING_PATTERN_ATTRIBUTE);
+        String uri = pattern != null ? pattern.toString() : "UNKNOWN";
+        String contentEncoding = response.getHeader("Content-Encoding");
+        String encoding = contentEncoding != null ? contentEncoding : "identity";
+        bytes.computeIfAbsent(uri + ' ' + encoding, key -> DistributionSummary.builder("http.server.response.bytes")
+                        .description("Response body bytes sent, after compression")
+                        .baseUnit("bytes")
+                        .tag("uri", uri)
+                        .tag("encoding", encoding)
+                        .publishPercentiles(0.5, 0.99)
+                        .register(meterRegistry))
+                .record(response.getBytesWritten(false));
+        if (request.getAttribute(CPU_NANOS_ATTRIBUTE) instanceof Long cpuNanos) {
+            cpu.computeIfAbsent(uri, key -> Timer.builder("http.server.request.cpu")
+                            .description("CPU time of the request thread, including serialization and compression")
+                            .tag("uri", key)
+                            .publishPercentiles(0.5, 0.99)
+                            .register(meterRegistry))
+                    .record(cpuNanos, TimeUnit.NANOSECONDS);
+        }
+    }
+
+    @Override
+    public void setRequestAttributesEnabled(boolean requestAttributesEnabled) {
+        this.requestAttributesEnabled = requestAttributesEnabled;
+    }
+
+    @Override
+    public boolean getRequestAttributesEnabled() {
+        return requestAttributesEnabled;
+    }
+}
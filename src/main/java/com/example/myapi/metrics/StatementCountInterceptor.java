@@ -0,0 +1,57 @@
+package com.example.myapi.metrics;
+
+import io.micrometer.core.instrument.DistributionSummary;
+import io.micrometer.core.instrument.MeterRegistry;
+import jakarta.servlet.http.HttpServletRequest;
+import jakarta.servlet.http.HttpServletResponse;
+import org.springframework.web.context.request.NativeWebRequest;
+import org.springframework.web.context.request.RequestAttributes;
+import org.springframework.web.context.request.async.CallableProcessingInterceptor;
+import org.springframework.web.servlet.HandlerInterceptor;
+import org.springframework.web.servlet.HandlerMapping;
+
+import java.util.Map;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ConcurrentHashMap;
+
+// Records how many SQL statements each request executed, tagged by the matched URI pattern
+public class StatementCountInterceptor implements HandlerInterceptor, CallableProcessingInterceptor {
+    // Statements of a Callable handler run on a task executor thread, they are counted there and handed over
+    private static final String ASYNC_COUNT_ATTRIBUTE = StatementCountInterceptor.class.getName() + ".asyncCount";
+    private final MeterRegistry meterRegistry;
+    // Summaries are looked up once per pattern, not rebuilt on every request
+    private final Map<String, DistributionSummary> summaries = new ConcurrentHashMap<>();
+
+    public StatementCountInterceptor(MeterRegistry meterRegistry) {
+        this.meterRegistry = meterRegistry;
+    }
+
+    @Override
+    public boolean preHandle(HttpServletRequest request, HttpServletResponse response, Object handler) {
+        StatementCountingInspector.reset();
+        return true;
+    }
+
+    @Override
+    public <T> void preProcess(NativeWebRequest request, Callable<T> task) {
+        StatementCountingInspector.reset();
+    }
+
+    @Override
+    public <T> void postProcess(NativeWebRequest request, Callable<T> task, Object concurrentResult) {
+        request.setAttribute(ASYNC_COUNT_ATTRIBUTE, StatementCountingInspector.count(), RequestAttributes.SCOPE_REQUEST);
+    }
+
+    @Override
+    public void afterCompletion(HttpServletRequest request, HttpServletResponse response, Object handler, Exception ex) {
+        Object pattern = request.getAttribute(HandlerMapping.BEST_MATCHING_PATTERN_ATTRIBUTE);
+        String uri = pattern != null ? pattern.toString() : "UNKNOWN";
+        summaries.computeIfAbsent(uri, key -> DistributionSummary.builder("hibernate.statements.per.request")
+                        .description("SQL statements executed while handling one request")
+                        .tag("uri", key)
+                        .publishPercentiles(0.5, 0.99)
+                        .register(meterRegistry))
+                .record(StatementCountingInspector.count()
+                        + (request.getAttribute(ASYNC_COUNT_ATTRIBUTE) instanceof Integer asyncCount ? asyncCount : 0));
+    }
+}
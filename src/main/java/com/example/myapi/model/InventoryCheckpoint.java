@@ -0,0 +1,18 @@
+package com.example.myapi.model;
+
+import jakarta.persistence.Entity;
+import jakarta.persistence.Id;
+import lombok.AllArgsConstructor;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+// Last inventory log sequence applied to the product table, written in the same transaction as the deltas
+@Data
+@AllArgsConstructor
+@NoArgsConstructor
+@Entity
+public class InventoryCheckpoint {
+    @Id
+    private String name;
+    private long lastSequence;
+}
@@ -1,23 +1,39 @@
 package com.example.myapi.model;
 
 import com.fasterxml.jackson.annotation.JsonFormat;
+import jakarta.persistence.Column;
 import jakarta.persistence.Entity;
 import jakarta.persistence.GeneratedValue;
 import jakarta.persistence.GenerationType;
 import jakarta.persistence.Id;
+import jakarta.persistence.Index;
+import jakarta.persistence.PrePersist;
+import jakarta.persistence.PreUpdate;
+import jakarta.persistence.SequenceGenerator;
+import jakarta.persistence.Table;
+import jakarta.persistence.Version;
 import lombok.*;
 
 import java.math.BigDecimal;
 import java.util.Date;
+import java.util.Locale;
 
 @Data
 @AllArgsConstructor
 @NoArgsConstructor
 @Builder
 @Entity
+// Secondary indexes on the normalized columns serve exact and prefix filters without a table scan
+@Table(indexes = {
+        @Index(name = "idx_product_name_norm", columnList = "name_norm"),
+        @Index(name = "idx_product_category_norm_name_norm", columnList = "category_norm, name_norm"),
+        @Index(name = "idx_product_brand_norm", columnList = "brand_norm")
+})
 public class Product {
     @Id
-    @GeneratedValue(strategy = GenerationType.IDENTITY)
+    // Pooled sequence instead of IDENTITY so Hibernate can batch inserts
+    @GeneratedValue(strategy = GenerationType.SEQUENCE, generator = "product_seq")
+    @SequenceGenerator(name = "product_seq", sequenceName = "product_seq", allocationSize = 50)
     private Integer id;
     private String name;
     private String desc;
@@ -28,5 +44,28 @@ public class Product {
     private Date releaseDate;
     private boolean available;
     private int quantity;
+    // Optimistic locking, incremented on every update
+    @Version
+    private Long version;
 
+    // Lower-cased shadow copies of the searchable columns, maintained on every write
+    @Column(name = "name_norm")
+    private String nameNorm;
+    @Column(name = "brand_norm")
+    private String brandNorm;
+    @Column(name = "category_norm")
+    private String categoryNorm;
+
+    @PrePersist
+    @PreUpdate
+    void normalizeSearchColumns() {
+        nameNorm = normalize(name);
+        brandNorm = normalize(brand);
+        categoryNorm = normalize(category);
+    }
+
+    // Form stored in the *_norm columns, filter input must be normalized the same way
+    public static String normalize(String value) {
+        return value == null ? null : value.trim().toLowerCase(Locale.ROOT);
+    }
 }
@@ -0,0 +1,72 @@
+package com.example.myapi.replica;
+
+import jakarta.servlet.FilterChain;
+import jakarta.servlet.ServletException;
+import jakarta.servlet.http.Cookie;
+import jakarta.servlet.http.HttpServletRequest;
+import jakarta.servlet.http.HttpServletResponse;
+import org.springframework.http.HttpMethod;
+import org.springframework.web.filter.OncePerRequestFilter;
+
+import java.io.IOException;
+import java.time.Duration;
+
+// Requests of a client that has written in the last sticky-for read from the primary, remembered in a cookie
+public class ReadYourWritesFilter extends OncePerRequestFilter {
+    static final String COOKIE = "myapi-primary-until";
+    private static final ThreadLocal<Boolean> PRIMARY = new ThreadLocal<>();
+
+    private final Duration stickyFor;
+
+    public ReadYourWritesFilter(Duration stickyFor) {
+        this.stickyFor = stickyFor;
+    }
+
+    // Only set on the request thread, reads completed on another thread use the replicas
+    public static boolean primaryRequired() {
+        return PRIMARY.get() != null;
+    }
+
+    @Override
+    protected void doFilterInternal(HttpServletRequest request, HttpServletResponse response, FilterChain filterChain)
+            throws ServletException, IOException {
+        long now = System.currentTimeMillis();
+        boolean write = !HttpMethod.GET.matches(request.getMethod()) && !HttpMethod.HEAD.matches(request.getMethod())
+                && !HttpMethod.OPTIONS.matches(request.getMethod());
+        if (write) {
+            // Set before the write, the response may be committed by the time it returns
+            Cookie cookie = new Cookie(COOKIE, Long.toString(now + stickyFor.toMillis()));
+            cookie.setMaxAge((int) Math.max(1, stickyFor.toSeconds()));
+            cookie.setPath("/");
+            cookie.setHttpOnly(true);
+            response.addCookie(cookie);
+        }
+        if (!write && !recentlyWritten(request, now)) {
+            filterChain.doFilter(request, response);
+            return;
+        }
+        PRIMARY.set(Boolean.TRUE);
+        try {
+            filterChain.doFilter(request, response);
+        } finally {
+            PRIMARY.remove();
+        }
+    }
+
+    private static boolean recentlyWritten(HttpServletRequest request, long now) {
+        Cookie[] cookies = request.getCookies();
+        if (cookies == null) {
+            return false;
+        }
+        for (Cookie cookie : cookies) {
+            if (COOKIE.equals(cookie.getName())) {
+                try {
+                    return Long.parseLong(cookie.getValue()) > now;
+                } catch (NumberFormatException e) {
+                    return false;
+                }
+            }
+        }
+        return false;
+    }
+}
@@ -0,0 +1,194 @@
+package com.example.myapi.replica;
+
+import com.example.myapi.config.MyapiProperties;
+import com.example.myapi.etag.ProductVersions;
+import com.zaxxer.hikari.HikariConfig;
+import com.zaxxer.hikari.HikariDataSource;
+import com.zaxxer.hikari.metrics.micrometer.MicrometerMetricsTrackerFactory;
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.DisposableBean;
+import org.springframework.boot.actuate.health.Health;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.jdbc.datasource.AbstractDataSource;
+import org.springframework.scheduling.annotation.Scheduled;
+
+import javax.sql.DataSource;
+import java.sql.Connection;
+import java.sql.SQLException;
+import java.sql.SQLFeatureNotSupportedException;
+import java.util.ArrayList;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * Connections for read-only transactions, handed out round robin from the replicas that are up and have caught
+ * up with the primary. The primary writes a heartbeat with the current catalog generation, a replica has caught
+ * up once it has replicated the heartbeat of the current generation: every change committed by the application
+ * is visible on it, so the generation keyed caches and ETags stay correct. Replicas whose heartbeat is older
+ * than the maximum lag are skipped as well, they miss writes made by other instances. Without an eligible
+ * replica, and for clients that have just written (ReadYourWritesFilter), connections come from the primary.
+ */
+public class ReplicaDataSource extends AbstractDataSource implements DisposableBean {
+    private static final Logger logger = LoggerFactory.getLogger(ReplicaDataSource.class);
+    private static final String CREATE_HEARTBEAT = "CREATE TABLE IF NOT EXISTS replica_heartbeat "
+            + "(id INT PRIMARY KEY, beat_at BIGINT NOT NULL, generation BIGINT NOT NULL)";
+    private static final String BEAT = "UPDATE replica_heartbeat SET beat_at = ?, generation = ? WHERE id = 1";
+    private static final String FIRST_BEAT = "INSERT INTO replica_heartbeat (id, beat_at, generation) VALUES (1, ?, ?)";
+    private static final String READ_BEAT = "SELECT beat_at, generation FROM replica_heartbeat WHERE id = 1";
+
+    static final class Replica {
+        private final String name;
+        private final HikariDataSource dataSource;
+        private final JdbcTemplate jdbcTemplate;
+        private final Counter connections;
+        private volatile boolean up;
+        // Generation and age of the heartbeat last read from the replica
+        private volatile long generation = Long.MIN_VALUE;
+        private volatile long lagMillis = Long.MAX_VALUE;
+
+        private Replica(String name, HikariDataSource dataSource, Counter connections) {
+            this.name = name;
+            this.dataSource = dataSource;
+            this.jdbcTemplate = new JdbcTemplate(dataSource);
+            this.connections = connections;
+        }
+    }
+
+    private final JdbcTemplate primary;
+    private final DataSource primaryDataSource;
+    private final List<Replica> replicas = new ArrayList<>();
+    private final ProductVersions productVersions;
+    private final long maxLagMillis;
+    private final AtomicInteger next = new AtomicInteger();
+    private final Counter primaryConnections;
+
+    public ReplicaDataSource(DataSource primaryDataSource, MyapiProperties.Replicas settings,
+                             ProductVersions productVersions, MeterRegistry meterRegistry) {
+        this.primaryDataSource = primaryDataSource;
+        this.primary = new JdbcTemplate(primaryDataSource);
+        this.productVersions = productVersions;
+        this.maxLagMillis = settings.getMaxLag().toMillis();
+        this.primaryConnections = connectionCounter("primary", meterRegistry);
+        List<MyapiProperties.Replicas.Instance> instances = settings.getInstances();
+        for (int i = 0; i < instances.size(); i++) {
+            String name = "replica-" + (i + 1);
+            HikariConfig config = new HikariConfig();
+            config.setPoolName(name);
+            config.setJdbcUrl(instances.get(i).getUrl());
+            config.setUsername(instances.get(i).getUsername());
+            config.setPassword(instances.get(i).getPassword());
+            config.setReadOnly(true);
+            config.setMaximumPoolSize(settings.getPoolSize());
+            config.setConnectionTimeout(settings.getConnectionTimeout().toMillis());
+            // A replica that is down at startup must not keep the application from starting
+            config.setInitializationFailTimeout(-1);
+            config.setMetricsTrackerFactory(new MicrometerMetricsTrackerFactory(meterRegistry));
+            Replica replica = new Replica(name, new HikariDataSource(config), connectionCounter(name, meterRegistry));
+            Gauge.builder("replica.lag", replica, r -> r.up ? r.lagMillis / 1000.0 : Double.NaN)
+                    .description("Age of the heartbeat last read from the replica")
+                    .baseUnit("seconds")
+                    .tag("replica", name)
+                    .register(meterRegistry);
+            Gauge.builder("replica.up", replica, r -> r.up ? 1 : 0)
+                    .tag("replica", name)
+                    .register(meterRegistry);
+            replicas.add(replica);
+        }
+        primary.execute(CREATE_HEARTBEAT);
+    }
+
+    @Override
+    public Connection getConnection() throws SQLException {
+        if (!ReadYourWritesFilter.primaryRequired()) {
+            long generation = productVersions.generation();
+            int start = next.getAndIncrement();
+            for (int i = 0; i < replicas.size(); i++) {
+                Replica replica = replicas.get(Math.floorMod(start + i, replicas.size()));
+                if (replica.up && replica.generation >= generation && replica.lagMillis <= maxLagMillis) {
+                    try {
+                        Connection connection = replica.dataSource.getConnection();
+                        replica.connections.increment();
+                        return connection;
+                    } catch (SQLException e) {
+                        // Taken out until the next check finds it up again
+                        replica.up = false;
+                        logger.warn("Replica {} is down: {}", replica.name, e.getMessage());
+                    }
+                }
+            }
+        }
+        primaryConnections.increment();
+        return primaryDataSource.getConnection();
+    }
+
+    // Replica credentials are configured per instance and the primary Hikari pool rejects this overload as well
+    @Override
+    public Connection getConnection(String username, String password) throws SQLException {
+        throw new SQLFeatureNotSupportedException("Connections for explicit credentials are not supported");
+    }
+
+    // Writes a heartbeat to the primary, then reads the heartbeat every replica has replicated
+    @Scheduled(fixedDelayString = "${myapi.replicas.check-interval}")
+    public void check() {
+        // Read before the heartbeat is written: every change up to it has been committed already
+        long generation = productVersions.generation();
+        long beatAt = System.currentTimeMillis();
+        try {
+            if (primary.update(BEAT, beatAt, generation) == 0) {
+                primary.update(FIRST_BEAT, beatAt, generation);
+            }
+        } catch (RuntimeException e) {
+            logger.warn("Could not write the replica heartbeat: {}", e.getMessage());
+            return;
+        }
+        for (Replica replica : replicas) {
+            try {
+                // Empty until the first heartbeat has been replicated
+                List<long[]> beats = replica.jdbcTemplate.query(READ_BEAT, (rs, row) -> new long[]{rs.getLong(1), rs.getLong(2)});
+                replica.generation = beats.isEmpty() ? Long.MIN_VALUE : beats.get(0)[1];
+                replica.lagMillis = beats.isEmpty() ? Long.MAX_VALUE : beatAt - beats.get(0)[0];
+                if (!replica.up) {
+                    logger.info("Replica {} is up", replica.name);
+                }
+                replica.up = true;
+            } catch (RuntimeException e) {
+                if (replica.up) {
+                    logger.warn("Replica {} is down: {}", replica.name, e.getMessage());
+                }
+                replica.up = false;
+            }
+        }
+    }
+
+    public Health health() {
+        Map<String, Object> details = new LinkedHashMap<>();
+        long generation = productVersions.generation();
+        for (Replica replica : replicas) {
+            Map<String, Object> state = new LinkedHashMap<>();
+            state.put("up", replica.up);
+            state.put("caughtUp", replica.generation >= generation);
+            state.put("lagMillis", replica.up ? replica.lagMillis : null);
+            details.put(replica.name, state);
+        }
+        // Reads fall back to the primary, replicas that are down do not make the application unhealthy
+        return Health.up().withDetails(details).build();
+    }
+
+    @Override
+    public void destroy() {
+        replicas.forEach(replica -> replica.dataSource.close());
+    }
+
+    private static Counter connectionCounter(String target, MeterRegistry meterRegistry) {
+        return Counter.builder("replica.connections")
+                .description("Connections handed out for read-only transactions")
+                .tag("target", target)
+                .register(meterRegistry);
+    }
+}
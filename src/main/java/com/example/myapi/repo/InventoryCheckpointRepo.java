@@ -0,0 +1,9 @@
+package com.example.myapi.repo;
+
+import com.example.myapi.model.InventoryCheckpoint;
+import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.stereotype.Repository;
+
+@Repository
+public interface InventoryCheckpointRepo extends JpaRepository<InventoryCheckpoint, String> {
+}
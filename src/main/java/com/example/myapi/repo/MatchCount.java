@@ -0,0 +1,5 @@
+package com.example.myapi.repo;
+
+// Number of products matching a filter, approximate when it was estimated instead of counted
+public record MatchCount(long value, boolean approximate) {
+}
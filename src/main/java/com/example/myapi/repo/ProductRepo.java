@@ -1,23 +1,96 @@
 package com.example.myapi.repo;
 
+import com.example.myapi.dto.ProductResponseDto;
 import com.example.myapi.model.Product;
+import jakarta.persistence.QueryHint;
+import org.hibernate.jpa.HibernateHints;
+import org.springframework.data.domain.Limit;
 import org.springframework.data.domain.Page;
 import org.springframework.data.domain.Pageable;
+import org.springframework.data.domain.Slice;
 import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Modifying;
 import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.jpa.repository.QueryHints;
 import org.springframework.stereotype.Repository;
 
+import java.math.BigDecimal;
+import java.util.Collection;
+import java.util.Date;
+import java.util.List;
+import java.util.Optional;
+import java.util.stream.Stream;
+
 @Repository
-public interface ProductRepo extends JpaRepository<Product, Integer> {
-    Page<Product> findByNameContainingIgnoreCaseAndCategoryContainingIgnoreCase(String name, String category, Pageable pageable);
-    Page<Product> findByNameContainingIgnoreCase(String name, Pageable pageable);
-    Page<Product> findByCategoryContainingIgnoreCase(String category, Pageable pageable);
+public interface ProductRepo extends JpaRepository<Product, Integer>, ProductRepoCustom {
+    // Read paths select straight into response dtos: no entity is hydrated, managed or snapshotted for dirty checking
+    String RESPONSE_DTO = "SELECT new com.example.myapi.dto.ProductResponseDto(p.id, p.name, p.desc, p.brand, p.price, " +
+        "p.category, p.releaseDate, p.available, p.quantity, p.version) FROM Product p ";
+
+    @Query(RESPONSE_DTO)
+    List<ProductResponseDto> findAllResponses();
+
+    @Query(RESPONSE_DTO + "WHERE p.id = :id")
+    Optional<ProductResponseDto> findResponseById(int id);
+
+    @Query(RESPONSE_DTO + "WHERE p.id IN :ids")
+    List<ProductResponseDto> findResponsesByIdIn(Collection<Integer> ids);
 
-    @Query("SELECT p FROM Product p WHERE " +
+    // Slices read one row past the page instead of running a count query, totals come from ProductRepoCustom
+    @Query(RESPONSE_DTO + "WHERE " +
         ":keyword is null OR "+
         "LOWER(p.name) LIKE LOWER(CONCAT('%', :keyword, '%')) OR " +
         "LOWER(p.desc) LIKE LOWER(CONCAT('%', :keyword, '%')) OR " +
         "LOWER(p.brand) LIKE LOWER(CONCAT('%', :keyword, '%')) OR " +
         "LOWER(p.category) LIKE LOWER(CONCAT('%', :keyword, '%')) ")
-    Page<Product> searchProducts(String keyword, Pageable pageable);
+    Slice<ProductResponseDto> searchProducts(String keyword, Pageable pageable);
+
+    // Keyset (seek) variants: continue after the last seen id instead of using OFFSET, no count query
+    @Query(RESPONSE_DTO + "WHERE p.id > :afterId AND " +
+        "(:name is null OR LOWER(p.name) LIKE LOWER(CONCAT('%', :name, '%'))) AND " +
+        "(:category is null OR LOWER(p.category) LIKE LOWER(CONCAT('%', :category, '%'))) " +
+        "ORDER BY p.id")
+    List<ProductResponseDto> filterProductsAfter(String name, String category, int afterId, Limit limit);
+
+    @Query(RESPONSE_DTO + "WHERE p.id > :afterId AND (" +
+        ":keyword is null OR "+
+        "LOWER(p.name) LIKE LOWER(CONCAT('%', :keyword, '%')) OR " +
+        "LOWER(p.desc) LIKE LOWER(CONCAT('%', :keyword, '%')) OR " +
+        "LOWER(p.brand) LIKE LOWER(CONCAT('%', :keyword, '%')) OR " +
+        "LOWER(p.category) LIKE LOWER(CONCAT('%', :keyword, '%'))) " +
+        "ORDER BY p.id")
+    List<ProductResponseDto> searchProductsAfter(String keyword, int afterId, Limit limit);
+
+    // Same predicates as the catalog snapshot, used while it is loading. releasedBefore is exclusive
+    @Query(RESPONSE_DTO + "WHERE " +
+        "(:available is null OR p.available = :available) AND " +
+        "(:categoryNorm is null OR p.categoryNorm = :categoryNorm) AND " +
+        "(:brandNorm is null OR p.brandNorm = :brandNorm) AND " +
+        "(:minPrice is null OR p.price >= :minPrice) AND " +
+        "(:maxPrice is null OR p.price <= :maxPrice) AND " +
+        "(:releasedFrom is null OR p.releaseDate >= :releasedFrom) AND " +
+        "(:releasedBefore is null OR p.releaseDate < :releasedBefore)")
+    Page<ProductResponseDto> findByAttributes(Boolean available, String categoryNorm, String brandNorm, BigDecimal minPrice,
+                                              BigDecimal maxPrice, Date releasedFrom, Date releasedBefore, Pageable pageable);
+
+    // Single DELETE statement, returns the number of removed rows
+    @Modifying
+    @Query("DELETE FROM Product p WHERE p.id = :id")
+    int deleteProductById(int id);
+
+    @Modifying
+    @Query("DELETE FROM Product p WHERE p.id = :id AND p.version = :version")
+    int deleteProductByIdAndVersion(int id, long version);
+
+    @Query("SELECT p.id FROM Product p WHERE p.id IN :ids")
+    List<Integer> findExistingIds(Collection<Integer> ids);
+
+    // Pairs of id and current version
+    @Query("SELECT p.id, p.version FROM Product p WHERE p.id IN :ids")
+    List<Object[]> findVersions(Collection<Integer> ids);
+
+    // Forward-only cursor over the whole table, must be consumed inside a transaction and closed
+    @QueryHints(@QueryHint(name = HibernateHints.HINT_FETCH_SIZE, value = "500"))
+    @Query(RESPONSE_DTO + "ORDER BY p.id")
+    Stream<ProductResponseDto> streamAll();
 }
@@ -0,0 +1,19 @@
+package com.example.myapi.repo;
+
+import com.example.myapi.dto.ProductResponseDto;
+import org.springframework.data.domain.Pageable;
+import org.springframework.data.domain.Slice;
+
+// Paged filters and their counts, built from the same predicates; a null argument is not filtered on.
+// With a positive limit, counting stops after limit matches and the total is estimated from how far into
+// the id range they reached; with 0 every match is counted.
+public interface ProductRepoCustom {
+    // upper(column) like upper(%value%), wildcards in the value are matched literally
+    Slice<ProductResponseDto> findContaining(String name, String category, Pageable pageable);
+    // Exact or prefix match on the *_norm columns, callers pass values through Product.normalize
+    Slice<ProductResponseDto> findNormalized(String nameNorm, String categoryNorm, boolean prefix, Pageable pageable);
+
+    MatchCount countContaining(String name, String category, long limit);
+    MatchCount countNormalized(String nameNorm, String categoryNorm, boolean prefix, long limit);
+    MatchCount countKeyword(String keyword, long limit);
+}
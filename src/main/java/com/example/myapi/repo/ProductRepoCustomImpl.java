@@ -0,0 +1,147 @@
+package com.example.myapi.repo;
+
+import com.example.myapi.dto.ProductResponseDto;
+import com.example.myapi.model.Product;
+import jakarta.persistence.EntityManager;
+import jakarta.persistence.criteria.CriteriaBuilder;
+import jakarta.persistence.criteria.CriteriaQuery;
+import jakarta.persistence.criteria.Expression;
+import jakarta.persistence.criteria.Predicate;
+import jakarta.persistence.criteria.Root;
+import org.springframework.data.domain.Pageable;
+import org.springframework.data.domain.Slice;
+import org.springframework.data.domain.SliceImpl;
+import org.springframework.data.jpa.repository.query.EscapeCharacter;
+import org.springframework.data.jpa.repository.query.QueryUtils;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.function.BiFunction;
+
+// The pages and counts of a filter share its predicate, searchProducts in ProductRepo is mirrored by countKeyword
+class ProductRepoCustomImpl implements ProductRepoCustom {
+    private static final EscapeCharacter ESCAPE = EscapeCharacter.DEFAULT;
+
+    private final EntityManager entityManager;
+
+    ProductRepoCustomImpl(EntityManager entityManager) {
+        this.entityManager = entityManager;
+    }
+
+    @Override
+    public Slice<ProductResponseDto> findContaining(String name, String category, Pageable pageable) {
+        return find(containing(name, category), pageable);
+    }
+
+    @Override
+    public Slice<ProductResponseDto> findNormalized(String nameNorm, String categoryNorm, boolean prefix, Pageable pageable) {
+        return find(normalized(nameNorm, categoryNorm, prefix), pageable);
+    }
+
+    @Override
+    public MatchCount countContaining(String name, String category, long limit) {
+        return count(containing(name, category), limit);
+    }
+
+    @Override
+    public MatchCount countNormalized(String nameNorm, String categoryNorm, boolean prefix, long limit) {
+        return count(normalized(nameNorm, categoryNorm, prefix), limit);
+    }
+
+    // Like searchProducts: wildcards in the keyword are not escaped there either
+    @Override
+    public MatchCount countKeyword(String keyword, long limit) {
+        if (keyword == null) {
+            return count((cb, product) -> null, limit);
+        }
+        return count((cb, product) -> {
+            Expression<String> pattern = cb.lower(cb.concat(cb.concat("%", cb.literal(keyword)), "%"));
+            return cb.or(cb.like(cb.lower(product.get("name")), pattern),
+                    cb.like(cb.lower(product.get("desc")), pattern),
+                    cb.like(cb.lower(product.get("brand")), pattern),
+                    cb.like(cb.lower(product.get("category")), pattern));
+        }, limit);
+    }
+
+    private static BiFunction<CriteriaBuilder, Root<Product>, Predicate> containing(String name, String category) {
+        return (cb, product) -> and(cb,
+                name == null ? null : cb.like(cb.upper(product.get("name")),
+                        cb.upper(cb.literal("%" + ESCAPE.escape(name) + "%")), ESCAPE.getEscapeCharacter()),
+                category == null ? null : cb.like(cb.upper(product.get("category")),
+                        cb.upper(cb.literal("%" + ESCAPE.escape(category) + "%")), ESCAPE.getEscapeCharacter()));
+    }
+
+    private static BiFunction<CriteriaBuilder, Root<Product>, Predicate> normalized(String nameNorm, String categoryNorm,
+                                                                                    boolean prefix) {
+        return (cb, product) -> and(cb,
+                nameNorm == null ? null : normalized(cb, product.get("nameNorm"), nameNorm, prefix),
+                categoryNorm == null ? null : normalized(cb, product.get("categoryNorm"), categoryNorm, prefix));
+    }
+
+    private static Predicate normalized(CriteriaBuilder cb, Expression<String> column, String value, boolean prefix) {
+        return prefix ? cb.like(column, ESCAPE.escape(value) + "%", ESCAPE.getEscapeCharacter()) : cb.equal(column, value);
+    }
+
+    private static Predicate and(CriteriaBuilder cb, Predicate... predicates) {
+        List<Predicate> present = new ArrayList<>(predicates.length);
+        for (Predicate predicate : predicates) {
+            if (predicate != null) {
+                present.add(predicate);
+            }
+        }
+        return present.isEmpty() ? null : cb.and(present.toArray(new Predicate[0]));
+    }
+
+    // One row past the page tells whether a next slice exists
+    private Slice<ProductResponseDto> find(BiFunction<CriteriaBuilder, Root<Product>, Predicate> where, Pageable pageable) {
+        CriteriaBuilder cb = entityManager.getCriteriaBuilder();
+        CriteriaQuery<ProductResponseDto> query = cb.createQuery(ProductResponseDto.class);
+        Root<Product> product = query.from(Product.class);
+        query.select(cb.construct(ProductResponseDto.class, product.get("id"), product.get("name"), product.get("desc"),
+                product.get("brand"), product.get("price"), product.get("category"), product.get("releaseDate"),
+                product.get("available"), product.get("quantity"), product.get("version")));
+        Predicate predicate = where.apply(cb, product);
+        if (predicate != null) {
+            query.where(predicate);
+        }
+        query.orderBy(QueryUtils.toOrders(pageable.getSort(), product, cb));
+        List<ProductResponseDto> rows = entityManager.createQuery(query)
+                .setFirstResult((int) pageable.getOffset())
+                .setMaxResults(pageable.getPageSize() + 1)
+                .getResultList();
+        boolean hasNext = rows.size() > pageable.getPageSize();
+        return new SliceImpl<>(hasNext ? rows.subList(0, pageable.getPageSize()) : rows, pageable, hasNext);
+    }
+
+    private MatchCount count(BiFunction<CriteriaBuilder, Root<Product>, Predicate> where, long limit) {
+        CriteriaBuilder cb = entityManager.getCriteriaBuilder();
+        if (limit <= 0) {
+            CriteriaQuery<Long> query = cb.createQuery(Long.class);
+            Root<Product> product = query.from(Product.class);
+            query.select(cb.count(product));
+            Predicate predicate = where.apply(cb, product);
+            if (predicate != null) {
+                query.where(predicate);
+            }
+            return new MatchCount(entityManager.createQuery(query).getSingleResult(), false);
+        }
+        // Matches in id order along the primary key, the scan stops after limit + 1 of them
+        CriteriaQuery<Integer> query = cb.createQuery(Integer.class);
+        Root<Product> product = query.from(Product.class);
+        query.select(product.get("id")).orderBy(cb.asc(product.get("id")));
+        Predicate predicate = where.apply(cb, product);
+        if (predicate != null) {
+            query.where(predicate);
+        }
+        List<Integer> ids = entityManager.createQuery(query).setMaxResults((int) Math.min(limit + 1, Integer.MAX_VALUE)).getResultList();
+        if (ids.size() <= limit) {
+            return new MatchCount(ids.size(), false);
+        }
+        // Extrapolated from the share of the id range that held the first limit + 1 matches
+        Object[] range = entityManager.createQuery("SELECT MIN(p.id), MAX(p.id) FROM Product p", Object[].class).getSingleResult();
+        long first = (Integer) range[0];
+        long span = (Integer) range[1] - first + 1;
+        long scanned = ids.get(ids.size() - 1) - first + 1;
+        return new MatchCount(Math.max(ids.size(), Math.round((double) ids.size() * span / scanned)), true);
+    }
+}
@@ -0,0 +1,359 @@
+package com.example.myapi.reservation;
+
+import com.example.myapi.config.MyapiProperties;
+import com.example.myapi.dto.ProductPatchDto;
+import com.example.myapi.dto.ProductResponseDto;
+import com.example.myapi.dto.ReservationResponseDto;
+import com.example.myapi.event.ProductChangeEvent;
+import com.example.myapi.exception.InsufficientStockException;
+import com.example.myapi.exception.ResourceNotFoundException;
+import com.example.myapi.inventory.InventoryWriteBehind;
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.DistributionSummary;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.context.ApplicationEventPublisher;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.support.TransactionTemplate;
+import org.springframework.transaction.event.TransactionalEventListener;
+
+import java.time.Duration;
+import java.time.Instant;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.IdentityHashMap;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.UUID;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.atomic.AtomicReference;
+import java.util.concurrent.locks.ReentrantLock;
+import java.util.function.UnaryOperator;
+
+/**
+ * Stock reservations held in memory. Every product has a counter of its quantity and of the units held by
+ * open reservations or confirmed but not written yet, changed by compare-and-set so concurrent buyers of a
+ * product never queue on its database row. Confirmed sales are written in batches with one conditional
+ * UPDATE per product (quantity >= sold units); that condition, not the counter, is what guarantees that
+ * stock is never oversold, a counter that lags behind a concurrent write only turns into a failed confirm.
+ */
+@Component
+public class StockReservations {
+    private static final Logger logger = LoggerFactory.getLogger(StockReservations.class);
+    private static final String SELL =
+            "UPDATE product SET quantity = quantity - ?, version = version + 1 WHERE id = ? AND quantity >= ?";
+
+    // quantity: as last read less the units sold since, held: open reservations, selling: confirmed, not written yet
+    record Stock(int quantity, int held, int selling, long epoch, boolean stale) {
+        int available() {
+            return quantity - held - selling;
+        }
+    }
+
+    // Starts stale, the quantity is read from the database by the first reservation
+    static final class StockCounter {
+        private final AtomicReference<Stock> stock = new AtomicReference<>(new Stock(0, 0, 0, 0, true));
+        // Not a monitor, the reload holds it across a database read and must not pin a virtual thread's carrier
+        private final ReentrantLock reloadLock = new ReentrantLock();
+
+        private void update(UnaryOperator<Stock> change) {
+            stock.updateAndGet(change);
+        }
+    }
+
+    private record Reservation(String id, int productId, int quantity, Instant expiresAt, StockCounter counter) {
+    }
+
+    private record Sale(int productId, int quantity, StockCounter counter, CompletableFuture<Boolean> sold) {
+    }
+
+    private final JdbcTemplate jdbcTemplate;
+    private final InventoryWriteBehind inventoryWriteBehind;
+    private final TransactionTemplate transactionTemplate;
+    private final ApplicationEventPublisher eventPublisher;
+    private final Duration defaultTtl;
+    private final Duration maxTtl;
+    private final int maxBatch;
+    private final Map<Integer, StockCounter> counters = new ConcurrentHashMap<>();
+    private final Map<String, Reservation> reservations = new ConcurrentHashMap<>();
+    private final ConcurrentLinkedQueue<Sale> sales = new ConcurrentLinkedQueue<>();
+    private final ReentrantLock writeLock = new ReentrantLock();
+    private final Counter reserved;
+    private final Counter rejected;
+    private final Counter confirmed;
+    private final Counter failed;
+    private final Counter released;
+    private final Counter expired;
+    private final DistributionSummary batchSizes;
+
+    public StockReservations(MyapiProperties properties, JdbcTemplate jdbcTemplate, InventoryWriteBehind inventoryWriteBehind,
+                             PlatformTransactionManager transactionManager, ApplicationEventPublisher eventPublisher,
+                             MeterRegistry meterRegistry) {
+        MyapiProperties.Reservations settings = properties.getReservations();
+        this.jdbcTemplate = jdbcTemplate;
+        this.inventoryWriteBehind = inventoryWriteBehind;
+        this.transactionTemplate = new TransactionTemplate(transactionManager);
+        this.eventPublisher = eventPublisher;
+        this.defaultTtl = settings.getDefaultTtl();
+        this.maxTtl = settings.getMaxTtl();
+        this.maxBatch = settings.getMaxBatch();
+        this.reserved = outcome(meterRegistry, "reserved");
+        this.rejected = outcome(meterRegistry, "rejected");
+        this.confirmed = outcome(meterRegistry, "confirmed");
+        this.failed = outcome(meterRegistry, "failed");
+        this.released = outcome(meterRegistry, "released");
+        this.expired = outcome(meterRegistry, "expired");
+        this.batchSizes = DistributionSummary.builder("stock.sales.batch")
+                .description("Confirmed sales written per transaction")
+                .publishPercentiles(0.5, 0.99)
+                .register(meterRegistry);
+        Gauge.builder("stock.reservations.open", reservations, Map::size)
+                .description("Reservations neither confirmed, released nor expired")
+                .register(meterRegistry);
+    }
+
+    public ReservationResponseDto reserve(int productId, int quantity, Long ttlSeconds) {
+        StockCounter counter = counters.computeIfAbsent(productId, id -> new StockCounter());
+        while (true) {
+            Stock current = counter.stock.get();
+            if (current.stale()) {
+                reload(productId, counter);
+                continue;
+            }
+            if (current.available() < quantity) {
+                rejected.increment();
+                throw new InsufficientStockException("Only " + Math.max(0, current.available())
+                        + " units available for product with ID: " + productId);
+            }
+            Stock held = new Stock(current.quantity(), current.held() + quantity, current.selling(), current.epoch(), false);
+            if (counter.stock.compareAndSet(current, held)) {
+                break;
+            }
+        }
+        Duration ttl = ttlSeconds != null ? Duration.ofSeconds(ttlSeconds) : defaultTtl;
+        Reservation reservation = new Reservation(UUID.randomUUID().toString(), productId, quantity,
+                Instant.now().plus(ttl.compareTo(maxTtl) > 0 ? maxTtl : ttl), counter);
+        reservations.put(reservation.id(), reservation);
+        reserved.increment();
+        return new ReservationResponseDto(reservation.id(), productId, quantity, reservation.expiresAt());
+    }
+
+    // Returns once the sale is written
+    public void confirm(String reservationId) {
+        Reservation reservation = take(reservationId);
+        int quantity = reservation.quantity();
+        reservation.counter().update(stock -> new Stock(stock.quantity(), stock.held() - quantity,
+                stock.selling() + quantity, stock.epoch(), stock.stale()));
+        Sale sale = new Sale(reservation.productId(), quantity, reservation.counter(), new CompletableFuture<>());
+        sales.add(sale);
+        // Group commit: whoever gets the lock writes every queued sale, the others find theirs done
+        writeLock.lock();
+        try {
+            if (!sale.sold().isDone()) {
+                writeQueued();
+            }
+        } finally {
+            writeLock.unlock();
+        }
+        boolean sold;
+        try {
+            sold = sale.sold().join();
+        } catch (CompletionException e) {
+            throw e.getCause() instanceof RuntimeException cause ? cause : e;
+        }
+        if (!sold) {
+            failed.increment();
+            throw new InsufficientStockException("Stock of product with ID: " + reservation.productId()
+                    + " changed, the reservation can no longer be confirmed");
+        }
+        confirmed.increment();
+    }
+
+    public void release(String reservationId) {
+        Reservation reservation = reservations.remove(reservationId);
+        if (reservation == null) {
+            throw new ResourceNotFoundException("Reservation not found or expired: " + reservationId);
+        }
+        unhold(reservation);
+        released.increment();
+    }
+
+    @Scheduled(initialDelayString = "${myapi.reservations.sweep-interval}", fixedDelayString = "${myapi.reservations.sweep-interval}")
+    public void releaseExpired() {
+        Instant now = Instant.now();
+        int count = 0;
+        for (Reservation reservation : reservations.values()) {
+            if (reservation.expiresAt().isBefore(now) && reservations.remove(reservation.id(), reservation)) {
+                unhold(reservation);
+                count++;
+            }
+        }
+        if (count > 0) {
+            expired.increment(count);
+            logger.debug("Released {} expired reservations", count);
+        }
+    }
+
+    // Changes that can move the quantity make the counter read it again before the next reservation
+    @TransactionalEventListener(fallbackExecution = true)
+    public void onProductChange(ProductChangeEvent event) {
+        if (event.getType() == ProductChangeEvent.Type.DELETED) {
+            counters.remove(event.getProductId());
+            return;
+        }
+        ProductPatchDto patch = event.getPatch();
+        if (event.isPartial() && !patch.isEmpty() && patch.getQuantity() == null) {
+            return;
+        }
+        StockCounter counter = counters.get(event.getProductId());
+        if (counter != null) {
+            counter.update(stock -> new Stock(stock.quantity(), stock.held(), stock.selling(), stock.epoch() + 1, true));
+        }
+    }
+
+    private Reservation take(String reservationId) {
+        Reservation reservation = reservations.remove(reservationId);
+        if (reservation == null) {
+            throw new ResourceNotFoundException("Reservation not found or expired: " + reservationId);
+        }
+        if (reservation.expiresAt().isBefore(Instant.now())) {
+            unhold(reservation);
+            expired.increment();
+            throw new ResourceNotFoundException("Reservation not found or expired: " + reservationId);
+        }
+        return reservation;
+    }
+
+    private static void unhold(Reservation reservation) {
+        int quantity = reservation.quantity();
+        reservation.counter().update(stock -> new Stock(stock.quantity(), stock.held() - quantity,
+                stock.selling(), stock.epoch(), stock.stale()));
+    }
+
+    // One reader per product, the others wait and find the counter fresh
+    private void reload(int productId, StockCounter counter) {
+        counter.reloadLock.lock();
+        try {
+            Stock current = counter.stock.get();
+            if (!current.stale()) {
+                return;
+            }
+            Integer quantity = readQuantity(productId);
+            if (quantity == null) {
+                counters.remove(productId, counter);
+                throw new ResourceNotFoundException("Product not found with ID: " + productId);
+            }
+            // A change marked after the read moved the epoch on and keeps the counter stale
+            counter.update(stock -> stock.epoch() == current.epoch()
+                    ? new Stock(quantity, stock.held(), stock.selling(), stock.epoch(), false)
+                    : stock);
+        } finally {
+            counter.reloadLock.unlock();
+        }
+    }
+
+    // Quantity including inventory deltas not flushed yet, null when the product does not exist
+    private Integer readQuantity(int productId) {
+        ProductResponseDto product = jdbcTemplate.query("SELECT quantity, version FROM product WHERE id = ?",
+                resultSet -> resultSet.next()
+                        ? ProductResponseDto.builder().id(productId).quantity(resultSet.getInt(1)).version(resultSet.getLong(2)).build()
+                        : null,
+                productId);
+        if (product == null) {
+            return null;
+        }
+        inventoryWriteBehind.applyPending(product);
+        return product.getQuantity();
+    }
+
+    private void writeQueued() {
+        List<Sale> batch = new ArrayList<>();
+        Sale next;
+        while (batch.size() < maxBatch && (next = sales.poll()) != null) {
+            batch.add(next);
+        }
+        if (batch.isEmpty()) {
+            return;
+        }
+        Map<Integer, List<Sale>> byProduct = new LinkedHashMap<>();
+        batch.forEach(sale -> byProduct.computeIfAbsent(sale.productId(), id -> new ArrayList<>()).add(sale));
+        Set<Sale> sold;
+        try {
+            // Pending inventory deltas are part of the stock the conditional UPDATE checks
+            if (byProduct.keySet().stream().anyMatch(inventoryWriteBehind::hasPending)) {
+                inventoryWriteBehind.flush();
+            }
+            sold = transactionTemplate.execute(status -> write(byProduct));
+        } catch (RuntimeException e) {
+            logger.error("Writing {} confirmed sales failed: {}", batch.size(), e.getMessage());
+            batch.forEach(sale -> {
+                settle(sale, false);
+                sale.sold().completeExceptionally(e);
+            });
+            return;
+        }
+        batchSizes.record(batch.size());
+        byProduct.forEach((productId, productSales) -> {
+            productSales.forEach(sale -> settle(sale, sold.contains(sale)));
+            if (productSales.stream().anyMatch(sold::contains)) {
+                eventPublisher.publishEvent(ProductChangeEvent.inventoryAdjusted(productId));
+            }
+        });
+        batch.forEach(sale -> sale.sold().complete(sold.contains(sale)));
+    }
+
+    private Set<Sale> write(Map<Integer, List<Sale>> byProduct) {
+        List<Map.Entry<Integer, Integer>> totals = byProduct.entrySet().stream()
+                .map(entry -> Map.entry(entry.getKey(), entry.getValue().stream().mapToInt(Sale::quantity).sum()))
+                .toList();
+        int[][] counts = jdbcTemplate.batchUpdate(SELL, totals, maxBatch, (statement, total) -> {
+            statement.setInt(1, total.getValue());
+            statement.setInt(2, total.getKey());
+            statement.setInt(3, total.getValue());
+        });
+        Set<Sale> sold = Collections.newSetFromMap(new IdentityHashMap<>());
+        int index = 0;
+        for (int[] chunk : counts) {
+            for (int count : chunk) {
+                List<Sale> productSales = byProduct.get(totals.get(index++).getKey());
+                if (count > 0) {
+                    sold.addAll(productSales);
+                    continue;
+                }
+                // Not enough stock for all of them, sell what still fits one by one
+                for (Sale sale : productSales) {
+                    if (jdbcTemplate.update(SELL, sale.quantity(), sale.productId(), sale.quantity()) > 0) {
+                        sold.add(sale);
+                    }
+                }
+            }
+        }
+        return sold;
+    }
+
+    // A written sale leaves the quantity, a failed one goes back and the counter reads the quantity again.
+    // Both move the epoch on, a reload that read the row before the sale was written must not be installed
+    private static void settle(Sale sale, boolean sold) {
+        int quantity = sale.quantity();
+        sale.counter().update(stock -> sold
+                ? new Stock(stock.quantity() - quantity, stock.held(), stock.selling() - quantity, stock.epoch() + 1, stock.stale())
+                : new Stock(stock.quantity(), stock.held(), stock.selling() - quantity, stock.epoch() + 1, true));
+    }
+
+    private static Counter outcome(MeterRegistry meterRegistry, String outcome) {
+        return Counter.builder("stock.reservations")
+                .description("Reservation requests by outcome")
+                .tag("outcome", outcome)
+                .register(meterRegistry);
+    }
+}
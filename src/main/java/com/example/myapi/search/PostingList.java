@@ -0,0 +1,72 @@
+package com.example.myapi.search;
+
+import java.util.Arrays;
+
+// Sorted primitive posting list: product ids with the accumulated field weight of the term in each product
+final class PostingList {
+    private int[] ids = new int[4];
+    private int[] weights = new int[4];
+    private int size;
+
+    int size() {
+        return size;
+    }
+
+    int idAt(int index) {
+        return ids[index];
+    }
+
+    int weightAt(int index) {
+        return weights[index];
+    }
+
+    // Position of the first id at or after the given one, size when there is none
+    int lowerBound(int id) {
+        int index = Arrays.binarySearch(ids, 0, size, id);
+        return index >= 0 ? index : -index - 1;
+    }
+
+    void put(int id, int weight) {
+        // Ids are generated in increasing order, so appending is the common case
+        if (size == 0 || ids[size - 1] < id) {
+            ensureCapacity();
+            ids[size] = id;
+            weights[size] = weight;
+            size++;
+            return;
+        }
+        int index = Arrays.binarySearch(ids, 0, size, id);
+        if (index >= 0) {
+            weights[index] = weight;
+            return;
+        }
+        int insertAt = -index - 1;
+        ensureCapacity();
+        System.arraycopy(ids, insertAt, ids, insertAt + 1, size - insertAt);
+        System.arraycopy(weights, insertAt, weights, insertAt + 1, size - insertAt);
+        ids[insertAt] = id;
+        weights[insertAt] = weight;
+        size++;
+    }
+
+    void remove(int id) {
+        int index = Arrays.binarySearch(ids, 0, size, id);
+        if (index < 0) {
+            return;
+        }
+        System.arraycopy(ids, index + 1, ids, index, size - index - 1);
+        System.arraycopy(weights, index + 1, weights, index, size - index - 1);
+        size--;
+        if (size > 16 && size < ids.length / 4) {
+            ids = Arrays.copyOf(ids, ids.length / 2);
+            weights = Arrays.copyOf(weights, weights.length / 2);
+        }
+    }
+
+    private void ensureCapacity() {
+        if (size == ids.length) {
+            ids = Arrays.copyOf(ids, size * 2);
+            weights = Arrays.copyOf(weights, size * 2);
+        }
+    }
+}
@@ -0,0 +1,522 @@
+package com.example.myapi.search;
+
+import com.example.myapi.config.MyapiProperties;
+import com.example.myapi.event.ProductChangeEvent;
+import com.example.myapi.model.Product;
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.MeterRegistry;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.DisposableBean;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.event.TransactionalEventListener;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Comparator;
+import java.util.HashMap;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+import java.util.NavigableMap;
+import java.util.PriorityQueue;
+import java.util.Set;
+import java.util.TreeMap;
+import java.util.concurrent.CancellationException;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.ForkJoinTask;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.locks.ReadWriteLock;
+import java.util.concurrent.locks.ReentrantReadWriteLock;
+
+/**
+ * In-process inverted index over name, desc, brand and category.
+ * Every token maps to a posting list of product ids, query tokens are prefix matched
+ * and all of them must match. Results are ranked by field weight, exact term matches
+ * count twice as much as prefix matches. Broad queries are split into id range partitions
+ * matched in parallel on a bounded pool, each partition keeps its top results and the
+ * partitions are merged with a heap. A search is cancelled when its thread is interrupted.
+ */
+@Component
+public class ProductSearchIndex implements DisposableBean {
+    private static final Logger logger = LoggerFactory.getLogger(ProductSearchIndex.class);
+
+    static final int NAME_WEIGHT = 8;
+    static final int BRAND_WEIGHT = 4;
+    static final int CATEGORY_WEIGHT = 2;
+    static final int DESC_WEIGHT = 1;
+    private static final int EXACT_MATCH_BOOST = 2;
+
+    private final ReadWriteLock lock = new ReentrantReadWriteLock();
+    private final NavigableMap<String, PostingList> postings = new TreeMap<>();
+    // Indexed fields and terms of every product, needed to remove it from its posting lists and to apply partial updates
+    private final Map<Integer, IndexedDocument> documents = new HashMap<>();
+    private final ForkJoinPool pool;
+    private final int partitions;
+    private final long minParallelPostings;
+    private final Counter cancelled;
+    // Highest id ever indexed, the upper end of the id range split into partitions
+    private int maxId;
+    // Changes seen while a rebuild is running, replayed over the rebuilt documents before the index is ready
+    private List<ProductChangeEvent> pendingChanges;
+    private volatile boolean ready;
+
+    // scanned is the number of posting entries visited to answer the query
+    public record SearchResult(List<Integer> ids, int total, long scanned) {
+    }
+
+    private record IndexedDocument(String name, String desc, String brand, String category, String[] terms) {
+    }
+
+    // Best entries of one partition in rank order, see Matches.top
+    private record PartitionResult(long[] top, int total, long scanned) {
+    }
+
+    public ProductSearchIndex(MyapiProperties properties, MeterRegistry meterRegistry) {
+        MyapiProperties.Search search = properties.getSearch();
+        this.pool = new ForkJoinPool(search.getParallelism());
+        this.partitions = search.getPartitions();
+        this.minParallelPostings = search.getMinParallelPostings();
+        this.cancelled = Counter.builder("search.cancelled")
+                .description("Keyword searches cancelled before they finished, on a timeout or a client error")
+                .register(meterRegistry);
+    }
+
+    public boolean isReady() {
+        return ready;
+    }
+
+    public void markReady() {
+        this.ready = true;
+    }
+
+    // True when the index can serve the keyword, blank or symbol-only keywords are left to the database
+    public boolean canSearch(String keyword) {
+        return ready && keyword != null && tokenize(keyword).length > 0;
+    }
+
+    public int size() {
+        lock.readLock().lock();
+        try {
+            return documents.size();
+        } finally {
+            lock.readLock().unlock();
+        }
+    }
+
+    public void index(Product product) {
+        index(product.getId(), product.getName(), product.getDesc(), product.getBrand(), product.getCategory());
+    }
+
+    public void index(int id, String name, String desc, String brand, String category) {
+        Map<String, Integer> termWeights = new HashMap<>();
+        addTerms(termWeights, name, NAME_WEIGHT);
+        addTerms(termWeights, brand, BRAND_WEIGHT);
+        addTerms(termWeights, category, CATEGORY_WEIGHT);
+        addTerms(termWeights, desc, DESC_WEIGHT);
+
+        lock.writeLock().lock();
+        try {
+            removeDocument(id);
+            termWeights.forEach((term, weight) ->
+                    postings.computeIfAbsent(term, key -> new PostingList()).put(id, weight));
+            documents.put(id, new IndexedDocument(name, desc, brand, category, termWeights.keySet().toArray(new String[0])));
+            maxId = Math.max(maxId, id);
+        } finally {
+            lock.writeLock().unlock();
+        }
+    }
+
+    // Reindexes a product with only some fields changed, null means unchanged
+    public void update(int id, String name, String desc, String brand, String category) {
+        if (name == null && desc == null && brand == null && category == null) {
+            return;
+        }
+        // The write lock is reentrant, holding it across read and reindex keeps concurrent patches from interleaving
+        lock.writeLock().lock();
+        try {
+            IndexedDocument document = documents.get(id);
+            if (document == null) {
+                return;
+            }
+            index(id, name != null ? name : document.name(), desc != null ? desc : document.desc(),
+                    brand != null ? brand : document.brand(), category != null ? category : document.category());
+        } finally {
+            lock.writeLock().unlock();
+        }
+    }
+
+    public void remove(int id) {
+        lock.writeLock().lock();
+        try {
+            removeDocument(id);
+        } finally {
+            lock.writeLock().unlock();
+        }
+    }
+
+    public void clear() {
+        lock.writeLock().lock();
+        try {
+            postings.clear();
+            documents.clear();
+            maxId = 0;
+            ready = false;
+        } finally {
+            lock.writeLock().unlock();
+        }
+    }
+
+    // Empties the index and starts recording changes, the caller indexes every product from the database and calls finishRebuild
+    public void startRebuild() {
+        lock.writeLock().lock();
+        try {
+            clear();
+            pendingChanges = new ArrayList<>();
+        } finally {
+            lock.writeLock().unlock();
+        }
+    }
+
+    // Replays the changes seen since startRebuild, a product read before its change committed is corrected or removed
+    public void finishRebuild() {
+        lock.writeLock().lock();
+        try {
+            // Replaying is idempotent, every change sets a product's fields or removes it
+            pendingChanges.forEach(this::apply);
+            pendingChanges = null;
+            markReady();
+        } finally {
+            lock.writeLock().unlock();
+        }
+    }
+
+    // Leaves the index not ready, searches stay with the database
+    public void abandonRebuild() {
+        lock.writeLock().lock();
+        try {
+            pendingChanges = null;
+        } finally {
+            lock.writeLock().unlock();
+        }
+    }
+
+    public SearchResult search(String keyword, int offset, int limit) {
+        String[] tokens = tokenize(keyword);
+        // Every partition keeps as many entries as the requested page reaches down to
+        int keep = (int) Math.min((long) offset + limit, Integer.MAX_VALUE);
+        lock.readLock().lock();
+        try {
+            int count = postings(tokens) < minParallelPostings ? 1 : partitions;
+            if (count == 1) {
+                return page(List.of(searchPartition(tokens, Integer.MIN_VALUE, Integer.MAX_VALUE, keep, new AtomicBoolean())),
+                        offset, limit);
+            }
+            return page(searchPartitions(tokens, count, keep), offset, limit);
+        } finally {
+            // Partition tasks read without the lock, they have all finished by now
+            lock.readLock().unlock();
+        }
+    }
+
+    @Override
+    public void destroy() {
+        pool.shutdownNow();
+    }
+
+    @TransactionalEventListener(fallbackExecution = true)
+    public void onProductChange(ProductChangeEvent event) {
+        lock.writeLock().lock();
+        try {
+            apply(event);
+            if (pendingChanges != null) {
+                pendingChanges.add(event);
+            }
+        } finally {
+            lock.writeLock().unlock();
+        }
+        logger.debug("Search index updated for product ID: {}", event.getProductId());
+    }
+
+    private void apply(ProductChangeEvent event) {
+        if (event.getType() == ProductChangeEvent.Type.DELETED) {
+            remove(event.getProductId());
+        } else if (event.isPartial()) {
+            update(event.getProductId(), event.getPatch().getName(), event.getPatch().getDesc(),
+                    event.getPatch().getBrand(), event.getPatch().getCategory());
+        } else {
+            index(event.getProduct());
+        }
+    }
+
+    // Splits [0, maxId] into equal id ranges, ids are allocated from a sequence and spread evenly over them
+    private List<PartitionResult> searchPartitions(String[] tokens, int count, int keep) {
+        AtomicBoolean abandoned = new AtomicBoolean();
+        long width = ((long) maxId + count) / count;
+        List<ForkJoinTask<PartitionResult>> tasks = new ArrayList<>(count);
+        for (int i = 0; i < count; i++) {
+            int from = i == 0 ? Integer.MIN_VALUE : (int) (i * width);
+            int to = i == count - 1 ? Integer.MAX_VALUE : (int) ((i + 1) * width - 1);
+            tasks.add(pool.submit(() -> searchPartition(tokens, from, to, keep, abandoned)));
+        }
+        List<PartitionResult> results = new ArrayList<>(count);
+        try {
+            for (ForkJoinTask<PartitionResult> task : tasks) {
+                results.add(task.get());
+            }
+        } catch (InterruptedException e) {
+            // The request was cancelled, stop the remaining partitions and wait for them to let go of the index
+            abandoned.set(true);
+            tasks.forEach(ForkJoinTask::quietlyJoin);
+            cancelled.increment();
+            Thread.currentThread().interrupt();
+            throw new CancellationException("Search cancelled");
+        } catch (ExecutionException e) {
+            abandoned.set(true);
+            tasks.forEach(ForkJoinTask::quietlyJoin);
+            throw e.getCause() instanceof RuntimeException runtimeException
+                    ? runtimeException : new IllegalStateException(e.getCause());
+        }
+        return results;
+    }
+
+    // Products with ids in [from, to] that match every token
+    private PartitionResult searchPartition(String[] tokens, int from, int to, int keep, AtomicBoolean abandoned) {
+        Matches matches = null;
+        long scanned = 0;
+        for (String token : tokens) {
+            if (abandoned.get()) {
+                break;
+            }
+            Matches tokenMatches = matchPrefix(token, from, to, abandoned);
+            scanned += tokenMatches.scanned;
+            matches = matches == null ? tokenMatches : matches.intersect(tokenMatches);
+            if (matches.size == 0) {
+                break;
+            }
+        }
+        if (matches == null || matches.size == 0) {
+            return new PartitionResult(new long[0], 0, scanned);
+        }
+        return new PartitionResult(matches.top(keep), matches.size, scanned);
+    }
+
+    // Merges the partitions in rank order, a heap holds the next entry of every partition
+    private static SearchResult page(List<PartitionResult> results, int offset, int limit) {
+        int total = 0;
+        long scanned = 0;
+        PriorityQueue<int[]> heads = new PriorityQueue<>(Comparator.comparingLong(head -> results.get(head[0]).top()[head[1]]));
+        for (int i = 0; i < results.size(); i++) {
+            PartitionResult result = results.get(i);
+            total += result.total();
+            scanned += result.scanned();
+            if (result.top().length > 0) {
+                heads.add(new int[]{i, 0});
+            }
+        }
+        List<Integer> page = new ArrayList<>(Math.min(limit, total));
+        int skipped = 0;
+        while (page.size() < limit && !heads.isEmpty()) {
+            int[] head = heads.poll();
+            long[] top = results.get(head[0]).top();
+            if (skipped < offset) {
+                skipped++;
+            } else {
+                page.add((int) top[head[1]]);
+            }
+            if (++head[1] < top.length) {
+                heads.add(head);
+            }
+        }
+        return new SearchResult(page, total, scanned);
+    }
+
+    // Posting entries the tokens' prefixes cover, what a search visits at most
+    private long postings(String[] tokens) {
+        long total = 0;
+        for (String token : tokens) {
+            for (PostingList postingList : prefixRange(token).values()) {
+                total += postingList.size();
+            }
+        }
+        return total;
+    }
+
+    private NavigableMap<String, PostingList> prefixRange(String token) {
+        return postings.subMap(token, true, token + Character.MAX_VALUE, true);
+    }
+
+    static String[] tokenize(String text) {
+        if (text == null) {
+            return new String[0];
+        }
+        Set<String> tokens = new LinkedHashSet<>();
+        for (String token : text.toLowerCase(Locale.ROOT).split("[^\\p{L}\\p{N}]+")) {
+            if (!token.isEmpty()) {
+                tokens.add(token);
+            }
+        }
+        return tokens.toArray(new String[0]);
+    }
+
+    private static void addTerms(Map<String, Integer> termWeights, String text, int weight) {
+        // A term counts once per field, repeated words in a description do not inflate the score
+        for (String token : tokenize(text)) {
+            termWeights.merge(token, weight, Integer::sum);
+        }
+    }
+
+    private void removeDocument(int id) {
+        IndexedDocument document = documents.remove(id);
+        if (document == null) {
+            return;
+        }
+        for (String term : document.terms()) {
+            PostingList postingList = postings.get(term);
+            if (postingList != null) {
+                postingList.remove(id);
+                if (postingList.size() == 0) {
+                    postings.remove(term);
+                }
+            }
+        }
+    }
+
+    private Matches matchPrefix(String token, int from, int to, AtomicBoolean abandoned) {
+        NavigableMap<String, PostingList> range = prefixRange(token);
+        // Start and end of the partition in every posting list, ids are sorted
+        int[] bounds = new int[range.size() * 2];
+        int total = 0;
+        int list = 0;
+        for (PostingList postingList : range.values()) {
+            bounds[list] = postingList.lowerBound(from);
+            bounds[list + 1] = to == Integer.MAX_VALUE ? postingList.size() : postingList.lowerBound(to + 1);
+            total += bounds[list + 1] - bounds[list];
+            list += 2;
+        }
+        // id in the high bits, score in the low bits: sorting groups the entries of one product together
+        long[] packed = new long[total];
+        int count = 0;
+        list = 0;
+        for (Map.Entry<String, PostingList> entry : range.entrySet()) {
+            if (abandoned.get()) {
+                return new Matches(0);
+            }
+            int boost = entry.getKey().length() == token.length() ? EXACT_MATCH_BOOST : 1;
+            PostingList postingList = entry.getValue();
+            for (int i = bounds[list]; i < bounds[list + 1]; i++) {
+                packed[count++] = ((long) postingList.idAt(i) << 32) | (postingList.weightAt(i) * boost);
+            }
+            list += 2;
+        }
+        if (range.size() > 1) {
+            Arrays.sort(packed);
+        }
+
+        Matches matches = new Matches(count);
+        matches.scanned = count;
+        for (long entry : packed) {
+            int id = (int) (entry >>> 32);
+            int score = (int) entry;
+            if (matches.size > 0 && matches.ids[matches.size - 1] == id) {
+                matches.scores[matches.size - 1] = Math.max(matches.scores[matches.size - 1], score);
+            } else {
+                matches.ids[matches.size] = id;
+                matches.scores[matches.size] = score;
+                matches.size++;
+            }
+        }
+        return matches;
+    }
+
+    // Product ids sorted ascending with their scores
+    private static final class Matches {
+        private final int[] ids;
+        private final int[] scores;
+        private int size;
+        private long scanned;
+
+        private Matches(int capacity) {
+            this.ids = new int[capacity];
+            this.scores = new int[capacity];
+        }
+
+        private Matches intersect(Matches other) {
+            Matches result = new Matches(Math.min(size, other.size));
+            int i = 0;
+            int j = 0;
+            while (i < size && j < other.size) {
+                if (ids[i] < other.ids[j]) {
+                    i++;
+                } else if (ids[i] > other.ids[j]) {
+                    j++;
+                } else {
+                    result.ids[result.size] = ids[i];
+                    result.scores[result.size] = scores[i] + other.scores[j];
+                    result.size++;
+                    i++;
+                    j++;
+                }
+            }
+            return result;
+        }
+
+        // The best keep entries as rank keys in ascending order, the id in the low bits of each
+        private long[] top(int keep) {
+            // Inverted score in the high bits so ascending order means best score first, ties by id
+            int heapSize = Math.min(keep, size);
+            long[] heap = new long[heapSize];
+            // Max-heap of the best entries so far, its root is the worst of them
+            for (int i = 0; i < size; i++) {
+                long key = ((long) (Integer.MAX_VALUE - scores[i]) << 32) | ids[i];
+                if (i < heapSize) {
+                    heap[i] = key;
+                    siftUp(heap, i);
+                } else if (heapSize > 0 && key < heap[0]) {
+                    heap[0] = key;
+                    siftDown(heap, heapSize);
+                }
+            }
+            Arrays.sort(heap);
+            return heap;
+        }
+
+        private static void siftUp(long[] heap, int index) {
+            while (index > 0) {
+                int parent = (index - 1) / 2;
+                if (heap[parent] >= heap[index]) {
+                    return;
+                }
+                swap(heap, parent, index);
+                index = parent;
+            }
+        }
+
+        private static void siftDown(long[] heap, int heapSize) {
+            int index = 0;
+            while (true) {
+                int largest = index;
+                int left = 2 * index + 1;
+                if (left < heapSize && heap[left] > heap[largest]) {
+                    largest = left;
+                }
+                if (left + 1 < heapSize && heap[left + 1] > heap[largest]) {
+                    largest = left + 1;
+                }
+                if (largest == index) {
+                    return;
+                }
+                swap(heap, index, largest);
+                index = largest;
+            }
+        }
+
+        private static void swap(long[] heap, int i, int j) {
+            long value = heap[i];
+            heap[i] = heap[j];
+            heap[j] = value;
+        }
+    }
+}
@@ -0,0 +1,43 @@
+package com.example.myapi.search;
+
+import com.example.myapi.etag.ProductVersions;
+import com.example.myapi.service.IProductService;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.boot.context.event.ApplicationReadyEvent;
+import org.springframework.context.event.EventListener;
+import org.springframework.stereotype.Component;
+
+// Rebuilds the search index from the database once the application has started
+@Component
+public class ProductSearchIndexLoader {
+    private static final Logger logger = LoggerFactory.getLogger(ProductSearchIndexLoader.class);
+    private final ProductSearchIndex productSearchIndex;
+    private final IProductService productService;
+    private final ProductVersions productVersions;
+
+    public ProductSearchIndexLoader(ProductSearchIndex productSearchIndex, IProductService productService,
+                                    ProductVersions productVersions) {
+        this.productSearchIndex = productSearchIndex;
+        this.productService = productService;
+        this.productVersions = productVersions;
+    }
+
+    @EventListener(ApplicationReadyEvent.class)
+    public void rebuild() {
+        long start = System.nanoTime();
+        productSearchIndex.startRebuild();
+        try {
+            productService.exportAll(product -> productSearchIndex.index(product.getId(), product.getName(),
+                    product.getDesc(), product.getBrand(), product.getCategory()));
+        } catch (RuntimeException e) {
+            productSearchIndex.abandonRebuild();
+            throw e;
+        }
+        productSearchIndex.finishRebuild();
+        // Search results are ranked differently once the index serves them, tagged and cached responses must not match
+        productVersions.advance();
+        logger.info("Search index rebuilt with {} products in {} ms",
+                productSearchIndex.size(), (System.nanoTime() - start) / 1_000_000);
+    }
+}
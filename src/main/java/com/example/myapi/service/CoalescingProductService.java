@@ -0,0 +1,154 @@
+package com.example.myapi.service;
+
+import com.example.myapi.coalesce.SingleFlight;
+import com.example.myapi.dto.BulkResponseDto;
+import com.example.myapi.dto.ChangeFeedResponseDto;
+import com.example.myapi.dto.CursorPageResponseDto;
+import com.example.myapi.dto.FacetResponseDto;
+import com.example.myapi.dto.ProductCreateDto;
+import com.example.myapi.dto.ProductPatchDto;
+import com.example.myapi.dto.ProductResponseDto;
+import com.example.myapi.dto.ProductUpdateDto;
+import com.example.myapi.dto.ReservationCreateDto;
+import com.example.myapi.dto.ReservationResponseDto;
+import org.springframework.context.annotation.Primary;
+import org.springframework.data.domain.Page;
+import org.springframework.data.domain.PageRequest;
+import org.springframework.stereotype.Service;
+
+import java.util.Arrays;
+import java.util.List;
+import java.util.function.Consumer;
+
+// Reads go through SingleFlight so a burst of identical requests queries once, writes go straight to ProductService.
+// Coalesced callers share the returned objects, which are not modified after they are returned
+@Service
+@Primary
+public class CoalescingProductService implements IProductService {
+    private final ProductService productService;
+    private final SingleFlight singleFlight;
+
+    public CoalescingProductService(ProductService productService, SingleFlight singleFlight) {
+        this.productService = productService;
+        this.singleFlight = singleFlight;
+    }
+
+    @Override
+    public List<ProductResponseDto> getAll() {
+        return singleFlight.call("getAll", List.of(), productService::getAll);
+    }
+
+    @Override
+    public void exportAll(Consumer<ProductResponseDto> consumer) {
+        productService.exportAll(consumer);
+    }
+
+    @Override
+    public Page<ProductResponseDto> filterProductByNameAndCategoryPage(String name, String category, int page, int size) {
+        return filterProductByNameAndCategoryPage(name, category, MatchMode.CONTAINS, page, size);
+    }
+
+    @Override
+    public Page<ProductResponseDto> filterProductByNameAndCategoryPage(String name, String category, MatchMode match, int page, int size) {
+        return singleFlight.call("filter", Arrays.asList(name, category, match, page, size),
+                () -> productService.filterProductByNameAndCategoryPage(name, category, match, page, size));
+    }
+
+    @Override
+    public Page<ProductResponseDto> searchProductByKeyword(String keyword, PageRequest pageRequest) {
+        return singleFlight.call("search", Arrays.asList(keyword, pageRequest),
+                () -> productService.searchProductByKeyword(keyword, pageRequest));
+    }
+
+    @Override
+    public Page<ProductResponseDto> queryProducts(ProductQuery query, int page, int size) {
+        return singleFlight.call("query", List.of(query, page, size), () -> productService.queryProducts(query, page, size));
+    }
+
+    @Override
+    public CursorPageResponseDto<ProductResponseDto> filterProductByNameAndCategoryAfter(String name, String category, String after, int size) {
+        return singleFlight.call("filterAfter", Arrays.asList(name, category, after, size),
+                () -> productService.filterProductByNameAndCategoryAfter(name, category, after, size));
+    }
+
+    @Override
+    public CursorPageResponseDto<ProductResponseDto> searchProductByKeywordAfter(String keyword, String after, int size) {
+        return singleFlight.call("searchAfter", Arrays.asList(keyword, after, size),
+                () -> productService.searchProductByKeywordAfter(keyword, after, size));
+    }
+
+    @Override
+    public FacetResponseDto getFacets(String category, String brand) {
+        return singleFlight.call("facets", Arrays.asList(category, brand), () -> productService.getFacets(category, brand));
+    }
+
+    @Override
+    public ChangeFeedResponseDto getChanges(Long epoch, Long since, int limit) {
+        return singleFlight.call("changes", Arrays.asList(epoch, since, limit), () -> productService.getChanges(epoch, since, limit));
+    }
+
+    @Override
+    public ProductResponseDto getById(int id) {
+        return singleFlight.call("getById", List.of(id), () -> productService.getById(id));
+    }
+
+    @Override
+    public ProductResponseDto create(ProductCreateDto productCreateDto) {
+        return productService.create(productCreateDto);
+    }
+
+    @Override
+    public ProductResponseDto update(ProductUpdateDto productUpdateDto) {
+        return productService.update(productUpdateDto);
+    }
+
+    @Override
+    public void patch(int id, ProductPatchDto productPatchDto) {
+        productService.patch(id, productPatchDto);
+    }
+
+    @Override
+    public void adjustInventory(int id, int delta) {
+        productService.adjustInventory(id, delta);
+    }
+
+    @Override
+    public ReservationResponseDto reserve(int id, ReservationCreateDto reservationCreateDto) {
+        return productService.reserve(id, reservationCreateDto);
+    }
+
+    @Override
+    public void confirmReservation(String reservationId) {
+        productService.confirmReservation(reservationId);
+    }
+
+    @Override
+    public void releaseReservation(String reservationId) {
+        productService.releaseReservation(reservationId);
+    }
+
+    @Override
+    public void deleteById(int id) {
+        productService.deleteById(id);
+    }
+
+    @Override
+    public void deleteById(int id, long expectedVersion) {
+        productService.deleteById(id, expectedVersion);
+    }
+
+    @Override
+    public BulkResponseDto createAll(List<ProductCreateDto> productCreateDtos) {
+        return productService.createAll(productCreateDtos);
+    }
+
+    @Override
+    public BulkResponseDto updateAll(List<ProductUpdateDto> productUpdateDtos) {
+        return productService.updateAll(productUpdateDtos);
+    }
+
+    @Override
+    public BulkResponseDto deleteAllById(List<Integer> ids) {
+        return productService.deleteAllById(ids);
+    }
+}
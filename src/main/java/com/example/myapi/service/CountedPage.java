@@ -0,0 +1,27 @@
+package com.example.myapi.service;
+
+import org.springframework.data.domain.PageImpl;
+import org.springframework.data.domain.Pageable;
+
+import java.util.List;
+
+// Page whose total may be an estimate, whether there is a next page is known from the slice that was read
+public class CountedPage<T> extends PageImpl<T> {
+    private final boolean totalApproximate;
+    private final boolean hasNext;
+
+    public CountedPage(List<T> content, Pageable pageable, long total, boolean totalApproximate, boolean hasNext) {
+        super(content, pageable, total);
+        this.totalApproximate = totalApproximate;
+        this.hasNext = hasNext;
+    }
+
+    public boolean isTotalApproximate() {
+        return totalApproximate;
+    }
+
+    @Override
+    public boolean hasNext() {
+        return hasNext;
+    }
+}
@@ -1,19 +1,43 @@
 package com.example.myapi.service;
 
+import com.example.myapi.dto.BulkResponseDto;
+import com.example.myapi.dto.ChangeFeedResponseDto;
+import com.example.myapi.dto.CursorPageResponseDto;
+import com.example.myapi.dto.FacetResponseDto;
 import com.example.myapi.dto.ProductCreateDto;
+import com.example.myapi.dto.ProductPatchDto;
 import com.example.myapi.dto.ProductResponseDto;
 import com.example.myapi.dto.ProductUpdateDto;
+import com.example.myapi.dto.ReservationCreateDto;
+import com.example.myapi.dto.ReservationResponseDto;
 import org.springframework.data.domain.Page;
 import org.springframework.data.domain.PageRequest;
 
 import java.util.List;
+import java.util.function.Consumer;
 
 public interface IProductService {
     List<ProductResponseDto> getAll();
+    void exportAll(Consumer<ProductResponseDto> consumer);
     Page<ProductResponseDto> filterProductByNameAndCategoryPage(String name, String category, int page, int size);
+    Page<ProductResponseDto> filterProductByNameAndCategoryPage(String name, String category, MatchMode match, int page, int size);
     Page<ProductResponseDto> searchProductByKeyword(String keyword, PageRequest pageRequest);
+    Page<ProductResponseDto> queryProducts(ProductQuery query, int page, int size);
+    CursorPageResponseDto<ProductResponseDto> filterProductByNameAndCategoryAfter(String name, String category, String after, int size);
+    CursorPageResponseDto<ProductResponseDto> searchProductByKeywordAfter(String keyword, String after, int size);
+    FacetResponseDto getFacets(String category, String brand);
+    ChangeFeedResponseDto getChanges(Long epoch, Long since, int limit);
     ProductResponseDto getById(int id);
     ProductResponseDto create(ProductCreateDto productCreateDto);
     ProductResponseDto update(ProductUpdateDto productUpdateDto);
+    void patch(int id, ProductPatchDto productPatchDto);
+    void adjustInventory(int id, int delta);
+    ReservationResponseDto reserve(int id, ReservationCreateDto reservationCreateDto);
+    void confirmReservation(String reservationId);
+    void releaseReservation(String reservationId);
     void deleteById(int id);
+    void deleteById(int id, long expectedVersion);
+    BulkResponseDto createAll(List<ProductCreateDto> productCreateDtos);
+    BulkResponseDto updateAll(List<ProductUpdateDto> productUpdateDtos);
+    BulkResponseDto deleteAllById(List<Integer> ids);
 }
@@ -0,0 +1,9 @@
+package com.example.myapi.service;
+
+// How filter values are compared, EXACT and PREFIX use the indexed normalized columns
+public enum MatchMode {
+    EXACT,
+    PREFIX,
+    // Substring match, scans the whole table
+    CONTAINS
+}
@@ -0,0 +1,27 @@
+package com.example.myapi.service;
+
+import com.example.myapi.event.ProductChangeEvent;
+import org.springframework.cache.Cache;
+import org.springframework.cache.CacheManager;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.event.TransactionalEventListener;
+
+/**
+ * Evicts a product from the product cache once its change has committed. Evicting earlier, inside the
+ * writing transaction, lets a load start in between, read the old row and cache it until it expires.
+ * A load that is still running when the eviction arrives does not outlive it either: getById loads with
+ * sync, an atomic compute in Caffeine, and the eviction waits for it and removes what it loaded.
+ */
+@Component
+public class ProductCacheEvictor {
+    private final Cache cache;
+
+    public ProductCacheEvictor(CacheManager cacheManager) {
+        this.cache = cacheManager.getCache(ProductService.PRODUCT_CACHE);
+    }
+
+    @TransactionalEventListener(fallbackExecution = true)
+    public void onProductChange(ProductChangeEvent event) {
+        cache.evict(event.getProductId());
+    }
+}
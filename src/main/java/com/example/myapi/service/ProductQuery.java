@@ -0,0 +1,9 @@
+package com.example.myapi.service;
+
+import java.math.BigDecimal;
+import java.time.LocalDate;
+
+// Predicates of a multi-attribute filter, all inclusive, a null field is not filtered on
+public record ProductQuery(Boolean available, String category, String brand, BigDecimal minPrice, BigDecimal maxPrice,
+                           LocalDate releasedFrom, LocalDate releasedTo) {
+}
@@ -1,88 +1,394 @@
 package com.example.myapi.service;
 
+import com.example.myapi.changes.ProductChangeLog;
+import com.example.myapi.config.MyapiProperties;
+import com.example.myapi.count.ProductCounts;
+import com.example.myapi.dto.BulkItemResultDto;
+import com.example.myapi.dto.BulkResponseDto;
+import com.example.myapi.dto.ChangeFeedResponseDto;
+import com.example.myapi.dto.CursorPageResponseDto;
+import com.example.myapi.dto.FacetResponseDto;
+import com.example.myapi.dto.ProductChangeDto;
 import com.example.myapi.dto.ProductCreateDto;
+import com.example.myapi.dto.ProductPatchDto;
 import com.example.myapi.dto.ProductResponseDto;
 import com.example.myapi.dto.ProductUpdateDto;
+import com.example.myapi.dto.ReservationCreateDto;
+import com.example.myapi.dto.ReservationResponseDto;
+import com.example.myapi.event.ProductChangeEvent;
+import com.example.myapi.exception.BadRequestException;
 import com.example.myapi.exception.ResourceNotFoundException;
+import com.example.myapi.facet.ProductFacets;
+import com.example.myapi.inventory.InventoryWriteBehind;
 import com.example.myapi.mapper.ProductMapper;
+import com.example.myapi.metrics.ProductMetrics;
 import com.example.myapi.model.Product;
+import com.example.myapi.repo.MatchCount;
 import com.example.myapi.repo.ProductRepo;
+import com.example.myapi.reservation.StockReservations;
+import com.example.myapi.search.ProductSearchIndex;
+import com.example.myapi.snapshot.CatalogSnapshot;
+import io.micrometer.core.annotation.Timed;
+import jakarta.persistence.EntityManager;
+import jakarta.persistence.criteria.CriteriaBuilder;
+import jakarta.persistence.criteria.CriteriaUpdate;
+import jakarta.persistence.criteria.Predicate;
+import jakarta.persistence.criteria.Root;
+import jakarta.validation.ConstraintViolation;
+import jakarta.validation.Validator;
+import org.springframework.cache.annotation.Cacheable;
+import org.springframework.context.ApplicationEventPublisher;
+import org.springframework.dao.DataAccessException;
+import org.springframework.data.domain.Limit;
 import org.springframework.data.domain.Page;
+import org.springframework.data.domain.PageImpl;
 import org.springframework.data.domain.PageRequest;
+import org.springframework.data.domain.Pageable;
+import org.springframework.data.domain.Slice;
+import org.springframework.data.domain.Sort;
+import org.springframework.http.HttpStatus;
+import org.springframework.orm.ObjectOptimisticLockingFailureException;
 import org.springframework.stereotype.Service;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.annotation.Transactional;
+import org.springframework.transaction.support.TransactionTemplate;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
+import java.time.LocalDate;
+import java.time.ZoneOffset;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
 import java.util.Date;
+import java.util.HashSet;
 import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+import java.util.Objects;
+import java.util.Set;
+import java.util.function.Consumer;
+import java.util.function.Function;
+import java.util.function.Supplier;
 import java.util.stream.Collectors;
+import java.util.stream.Stream;
 
 @Service
+@Timed(value = "product.service", histogram = true)
 public class ProductService implements IProductService{
     private static final Logger logger = LoggerFactory.getLogger(ProductService.class);
+    public static final String PRODUCT_CACHE = "products";
     private final ProductRepo productRepo;
     private final ProductMapper productMapper;
+    private final EntityManager entityManager;
+    private final ProductSearchIndex productSearchIndex;
+    private final ApplicationEventPublisher eventPublisher;
+    private final Validator validator;
+    private final TransactionTemplate transactionTemplate;
+    private final MyapiProperties properties;
+    private final ProductMetrics productMetrics;
+    private final ProductFacets productFacets;
+    private final InventoryWriteBehind inventoryWriteBehind;
+    private final StockReservations stockReservations;
+    private final ProductChangeLog productChangeLog;
+    private final CatalogSnapshot catalogSnapshot;
+    private final ProductCounts productCounts;
 
-    public ProductService(ProductRepo productRepo, ProductMapper productMapper) {
+    public ProductService(ProductRepo productRepo, ProductMapper productMapper, EntityManager entityManager,
+                          ProductSearchIndex productSearchIndex, ApplicationEventPublisher eventPublisher,
+                          Validator validator, PlatformTransactionManager transactionManager, MyapiProperties properties,
+                          ProductMetrics productMetrics, ProductFacets productFacets,
+                          InventoryWriteBehind inventoryWriteBehind, StockReservations stockReservations,
+                          ProductChangeLog productChangeLog, CatalogSnapshot catalogSnapshot,
+                          ProductCounts productCounts) {
         this.productRepo = productRepo;
         this.productMapper = productMapper;
+        this.entityManager = entityManager;
+        this.productSearchIndex = productSearchIndex;
+        this.eventPublisher = eventPublisher;
+        this.validator = validator;
+        this.transactionTemplate = new TransactionTemplate(transactionManager);
+        this.properties = properties;
+        this.productMetrics = productMetrics;
+        this.productFacets = productFacets;
+        this.inventoryWriteBehind = inventoryWriteBehind;
+        this.stockReservations = stockReservations;
+        this.productChangeLog = productChangeLog;
+        this.catalogSnapshot = catalogSnapshot;
+        this.productCounts = productCounts;
     }
 
+    // Read-only transactions are served by a read replica when replicas are configured
+    @Transactional(readOnly = true)
     public List<ProductResponseDto> getAll() {
         logger.debug("Retrieving all products");
-        return productRepo.findAll()
+        return productRepo.findAllResponses()
                 .stream()
-                .map(productMapper::toResponseDto)
+                .map(this::withPending)
                 .collect(Collectors.toList());
     }
 
     @Override
+    @Transactional(readOnly = true)
+    public void exportAll(Consumer<ProductResponseDto> consumer) {
+        logger.debug("Exporting all products");
+        // Rows are projected into dtos, the persistence context stays empty however large the catalog
+        try (Stream<ProductResponseDto> products = productRepo.streamAll()) {
+            products.forEach(product -> consumer.accept(withPending(product)));
+        }
+    }
+
+    @Override
+    @Transactional(readOnly = true)
     public Page<ProductResponseDto> filterProductByNameAndCategoryPage(String name, String category, int page, int size) {
-        logger.debug("Retrieving products by name and category");
+        return filterProductByNameAndCategoryPage(name, category, MatchMode.CONTAINS, page, size);
+    }
+
+    @Override
+    @Transactional(readOnly = true)
+    public Page<ProductResponseDto> filterProductByNameAndCategoryPage(String name, String category, MatchMode match, int page, int size) {
+        logger.debug("Retrieving products by name and category, match={}", match);
         PageRequest pageRequest = PageRequest.of(page, size);
-        Page<ProductResponseDto> productResponseDtos;
+        Slice<ProductResponseDto> slice;
+        Supplier<MatchCount> count;
+        if (match == MatchMode.CONTAINS) {
+            // Matched by upper(column) like upper(value), values that upper-case alike share a total
+            String nameKey = name != null ? name.toUpperCase(Locale.ROOT) : null;
+            String categoryKey = category != null ? category.toUpperCase(Locale.ROOT) : null;
+            slice = productRepo.findContaining(name, category, pageRequest).map(this::withPending);
+            count = () -> productCounts.count("contains", Arrays.asList(nameKey, categoryKey),
+                    limit -> productRepo.countContaining(name, category, limit));
+        } else {
+            String nameNorm = Product.normalize(name);
+            String categoryNorm = Product.normalize(category);
+            boolean prefix = match == MatchMode.PREFIX;
+            // Exact and prefix lookups go through the secondary indexes on the *_norm columns
+            slice = productRepo.findNormalized(nameNorm, categoryNorm, prefix, pageRequest).map(this::withPending);
+            count = () -> productCounts.count(prefix ? "prefix" : "exact", Arrays.asList(nameNorm, categoryNorm),
+                    limit -> productRepo.countNormalized(nameNorm, categoryNorm, prefix, limit));
+        }
 
-        if (name == null && category == null){
-            productResponseDtos = productRepo.findAll(pageRequest)
-                    .map(productMapper::toResponseDto);
+        // The slice query reads one row past the page to tell whether another one follows
+        productMetrics.recordFilter(slice.getNumberOfElements() + (slice.hasNext() ? 1 : 0), slice.getNumberOfElements());
+        return toPage(slice, count);
+    }
+
+    @Override
+    @Transactional(readOnly = true)
+    public Page<ProductResponseDto> searchProductByKeyword(String keyword, PageRequest pageRequest) {
+        logger.debug("Searching products by keyword: {}", keyword);
+        if (!productSearchIndex.canSearch(keyword)) {
+            String keywordKey = keyword != null ? keyword.toLowerCase(Locale.ROOT) : null;
+            return toPage(productRepo.searchProducts(keyword, pageRequest).map(this::withPending),
+                    () -> productCounts.count("keyword", Collections.singletonList(keywordKey),
+                            limit -> productRepo.countKeyword(keyword, limit)));
         }
-        else if(name == null){
-            productResponseDtos = productRepo.findByCategoryContainingIgnoreCase(category, PageRequest.of(page,size))
-                    .map(productMapper::toResponseDto);
+        ProductSearchIndex.SearchResult result = productSearchIndex.search(keyword,
+                (int) pageRequest.getOffset(), pageRequest.getPageSize());
+        // Only the ranked ids of the requested page are loaded, in index order
+        List<ProductResponseDto> content = findInOrder(result.ids());
+        productMetrics.recordSearch(result.scanned(), result.total(), content.size());
+        return new PageImpl<>(content, pageRequest, result.total());
+    }
+
+    // The slice tells the total on the last page and on an only page, otherwise it is counted or taken from the count cache
+    private static <T> Page<T> toPage(Slice<T> slice, Supplier<MatchCount> count) {
+        Pageable pageable = slice.getPageable();
+        if (!slice.hasNext() && (slice.hasContent() || pageable.getOffset() == 0)) {
+            return new CountedPage<>(slice.getContent(), pageable, pageable.getOffset() + slice.getNumberOfElements(),
+                    false, false);
         }
-        else if(category == null){
-            productResponseDtos = productRepo.findByNameContainingIgnoreCase(name, PageRequest.of(page,size))
-                    .map(productMapper::toResponseDto);
+        MatchCount total = count.get();
+        return new CountedPage<>(slice.getContent(), pageable, total.value(), total.approximate(), slice.hasNext());
+    }
+
+    @Override
+    @Transactional(readOnly = true)
+    public Page<ProductResponseDto> queryProducts(ProductQuery query, int page, int size) {
+        logger.debug("Querying products by {}", query);
+        PageRequest pageRequest = PageRequest.of(page, size, Sort.by("id"));
+        if (!catalogSnapshot.isReady()) {
+            Page<ProductResponseDto> products = productRepo.findByAttributes(query.available(),
+                    Product.normalize(query.category()), Product.normalize(query.brand()), query.minPrice(),
+                    query.maxPrice(), startOfDay(query.releasedFrom()),
+                    query.releasedTo() != null ? startOfDay(query.releasedTo().plusDays(1)) : null, pageRequest)
+                    .map(this::withPending);
+            productMetrics.recordFilter(products.getNumberOfElements(), products.getNumberOfElements());
+            return products;
         }
-        else{
-            productResponseDtos = productRepo.findByNameContainingIgnoreCaseAndCategoryContainingIgnoreCase(name, category, PageRequest.of(page,size))
-                    .map(productMapper::toResponseDto);
+        CatalogSnapshot.ScanResult result = catalogSnapshot.scan(query, (int) pageRequest.getOffset(), size);
+        // The snapshot answers the filter, only the products of the requested page are loaded
+        List<ProductResponseDto> content = findInOrder(result.ids());
+        productMetrics.recordSearch(result.scanned(), result.total(), content.size());
+        return new PageImpl<>(content, pageRequest, result.total());
+    }
+
+    // Products deleted since the ids were read are left out
+    private List<ProductResponseDto> findInOrder(List<Integer> ids) {
+        if (ids.isEmpty()) {
+            return new ArrayList<>();
         }
+        Map<Integer, ProductResponseDto> productsById = productRepo.findResponsesByIdIn(ids)
+                .stream()
+                .collect(Collectors.toMap(ProductResponseDto::getId, Function.identity()));
+        return ids.stream()
+                .map(productsById::get)
+                .filter(Objects::nonNull)
+                .map(this::withPending)
+                .collect(Collectors.toList());
+    }
 
-        return productResponseDtos;
+    private static Date startOfDay(LocalDate date) {
+        return date != null ? Date.from(date.atStartOfDay(ZoneOffset.UTC).toInstant()) : null;
     }
 
     @Override
-    public Page<ProductResponseDto> searchProductByKeyword(String keyword, PageRequest pageRequest) {
-        logger.debug("Searching products by keyword: {}", keyword);
-        return productRepo.searchProducts(keyword, pageRequest)
-                .map(productMapper::toResponseDto);
+    @Transactional(readOnly = true)
+    public CursorPageResponseDto<ProductResponseDto> filterProductByNameAndCategoryAfter(String name, String category, String after, int size) {
+        logger.debug("Retrieving products by name and category after cursor");
+        requireCursorSize(size);
+        int afterId = ProductCursor.decode(after);
+        // One extra row tells whether a next slice exists without running a count query
+        List<ProductResponseDto> products = productRepo.filterProductsAfter(name, category, afterId, Limit.of(size + 1));
+        return toCursorPage(products, size);
     }
 
+    @Override
+    @Transactional(readOnly = true)
+    public CursorPageResponseDto<ProductResponseDto> searchProductByKeywordAfter(String keyword, String after, int size) {
+        logger.debug("Searching products by keyword after cursor: {}", keyword);
+        requireCursorSize(size);
+        int afterId = ProductCursor.decode(after);
+        List<ProductResponseDto> products = productRepo.searchProductsAfter(keyword, afterId, Limit.of(size + 1));
+        return toCursorPage(products, size);
+    }
+
+    private static void requireCursorSize(int size) {
+        if (size < 1) {
+            throw new BadRequestException("size must be at least 1");
+        }
+    }
 
+    private CursorPageResponseDto<ProductResponseDto> toCursorPage(List<ProductResponseDto> products, int size) {
+        boolean hasNext = products.size() > size;
+        List<ProductResponseDto> content = products.stream()
+                .limit(size)
+                .map(this::withPending)
+                .collect(Collectors.toList());
+        String nextCursor = hasNext ? ProductCursor.encode(content.get(content.size() - 1).getId()) : null;
+        return CursorPageResponseDto.<ProductResponseDto>builder()
+                .content(content)
+                .size(content.size())
+                .hasNext(hasNext)
+                .nextCursor(nextCursor)
+                .build();
+    }
+
+    @Override
+    public FacetResponseDto getFacets(String category, String brand) {
+        logger.debug("Retrieving facets for category={} brand={}", category, brand);
+        return productFacets.facets(category, brand);
+    }
+
+    @Override
+    @Transactional(readOnly = true)
+    public ChangeFeedResponseDto getChanges(Long epoch, Long since, int limit) {
+        logger.debug("Retrieving changes since {}", since);
+        ProductChangeLog.Slice slice = productChangeLog.read(epoch, since, limit);
+        // The log only has ids, the current state of the changed products is read with one query
+        Set<Integer> ids = slice.entries().stream()
+                .filter(entry -> entry.type() != ProductChangeEvent.Type.DELETED)
+                .map(ProductChangeLog.Entry::productId)
+                .collect(Collectors.toSet());
+        Map<Integer, ProductResponseDto> productsById = ids.isEmpty() ? Map.of() : productRepo.findResponsesByIdIn(ids)
+                .stream()
+                .collect(Collectors.toMap(ProductResponseDto::getId, Function.identity()));
+        List<ProductChangeDto> changes = slice.entries().stream()
+                .map(entry -> {
+                    ProductResponseDto product = productsById.get(entry.productId());
+                    return ProductChangeDto.builder()
+                            .sequence(entry.sequence())
+                            // Deleted after the change was logged, the DELETED change itself comes later
+                            .type(product != null ? entry.type() : ProductChangeEvent.Type.DELETED)
+                            .productId(entry.productId())
+                            .committedAt(entry.committedAt())
+                            .product(product != null ? withPending(product) : null)
+                            .build();
+                })
+                .collect(Collectors.toList());
+        return ChangeFeedResponseDto.builder()
+                .epoch(productChangeLog.epoch())
+                .next(slice.next())
+                .resetRequired(slice.resetRequired())
+                .changes(changes)
+                .build();
+    }
+
+    // sync = true lets concurrent misses on the same id share a single load, ProductCacheEvictor evicts on commit
+    @Cacheable(value = PRODUCT_CACHE, key = "#id", sync = true)
+    @Transactional(readOnly = true)
     public ProductResponseDto getById(int id) {
         logger.debug("Retrieving product by ID: {}", id);
         return productRepo.findById(id)
-                .map(productMapper::toResponseDto)
+                .map(this::toResponseDto)
                 .orElseThrow(() -> new ResourceNotFoundException("Product not found with ID: "+ id));
     }
 
+    @Override
+    public void adjustInventory(int id, int delta) {
+        logger.debug("Adjusting inventory of product with ID: {} by {}", id, delta);
+        if (delta == 0) {
+            throw new BadRequestException("Inventory delta cannot be zero for product with ID: " + id);
+        }
+        ProductResponseDto current = productRepo.findResponseById(id)
+                .orElseThrow(() -> new ResourceNotFoundException("Product not found with ID: " + id));
+        // Acknowledged once logged, the quantity is written by the next flush and reads add it until then
+        inventoryWriteBehind.adjust(current, delta);
+        eventPublisher.publishEvent(ProductChangeEvent.inventoryAdjusted(id));
+    }
+
+    @Override
+    public ReservationResponseDto reserve(int id, ReservationCreateDto reservationCreateDto) {
+        logger.debug("Reserving {} units of product with ID: {}", reservationCreateDto.getQuantity(), id);
+        // Held in memory, the quantity only changes once the reservation is confirmed
+        return stockReservations.reserve(id, reservationCreateDto.getQuantity(), reservationCreateDto.getTtlSeconds());
+    }
+
+    @Override
+    public void confirmReservation(String reservationId) {
+        logger.debug("Confirming reservation: {}", reservationId);
+        stockReservations.confirm(reservationId);
+    }
+
+    @Override
+    public void releaseReservation(String reservationId) {
+        logger.debug("Releasing reservation: {}", reservationId);
+        stockReservations.release(reservationId);
+    }
+
+    @Transactional
     public void deleteById(int id) {
         logger.debug("Deleting product with ID: {}", id);
-        if(productRepo.findById(id).isPresent()){
-            productRepo.deleteById(id);
-        }else{
+        flushInventory(id);
+        // A single DELETE, the affected row count tells whether the product existed
+        if (productRepo.deleteProductById(id) == 0) {
             throw new ResourceNotFoundException("Product not found with ID: "+id);
         }
+        eventPublisher.publishEvent(ProductChangeEvent.deleted(id));
+        logger.debug("Product deleted by ID: {}", id);
+    }
+
+    @Override
+    @Transactional
+    public void deleteById(int id, long expectedVersion) {
+        logger.debug("Deleting product with ID: {} at version: {}", id, expectedVersion);
+        flushInventory(id);
+        if (productRepo.deleteProductByIdAndVersion(id, expectedVersion) == 0) {
+            if (productRepo.existsById(id)) {
+                throw new ObjectOptimisticLockingFailureException(Product.class, id);
+            }
+            throw new ResourceNotFoundException("Product not found with ID: "+id);
+        }
+        eventPublisher.publishEvent(ProductChangeEvent.deleted(id));
         logger.debug("Product deleted by ID: {}", id);
     }
 
@@ -90,18 +396,240 @@ public class ProductService implements IProductService{
         logger.debug("Creating product with name: {}",productCreateDto.getName());
         Product product = productMapper.toEntityFromCreateDto(productCreateDto);
         product.setReleaseDate(new Date());
-        ProductResponseDto productResponseDto = productMapper.toResponseDto(productRepo.save(product));
+        Product savedProduct = productRepo.save(product);
+        eventPublisher.publishEvent(ProductChangeEvent.created(savedProduct));
+        ProductResponseDto productResponseDto = productMapper.toResponseDto(savedProduct);
         logger.debug("Product created with ID: {}", productResponseDto.getId());
         return productResponseDto;
     }
 
     public ProductResponseDto update(ProductUpdateDto productUpdateDto) {
         logger.debug("Updating product with ID: {}", productUpdateDto.getId());
+        flushInventory(productUpdateDto.getId());
         Product existingProduct = productRepo.findById(productUpdateDto.getId())
                 .orElseThrow(() -> new ResourceNotFoundException("Product not found with ID: "+productUpdateDto.getId()));
+        checkVersion(productUpdateDto.getVersion(), existingProduct);
         Product product = productMapper.updateProductFromUpdateDto(productUpdateDto, existingProduct);
-        ProductResponseDto productResponseDto = productMapper.toResponseDto(productRepo.save(product));
+        Product savedProduct = productRepo.save(product);
+        eventPublisher.publishEvent(ProductChangeEvent.updated(savedProduct));
+        ProductResponseDto productResponseDto = productMapper.toResponseDto(savedProduct);
         logger.debug("Product updated by id");
         return productResponseDto;
     }
+
+    @Override
+    @Transactional
+    public void patch(int id, ProductPatchDto productPatchDto) {
+        logger.debug("Patching product with ID: {}", id);
+        if (productPatchDto.isEmpty()) {
+            throw new BadRequestException("No fields to update for product with ID: " + id);
+        }
+        flushInventory(id);
+        // One UPDATE touching only the changed columns, no entity is loaded
+        CriteriaBuilder criteriaBuilder = entityManager.getCriteriaBuilder();
+        CriteriaUpdate<Product> update = criteriaBuilder.createCriteriaUpdate(Product.class);
+        Root<Product> root = update.from(Product.class);
+        setIfPresent(update, root, "name", productPatchDto.getName());
+        setIfPresent(update, root, "desc", productPatchDto.getDesc());
+        setIfPresent(update, root, "brand", productPatchDto.getBrand());
+        setIfPresent(update, root, "price", productPatchDto.getPrice());
+        setIfPresent(update, root, "category", productPatchDto.getCategory());
+        // Bulk updates bypass the entity callbacks, keep the normalized columns in step here
+        setIfPresent(update, root, "nameNorm", Product.normalize(productPatchDto.getName()));
+        setIfPresent(update, root, "brandNorm", Product.normalize(productPatchDto.getBrand()));
+        setIfPresent(update, root, "categoryNorm", Product.normalize(productPatchDto.getCategory()));
+        setIfPresent(update, root, "available", productPatchDto.getAvailable());
+        setIfPresent(update, root, "quantity", productPatchDto.getQuantity());
+        update.set(root.<Long>get("version"), criteriaBuilder.sum(root.<Long>get("version"), 1L));
+
+        Predicate predicate = criteriaBuilder.equal(root.get("id"), id);
+        if (productPatchDto.getVersion() != null) {
+            predicate = criteriaBuilder.and(predicate, criteriaBuilder.equal(root.get("version"), productPatchDto.getVersion()));
+        }
+        update.where(predicate);
+
+        if (entityManager.createQuery(update).executeUpdate() == 0) {
+            if (productPatchDto.getVersion() != null && productRepo.existsById(id)) {
+                throw new ObjectOptimisticLockingFailureException(Product.class, id);
+            }
+            throw new ResourceNotFoundException("Product not found with ID: " + id);
+        }
+        eventPublisher.publishEvent(ProductChangeEvent.patched(id, productPatchDto));
+        logger.debug("Product patched by ID: {}", id);
+    }
+
+    // Pending inventory deltas are written before any other write to the product, which also makes the version match
+    private void flushInventory(int id) {
+        if (inventoryWriteBehind.hasPending(id)) {
+            inventoryWriteBehind.flush();
+        }
+    }
+
+    private ProductResponseDto toResponseDto(Product product) {
+        return withPending(productMapper.toResponseDto(product));
+    }
+
+    private ProductResponseDto withPending(ProductResponseDto productResponseDto) {
+        inventoryWriteBehind.applyPending(productResponseDto);
+        return productResponseDto;
+    }
+
+    private static <T> void setIfPresent(CriteriaUpdate<Product> update, Root<Product> root, String attribute, T value) {
+        if (value != null) {
+            update.set(root.<T>get(attribute), value);
+        }
+    }
+
+    private static void checkVersion(Long expectedVersion, Product product) {
+        if (expectedVersion != null && !expectedVersion.equals(product.getVersion())) {
+            throw new ObjectOptimisticLockingFailureException(Product.class, product.getId());
+        }
+    }
+
+    @Override
+    public BulkResponseDto createAll(List<ProductCreateDto> productCreateDtos) {
+        logger.debug("Bulk creating {} products", productCreateDtos.size());
+        return applyInChunks(productCreateDtos, this::createChunk);
+    }
+
+    @Override
+    public BulkResponseDto updateAll(List<ProductUpdateDto> productUpdateDtos) {
+        logger.debug("Bulk updating {} products", productUpdateDtos.size());
+        if (inventoryWriteBehind.hasPending()) {
+            inventoryWriteBehind.flush();
+        }
+        return applyInChunks(productUpdateDtos, this::updateChunk);
+    }
+
+    @Override
+    public BulkResponseDto deleteAllById(List<Integer> ids) {
+        logger.debug("Bulk deleting {} products", ids.size());
+        return applyInChunks(ids, this::deleteChunk);
+    }
+
+    // Applies one chunk inside the current transaction, offset is the index of the chunk's first item
+    private interface ChunkHandler<T> {
+        List<BulkItemResultDto> apply(List<T> chunk, int offset);
+    }
+
+    private <T> BulkResponseDto applyInChunks(List<T> items, ChunkHandler<T> handler) {
+        int chunkSize = Math.max(1, properties.getBulk().getChunkSize());
+        List<BulkItemResultDto> results = new ArrayList<>(items.size());
+        for (int from = 0; from < items.size(); from += chunkSize) {
+            List<T> chunk = items.subList(from, Math.min(from + chunkSize, items.size()));
+            int offset = from;
+            try {
+                results.addAll(transactionTemplate.execute(status -> applyAndClear(handler, chunk, offset)));
+            } catch (DataAccessException e) {
+                // One bad row rolls back the whole chunk, retry its items one by one so only the bad rows fail
+                logger.warn("Bulk chunk starting at {} failed, retrying item by item: {}", offset, e.getMessage());
+                for (int i = 0; i < chunk.size(); i++) {
+                    List<T> single = List.of(chunk.get(i));
+                    int index = offset + i;
+                    try {
+                        results.addAll(transactionTemplate.execute(status -> applyAndClear(handler, single, index)));
+                    } catch (DataAccessException ex) {
+                        results.add(failure(index, null, HttpStatus.CONFLICT, "Data integrity violation occured"));
+                    }
+                }
+            }
+        }
+        return BulkResponseDto.of(results);
+    }
+
+    private <T> List<BulkItemResultDto> applyAndClear(ChunkHandler<T> handler, List<T> chunk, int offset) {
+        List<BulkItemResultDto> results = handler.apply(chunk, offset);
+        // Flush the JDBC batch and keep the persistence context from growing across chunks
+        entityManager.flush();
+        entityManager.clear();
+        return results;
+    }
+
+    private List<BulkItemResultDto> createChunk(List<ProductCreateDto> chunk, int offset) {
+        List<BulkItemResultDto> results = new ArrayList<>(chunk.size());
+        Date releaseDate = new Date();
+        for (int i = 0; i < chunk.size(); i++) {
+            ProductCreateDto productCreateDto = chunk.get(i);
+            String violations = validate(productCreateDto);
+            if (violations != null) {
+                results.add(failure(offset + i, null, HttpStatus.BAD_REQUEST, violations));
+                continue;
+            }
+            Product product = productMapper.toEntityFromCreateDto(productCreateDto);
+            product.setReleaseDate(releaseDate);
+            entityManager.persist(product);
+            eventPublisher.publishEvent(ProductChangeEvent.created(product));
+            results.add(success(offset + i, product.getId(), HttpStatus.CREATED));
+        }
+        return results;
+    }
+
+    private List<BulkItemResultDto> updateChunk(List<ProductUpdateDto> chunk, int offset) {
+        // One SELECT ... IN for the whole chunk, dirty checking then emits batched UPDATEs on flush
+        Map<Integer, Product> existingProducts = productRepo.findAllById(chunk.stream().map(ProductUpdateDto::getId).toList())
+                .stream()
+                .collect(Collectors.toMap(Product::getId, Function.identity()));
+        List<BulkItemResultDto> results = new ArrayList<>(chunk.size());
+        for (int i = 0; i < chunk.size(); i++) {
+            ProductUpdateDto productUpdateDto = chunk.get(i);
+            String violations = validate(productUpdateDto);
+            if (violations != null) {
+                results.add(failure(offset + i, productUpdateDto.getId(), HttpStatus.BAD_REQUEST, violations));
+                continue;
+            }
+            Product existingProduct = existingProducts.get(productUpdateDto.getId());
+            if (existingProduct == null) {
+                results.add(failure(offset + i, productUpdateDto.getId(), HttpStatus.NOT_FOUND,
+                        "Product not found with ID: " + productUpdateDto.getId()));
+                continue;
+            }
+            if (productUpdateDto.getVersion() != null && !productUpdateDto.getVersion().equals(existingProduct.getVersion())) {
+                results.add(failure(offset + i, productUpdateDto.getId(), HttpStatus.CONFLICT,
+                        "Product was modified concurrently, expected version " + productUpdateDto.getVersion()));
+                continue;
+            }
+            Product product = productMapper.updateProductFromUpdateDto(productUpdateDto, existingProduct);
+            eventPublisher.publishEvent(ProductChangeEvent.updated(product));
+            results.add(success(offset + i, product.getId(), HttpStatus.OK));
+        }
+        return results;
+    }
+
+    private List<BulkItemResultDto> deleteChunk(List<Integer> chunk, int offset) {
+        Set<Integer> existingIds = new HashSet<>(productRepo.findExistingIds(chunk));
+        existingIds.forEach(this::flushInventory);
+        if (!existingIds.isEmpty()) {
+            productRepo.deleteAllByIdInBatch(existingIds);
+        }
+        List<BulkItemResultDto> results = new ArrayList<>(chunk.size());
+        for (int i = 0; i < chunk.size(); i++) {
+            Integer id = chunk.get(i);
+            if (existingIds.contains(id)) {
+                eventPublisher.publishEvent(ProductChangeEvent.deleted(id));
+                results.add(success(offset + i, id, HttpStatus.NO_CONTENT));
+            } else {
+                results.add(failure(offset + i, id, HttpStatus.NOT_FOUND, "Product not found with ID: " + id));
+            }
+        }
+        return results;
+    }
+
+    private <T> String validate(T dto) {
+        Set<ConstraintViolation<T>> violations = validator.validate(dto);
+        if (violations.isEmpty()) {
+            return null;
+        }
+        return violations.stream()
+                .map(violation -> violation.getPropertyPath() + ": " + violation.getMessage())
+                .sorted()
+                .collect(Collectors.joining(", "));
+    }
+
+    private static BulkItemResultDto success(int index, Integer id, HttpStatus status) {
+        return new BulkItemResultDto(index, id, status.value(), null);
+    }
+
+    private static BulkItemResultDto failure(int index, Integer id, HttpStatus status, String error) {
+        return new BulkItemResultDto(index, id, status.value(), error);
+    }
 }
@@ -0,0 +1,323 @@
+package com.example.myapi.snapshot;
+
+import com.example.myapi.model.Product;
+import com.example.myapi.service.ProductQuery;
+
+import java.math.BigDecimal;
+import java.math.RoundingMode;
+import java.time.Instant;
+import java.time.ZoneId;
+import java.time.ZoneOffset;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Date;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.stream.IntStream;
+
+/**
+ * The catalog as primitive columns with one row per product: prices in cents, release dates as epoch days,
+ * availability and liveness as bitsets, category and brand as codes into dictionaries of their normalized values.
+ * A filter is evaluated 64 rows at a time into a bit mask, one column after the other, with branch-free loops
+ * over the column arrays; the remaining columns of a block are skipped once no row is left. Deleted products
+ * leave a dead row behind until the next rebuild. Not thread safe, guarded by CatalogSnapshot.
+ */
+class CatalogColumns {
+    static final int BLOCK = 64;
+    // Blocks scanned by one task of a parallel scan
+    private static final int CHUNK_BLOCKS = 1024;
+    private static final int PARALLEL_MIN_BLOCKS = 2 * CHUNK_BLOCKS;
+    // Prices and price bounds are clamped to +-2^61, the difference of any two of them cannot overflow
+    private static final long MAX_CENTS = 1L << 61;
+    private static final long NO_PRICE = -(1L << 62);
+    private static final int NO_DATE = Integer.MIN_VALUE;
+    private static final int NO_VALUE = -1;
+    // Release dates are read and written as UTC days by the API
+    private static final ZoneId ZONE = ZoneOffset.UTC;
+
+    // Encoded predicates, an absent predicate is not evaluated
+    record Filter(int available, int category, int brand, long minCents, long maxCents, long minDay, long maxDay,
+                  boolean prices, boolean dates) {
+    }
+
+    // ids is the requested page, total counts every matching row
+    record Result(int[] ids, int total) {
+    }
+
+    // Matches of one chunk, rows holds the first of them in row order
+    private record ChunkResult(int[] rows, int count) {
+    }
+
+    private final Map<Integer, Integer> rowsById = new HashMap<>();
+    private final Map<String, Integer> categoryCodes = new HashMap<>();
+    private final Map<String, Integer> brandCodes = new HashMap<>();
+    private int[] ids;
+    private long[] prices;
+    private int[] releaseDays;
+    private int[] categories;
+    private int[] brands;
+    private long[] available;
+    private long[] live;
+    private int rows;
+    // Rows were appended in id order, the first matches of a scan are then the lowest ids
+    private boolean sortedById = true;
+
+    CatalogColumns(int capacity) {
+        allocate(Math.max(BLOCK, roundUp(capacity)));
+    }
+
+    int size() {
+        return rowsById.size();
+    }
+
+    int rows() {
+        return rows;
+    }
+
+    void put(int id, String category, String brand, boolean isAvailable, BigDecimal price, Date releaseDate) {
+        Integer row = rowsById.get(id);
+        if (row == null) {
+            row = append(id);
+        }
+        categories[row] = code(categoryCodes, Product.normalize(category));
+        brands[row] = code(brandCodes, Product.normalize(brand));
+        setBit(available, row, isAvailable);
+        prices[row] = cents(price);
+        releaseDays[row] = releaseDate != null
+                ? (int) Instant.ofEpochMilli(releaseDate.getTime()).atZone(ZONE).toLocalDate().toEpochDay() : NO_DATE;
+    }
+
+    // Applies the non-null fields of a partial update, unknown ids are left to the next rebuild
+    void patch(int id, String category, String brand, Boolean isAvailable, BigDecimal price) {
+        Integer row = rowsById.get(id);
+        if (row == null) {
+            return;
+        }
+        if (category != null) {
+            categories[row] = code(categoryCodes, Product.normalize(category));
+        }
+        if (brand != null) {
+            brands[row] = code(brandCodes, Product.normalize(brand));
+        }
+        if (isAvailable != null) {
+            setBit(available, row, isAvailable);
+        }
+        if (price != null) {
+            prices[row] = cents(price);
+        }
+    }
+
+    void remove(int id) {
+        Integer row = rowsById.remove(id);
+        if (row != null) {
+            setBit(live, row, false);
+        }
+    }
+
+    // Null when a value the query asks for does not occur in the catalog, nothing can match then
+    Filter filter(ProductQuery query) {
+        int category = NO_VALUE;
+        if (query.category() != null) {
+            Integer code = categoryCodes.get(Product.normalize(query.category()));
+            if (code == null) {
+                return null;
+            }
+            category = code;
+        }
+        int brand = NO_VALUE;
+        if (query.brand() != null) {
+            Integer code = brandCodes.get(Product.normalize(query.brand()));
+            if (code == null) {
+                return null;
+            }
+            brand = code;
+        }
+        // Bounds are rounded inward, prices are stored with two decimals
+        long minCents = query.minPrice() != null ? clamp(query.minPrice().setScale(2, RoundingMode.CEILING)) : -MAX_CENTS;
+        long maxCents = query.maxPrice() != null ? clamp(query.maxPrice().setScale(2, RoundingMode.FLOOR)) : MAX_CENTS;
+        long minDay = query.releasedFrom() != null ? Math.max(query.releasedFrom().toEpochDay(), NO_DATE + 1L) : NO_DATE + 1L;
+        long maxDay = query.releasedTo() != null ? Math.min(query.releasedTo().toEpochDay(), Integer.MAX_VALUE) : Integer.MAX_VALUE;
+        return new Filter(query.available() == null ? NO_VALUE : query.available() ? 1 : 0, category, brand,
+                minCents, maxCents, minDay, maxDay,
+                query.minPrice() != null || query.maxPrice() != null,
+                query.releasedFrom() != null || query.releasedTo() != null);
+    }
+
+    // Matching products ordered by id, the page starting at offset and the total count
+    Result scan(Filter filter, int offset, int limit) {
+        int blocks = roundUp(rows) / BLOCK;
+        int chunks = (blocks + CHUNK_BLOCKS - 1) / CHUNK_BLOCKS;
+        // Out of id order every match has to be collected and sorted
+        int keep = sortedById ? (int) Math.min((long) offset + limit, Integer.MAX_VALUE) : Integer.MAX_VALUE;
+        IntStream tasks = IntStream.range(0, chunks);
+        if (blocks >= PARALLEL_MIN_BLOCKS) {
+            tasks = tasks.parallel();
+        }
+        List<ChunkResult> results = tasks
+                .mapToObj(chunk -> scanChunk(filter, chunk * CHUNK_BLOCKS, Math.min(blocks, (chunk + 1) * CHUNK_BLOCKS), keep))
+                .toList();
+        int total = 0;
+        List<int[]> matches = new ArrayList<>(results.size());
+        int collected = 0;
+        for (ChunkResult result : results) {
+            total += result.count();
+            if (collected < keep && result.rows().length > 0) {
+                matches.add(result.rows());
+                collected += result.rows().length;
+            }
+        }
+        int[] matchedIds = new int[Math.min(collected, keep)];
+        int next = 0;
+        for (int[] chunkRows : matches) {
+            for (int i = 0; i < chunkRows.length && next < matchedIds.length; i++) {
+                matchedIds[next++] = ids[chunkRows[i]];
+            }
+        }
+        if (!sortedById) {
+            Arrays.sort(matchedIds);
+        }
+        int from = Math.min(offset, matchedIds.length);
+        return new Result(Arrays.copyOfRange(matchedIds, from, Math.min(matchedIds.length, from + limit)), total);
+    }
+
+    private ChunkResult scanChunk(Filter filter, int fromBlock, int toBlock, int keep) {
+        int count = 0;
+        int[] kept = new int[Math.min(keep, 256)];
+        int keptCount = 0;
+        for (int block = fromBlock; block < toBlock; block++) {
+            long mask = blockMask(filter, block);
+            if (mask == 0) {
+                continue;
+            }
+            count += Long.bitCount(mask);
+            int base = block * BLOCK;
+            while (keptCount < keep && mask != 0) {
+                if (keptCount == kept.length) {
+                    kept = Arrays.copyOf(kept, (int) Math.min((long) kept.length * 2, keep));
+                }
+                kept[keptCount++] = base + Long.numberOfTrailingZeros(mask);
+                mask &= mask - 1;
+            }
+        }
+        return new ChunkResult(Arrays.copyOf(kept, keptCount), count);
+    }
+
+    private long blockMask(Filter filter, int block) {
+        long mask = live[block];
+        if (filter.available() != NO_VALUE) {
+            mask &= filter.available() == 1 ? available[block] : ~available[block];
+        }
+        int base = block * BLOCK;
+        if (mask != 0 && filter.category() != NO_VALUE) {
+            mask &= equalMask(categories, base, filter.category());
+        }
+        if (mask != 0 && filter.brand() != NO_VALUE) {
+            mask &= equalMask(brands, base, filter.brand());
+        }
+        if (mask != 0 && filter.prices()) {
+            mask &= rangeMask(prices, base, filter.minCents(), filter.maxCents());
+        }
+        if (mask != 0 && filter.dates()) {
+            mask &= rangeMask(releaseDays, base, filter.minDay(), filter.maxDay());
+        }
+        return mask;
+    }
+
+    // Bit i is set when column[base + i] == value: x | -x has the sign bit set for every x except 0
+    private static long equalMask(int[] column, int base, int value) {
+        long mask = 0;
+        for (int i = 0; i < BLOCK; i++) {
+            int x = column[base + i] ^ value;
+            mask |= (long) (~(x | -x) >>> 31) << i;
+        }
+        return mask;
+    }
+
+    // Bit i is set when min <= column[base + i] <= max: both differences are then non-negative
+    private static long rangeMask(long[] column, int base, long min, long max) {
+        long mask = 0;
+        for (int i = 0; i < BLOCK; i++) {
+            long value = column[base + i];
+            mask |= (~((value - min) | (max - value)) >>> 63) << i;
+        }
+        return mask;
+    }
+
+    private static long rangeMask(int[] column, int base, long min, long max) {
+        long mask = 0;
+        for (int i = 0; i < BLOCK; i++) {
+            long value = column[base + i];
+            mask |= (~((value - min) | (max - value)) >>> 63) << i;
+        }
+        return mask;
+    }
+
+    private int append(int id) {
+        if (rows == ids.length) {
+            grow(ids.length + (ids.length >> 1));
+        }
+        int row = rows++;
+        if (row > 0 && id < ids[row - 1]) {
+            sortedById = false;
+        }
+        ids[row] = id;
+        setBit(live, row, true);
+        rowsById.put(id, row);
+        return row;
+    }
+
+    private void allocate(int capacity) {
+        ids = new int[capacity];
+        prices = new long[capacity];
+        releaseDays = new int[capacity];
+        categories = new int[capacity];
+        brands = new int[capacity];
+        available = new long[capacity / BLOCK];
+        live = new long[capacity / BLOCK];
+    }
+
+    // Capacity stays a multiple of the block size, a block never reads past the arrays
+    private void grow(int capacity) {
+        capacity = roundUp(capacity);
+        ids = Arrays.copyOf(ids, capacity);
+        prices = Arrays.copyOf(prices, capacity);
+        releaseDays = Arrays.copyOf(releaseDays, capacity);
+        categories = Arrays.copyOf(categories, capacity);
+        brands = Arrays.copyOf(brands, capacity);
+        available = Arrays.copyOf(available, capacity / BLOCK);
+        live = Arrays.copyOf(live, capacity / BLOCK);
+    }
+
+    private static int code(Map<String, Integer> codes, String value) {
+        return value == null ? NO_VALUE : codes.computeIfAbsent(value, key -> codes.size());
+    }
+
+    private static long cents(BigDecimal price) {
+        // Rounded like the DECIMAL(38,2) column stores it
+        return price == null ? NO_PRICE : clamp(price.setScale(2, RoundingMode.HALF_UP));
+    }
+
+    private static long clamp(BigDecimal amount) {
+        BigDecimal cents = amount.movePointRight(2);
+        if (cents.compareTo(BigDecimal.valueOf(MAX_CENTS)) > 0) {
+            return MAX_CENTS;
+        }
+        if (cents.compareTo(BigDecimal.valueOf(-MAX_CENTS)) < 0) {
+            return -MAX_CENTS;
+        }
+        return cents.longValueExact();
+    }
+
+    private static void setBit(long[] bits, int row, boolean value) {
+        if (value) {
+            bits[row / BLOCK] |= 1L << row;
+        } else {
+            bits[row / BLOCK] &= ~(1L << row);
+        }
+    }
+
+    private static int roundUp(int rows) {
+        return (rows + BLOCK - 1) / BLOCK * BLOCK;
+    }
+}
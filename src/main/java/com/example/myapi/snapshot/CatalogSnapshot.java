@@ -0,0 +1,136 @@
+package com.example.myapi.snapshot;
+
+import com.example.myapi.dto.ProductPatchDto;
+import com.example.myapi.event.ProductChangeEvent;
+import com.example.myapi.model.Product;
+import com.example.myapi.service.ProductQuery;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.event.TransactionalEventListener;
+
+import java.math.BigDecimal;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Date;
+import java.util.List;
+import java.util.concurrent.locks.ReadWriteLock;
+import java.util.concurrent.locks.ReentrantReadWriteLock;
+
+/**
+ * Read-optimized columnar copy of the filterable product attributes, kept current from ProductChangeEvent.
+ * Multi-attribute filters scan the columns in parallel instead of querying and hydrating products, only the
+ * requested page is read from the database. CatalogSnapshotLoader loads it on startup and rebuilds it
+ * periodically, which also drops the rows of deleted products.
+ */
+@Component
+public class CatalogSnapshot {
+    // scanned is the number of rows the filter was evaluated on
+    public record ScanResult(List<Integer> ids, int total, long scanned) {
+    }
+
+    private final ReadWriteLock lock = new ReentrantReadWriteLock();
+    private CatalogColumns columns = new CatalogColumns(0);
+    // Changes seen while a rebuild is running, replayed onto the rebuilt columns before they are swapped in
+    private List<ProductChangeEvent> pendingChanges;
+    private volatile boolean ready;
+
+    // False until the first load, filters are answered by the database until then
+    public boolean isReady() {
+        return ready;
+    }
+
+    public int size() {
+        lock.readLock().lock();
+        try {
+            return columns.size();
+        } finally {
+            lock.readLock().unlock();
+        }
+    }
+
+    // Matching product ids ordered by id, the page starting at offset and the total count
+    public ScanResult scan(ProductQuery query, int offset, int limit) {
+        lock.readLock().lock();
+        try {
+            CatalogColumns.Filter filter = columns.filter(query);
+            if (filter == null) {
+                return new ScanResult(List.of(), 0, 0);
+            }
+            CatalogColumns.Result result = columns.scan(filter, offset, limit);
+            return new ScanResult(Arrays.stream(result.ids()).boxed().toList(), result.total(), columns.rows());
+        } finally {
+            lock.readLock().unlock();
+        }
+    }
+
+    // Starts recording changes, the caller fills the returned columns from the database and passes them to finishRebuild
+    public Rebuild startRebuild(int expectedSize) {
+        lock.writeLock().lock();
+        try {
+            pendingChanges = new ArrayList<>();
+        } finally {
+            lock.writeLock().unlock();
+        }
+        return new Rebuild(new CatalogColumns(expectedSize));
+    }
+
+    public void finishRebuild(Rebuild rebuild) {
+        lock.writeLock().lock();
+        try {
+            // Replaying is idempotent, every change sets attributes rather than adjusting them
+            pendingChanges.forEach(change -> apply(rebuild.columns, change));
+            pendingChanges = null;
+            columns = rebuild.columns;
+            ready = true;
+        } finally {
+            lock.writeLock().unlock();
+        }
+    }
+
+    public void abandonRebuild() {
+        lock.writeLock().lock();
+        try {
+            pendingChanges = null;
+        } finally {
+            lock.writeLock().unlock();
+        }
+    }
+
+    @TransactionalEventListener(fallbackExecution = true)
+    public void onProductChange(ProductChangeEvent event) {
+        lock.writeLock().lock();
+        try {
+            apply(columns, event);
+            if (pendingChanges != null) {
+                pendingChanges.add(event);
+            }
+        } finally {
+            lock.writeLock().unlock();
+        }
+    }
+
+    private static void apply(CatalogColumns target, ProductChangeEvent event) {
+        if (event.getType() == ProductChangeEvent.Type.DELETED) {
+            target.remove(event.getProductId());
+        } else if (event.isPartial()) {
+            ProductPatchDto patch = event.getPatch();
+            target.patch(event.getProductId(), patch.getCategory(), patch.getBrand(), patch.getAvailable(), patch.getPrice());
+        } else {
+            Product product = event.getProduct();
+            target.put(product.getId(), product.getCategory(), product.getBrand(), product.isAvailable(),
+                    product.getPrice(), product.getReleaseDate());
+        }
+    }
+
+    // Columns being rebuilt off to the side, not visible to scans until finishRebuild
+    public static final class Rebuild {
+        private final CatalogColumns columns;
+
+        private Rebuild(CatalogColumns columns) {
+            this.columns = columns;
+        }
+
+        public void add(int id, String category, String brand, boolean available, BigDecimal price, Date releaseDate) {
+            columns.put(id, category, brand, available, price, releaseDate);
+        }
+    }
+}
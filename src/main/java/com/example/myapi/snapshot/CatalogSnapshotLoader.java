@@ -0,0 +1,40 @@
+package com.example.myapi.snapshot;
+
+import com.example.myapi.service.IProductService;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.boot.context.event.ApplicationReadyEvent;
+import org.springframework.context.event.EventListener;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Component;
+
+// Loads the catalog snapshot once the application has started and rebuilds it periodically, dropping deleted rows
+@Component
+public class CatalogSnapshotLoader {
+    private static final Logger logger = LoggerFactory.getLogger(CatalogSnapshotLoader.class);
+    private final CatalogSnapshot catalogSnapshot;
+    private final IProductService productService;
+
+    public CatalogSnapshotLoader(CatalogSnapshot catalogSnapshot, IProductService productService) {
+        this.catalogSnapshot = catalogSnapshot;
+        this.productService = productService;
+    }
+
+    @EventListener(ApplicationReadyEvent.class)
+    @Scheduled(initialDelayString = "${myapi.snapshot.rebuild-interval}", fixedDelayString = "${myapi.snapshot.rebuild-interval}")
+    public void rebuild() {
+        long start = System.nanoTime();
+        CatalogSnapshot.Rebuild rebuild = catalogSnapshot.startRebuild(catalogSnapshot.size());
+        try {
+            // Exported in id order, the rebuilt rows are sorted by id again
+            productService.exportAll(product -> rebuild.add(product.getId(), product.getCategory(), product.getBrand(),
+                    product.isAvailable(), product.getPrice(), product.getReleaseDate()));
+        } catch (RuntimeException e) {
+            catalogSnapshot.abandonRebuild();
+            throw e;
+        }
+        catalogSnapshot.finishRebuild(rebuild);
+        logger.info("Catalog snapshot rebuilt with {} products in {} ms",
+                catalogSnapshot.size(), (System.nanoTime() - start) / 1_000_000);
+    }
+}
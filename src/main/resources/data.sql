@@ -1,11 +1,15 @@
-INSERT INTO product (name, desc, brand, price, category, release_date, available, quantity)
-VALUES ('Tata Nexon', 'A compact SUV with excellent safety features and performance.', 'Tata Motors', 750000.00, 'Cars',
-        '2024-01-15', true, 50),
-       ('Maruti Suzuki Swift', 'A popular hatchback known for its fuel efficiency and reliability.', 'Maruti Suzuki',
-        550000.00, 'Cars', '2024-02-01', true, 100),
-       ('Hyundai Creta', 'A stylish SUV with advanced features and comfortable interior.', 'Hyundai', 950000.00, 'Cars',
-        '2024-03-01', true, 75),
-       ('Mahindra Thar', 'A rugged off-road SUV with a powerful engine and modern amenities.', 'Mahindra', 1200000.00,
-        'Cars', '2024-04-01', true, 30),
-       ('Honda City', 'A premium sedan with a sleek design and advanced safety features.', 'Honda', 1100000.00, 'Cars',
-        '2024-05-01', true, 60);
\ No newline at end of file
+INSERT INTO product (id, name, desc, brand, price, category, release_date, available, quantity, version,
+                     name_norm, brand_norm, category_norm)
+VALUES (1, 'Tata Nexon', 'A compact SUV with excellent safety features and performance.', 'Tata Motors', 750000.00, 'Cars',
+        '2024-01-15', true, 50, 0, 'tata nexon', 'tata motors', 'cars'),
+       (2, 'Maruti Suzuki Swift', 'A popular hatchback known for its fuel efficiency and reliability.', 'Maruti Suzuki',
+        550000.00, 'Cars', '2024-02-01', true, 100, 0, 'maruti suzuki swift', 'maruti suzuki', 'cars'),
+       (3, 'Hyundai Creta', 'A stylish SUV with advanced features and comfortable interior.', 'Hyundai', 950000.00, 'Cars',
+        '2024-03-01', true, 75, 0, 'hyundai creta', 'hyundai', 'cars'),
+       (4, 'Mahindra Thar', 'A rugged off-road SUV with a powerful engine and modern amenities.', 'Mahindra', 1200000.00,
+        'Cars', '2024-04-01', true, 30, 0, 'mahindra thar', 'mahindra', 'cars'),
+       (5, 'Honda City', 'A premium sedan with a sleek design and advanced safety features.', 'Honda', 1100000.00, 'Cars',
+        '2024-05-01', true, 60, 0, 'honda city', 'honda', 'cars');
+
+-- Seed rows use explicit ids, move the pooled sequence (allocationSize 50) past them
+ALTER SEQUENCE product_seq RESTART WITH 55;
@@ -0,0 +1,87 @@
+package com.example.myapi.changes;
+
+import com.example.myapi.config.MyapiProperties;
+import com.example.myapi.event.ProductChangeEvent;
+import com.example.myapi.model.Product;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+
+import java.time.Duration;
+import java.util.List;
+import java.util.concurrent.CompletableFuture;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+class ProductChangeLogTest {
+
+    @Test
+    @DisplayName("Keep only the latest change of a product and page through the changes after a sequence")
+    void read1() {
+        // Arrange
+        ProductChangeLog changeLog = changeLog(100);
+        changeLog.onProductChange(ProductChangeEvent.created(Product.builder().id(1).build()));
+        changeLog.onProductChange(ProductChangeEvent.created(Product.builder().id(2).build()));
+        changeLog.onProductChange(ProductChangeEvent.updated(Product.builder().id(1).build()));
+        changeLog.onProductChange(ProductChangeEvent.deleted(3));
+
+        // Act
+        ProductChangeLog.Slice first = changeLog.read(null, 0L, 2);
+        ProductChangeLog.Slice second = changeLog.read(changeLog.epoch(), first.next(), 2);
+
+        // Assert
+        assertEquals(List.of(2L, 3L), first.entries().stream().map(ProductChangeLog.Entry::sequence).toList());
+        assertEquals(ProductChangeEvent.Type.UPDATED, first.entries().get(1).type());
+        assertEquals(List.of(4L), second.entries().stream().map(ProductChangeLog.Entry::sequence).toList());
+        assertEquals(4L, second.next());
+        assertFalse(second.resetRequired());
+    }
+
+    @Test
+    @DisplayName("Require a reset behind the retained changes and for sequences of another run")
+    void read2() {
+        // Arrange
+        ProductChangeLog changeLog = changeLog(2);
+        for (int id = 1; id <= 4; id++) {
+            changeLog.onProductChange(ProductChangeEvent.deleted(id));
+        }
+
+        // Act
+        ProductChangeLog.Slice behind = changeLog.read(null, 1L, 10);
+        ProductChangeLog.Slice retained = changeLog.read(null, 2L, 10);
+        ProductChangeLog.Slice otherRun = changeLog.read(changeLog.epoch() - 1, 4L, 10);
+        ProductChangeLog.Slice ahead = changeLog.read(null, 5L, 10);
+
+        // Assert
+        assertTrue(behind.resetRequired());
+        assertEquals(4L, behind.next());
+        assertEquals(2, retained.entries().size());
+        assertTrue(otherRun.resetRequired());
+        assertTrue(ahead.resetRequired());
+    }
+
+    @Test
+    @DisplayName("Complete a long-poll wait with the next change")
+    void awaitChange1() {
+        // Arrange
+        ProductChangeLog changeLog = changeLog(100);
+        CompletableFuture<Void> change = changeLog.awaitChange(null, 0L, Duration.ofSeconds(30));
+        boolean doneBefore = change.isDone();
+
+        // Act
+        changeLog.onProductChange(ProductChangeEvent.deleted(1));
+
+        // Assert
+        assertFalse(doneBefore);
+        assertTrue(change.isDone());
+        assertTrue(changeLog.awaitChange(null, 0L, Duration.ofSeconds(30)).isDone());
+    }
+
+    private static ProductChangeLog changeLog(int maxEntries) {
+        MyapiProperties properties = new MyapiProperties();
+        properties.getChanges().setMaxEntries(maxEntries);
+        return new ProductChangeLog(properties, new SimpleMeterRegistry());
+    }
+}
@@ -0,0 +1,138 @@
+package com.example.myapi.coalesce;
+
+import com.example.myapi.config.MyapiProperties;
+import com.example.myapi.etag.ProductVersions;
+import com.example.myapi.exception.ResourceNotFoundException;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertSame;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+class SingleFlightTest {
+
+    private final ProductVersions productVersions = new ProductVersions();
+    private final SimpleMeterRegistry meterRegistry = new SimpleMeterRegistry();
+
+    @Test
+    @DisplayName("Compute once for identical concurrent calls and hand every caller the same result")
+    void call1() throws Exception {
+        // Arrange
+        SingleFlight singleFlight = singleFlight(Duration.ZERO);
+        AtomicInteger computations = new AtomicInteger();
+        CountDownLatch started = new CountDownLatch(1);
+        CountDownLatch release = new CountDownLatch(1);
+        ExecutorService executor = Executors.newFixedThreadPool(8);
+        List<Future<List<Integer>>> calls = new ArrayList<>();
+
+        // Act
+        calls.add(executor.submit(() -> singleFlight.call("getById", List.of(1), () -> {
+            computations.incrementAndGet();
+            started.countDown();
+            await(release);
+            return List.of(1);
+        })));
+        started.await();
+        for (int i = 0; i < 7; i++) {
+            calls.add(executor.submit(() -> singleFlight.call("getById", List.of(1), () -> {
+                computations.incrementAndGet();
+                return List.of(2);
+            })));
+        }
+        // Every other caller is waiting once all of them have been counted as joined
+        while (meterRegistry.counter("coalescing.calls", "method", "getById", "result", "joined").count() < 7) {
+            Thread.onSpinWait();
+        }
+        release.countDown();
+        List<Integer> first = calls.get(0).get(5, TimeUnit.SECONDS);
+
+        // Assert
+        for (Future<List<Integer>> call : calls) {
+            assertSame(first, call.get(5, TimeUnit.SECONDS));
+        }
+        assertEquals(1, computations.get());
+        assertEquals(1, meterRegistry.counter("coalescing.calls", "method", "getById", "result", "computed").count());
+        executor.shutdown();
+    }
+
+    @Test
+    @DisplayName("Propagate a failure to the waiting callers without keeping it for later ones")
+    void call2() throws Exception {
+        // Arrange
+        SingleFlight singleFlight = singleFlight(Duration.ofMinutes(1));
+        CountDownLatch started = new CountDownLatch(1);
+        CountDownLatch release = new CountDownLatch(1);
+        ExecutorService executor = Executors.newFixedThreadPool(2);
+
+        // Act
+        Future<Object> leader = executor.submit(() -> singleFlight.call("getById", List.of(7), () -> {
+            started.countDown();
+            await(release);
+            throw new ResourceNotFoundException("Product not found with ID: 7");
+        }));
+        started.await();
+        Future<Object> joined = executor.submit(() -> singleFlight.call("getById", List.of(7), () -> "computed again"));
+        while (meterRegistry.counter("coalescing.calls", "method", "getById", "result", "joined").count() < 1) {
+            Thread.onSpinWait();
+        }
+        release.countDown();
+        ExecutionException leaderError = assertThrows(ExecutionException.class, () -> leader.get(5, TimeUnit.SECONDS));
+        ExecutionException joinedError = assertThrows(ExecutionException.class, () -> joined.get(5, TimeUnit.SECONDS));
+        Object later = singleFlight.call("getById", List.of(7), () -> "computed again");
+
+        // Assert
+        assertTrue(leaderError.getCause() instanceof ResourceNotFoundException);
+        assertSame(leaderError.getCause(), joinedError.getCause());
+        assertEquals("computed again", later);
+        executor.shutdown();
+    }
+
+    @Test
+    @DisplayName("Share a finished result within the window until a write moves the generation on")
+    void call3() {
+        // Arrange
+        SingleFlight singleFlight = singleFlight(Duration.ofMinutes(1));
+
+        // Act
+        String first = singleFlight.call("search", List.of("honda"), () -> "first");
+        String withinWindow = singleFlight.call("search", List.of("honda"), () -> "second");
+        String otherArguments = singleFlight.call("search", List.of("tata"), () -> "third");
+        productVersions.advance();
+        String afterWrite = singleFlight.call("search", List.of("honda"), () -> "fourth");
+
+        // Assert
+        assertEquals("first", first);
+        assertEquals("first", withinWindow);
+        assertEquals("third", otherArguments);
+        assertEquals("fourth", afterWrite);
+    }
+
+    private SingleFlight singleFlight(Duration window) {
+        MyapiProperties properties = new MyapiProperties();
+        properties.getCoalescing().setWindow(window);
+        return new SingleFlight(productVersions, properties, meterRegistry);
+    }
+
+    private static void await(CountDownLatch latch) {
+        try {
+            latch.await();
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new IllegalStateException(e);
+        }
+    }
+}
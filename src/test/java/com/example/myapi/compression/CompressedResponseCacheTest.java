@@ -0,0 +1,175 @@
+package com.example.myapi.compression;
+
+import com.example.myapi.config.MyapiProperties;
+import com.example.myapi.etag.ProductVersions;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import jakarta.servlet.FilterChain;
+import jakarta.servlet.ServletResponseWrapper;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+import org.springframework.boot.autoconfigure.web.ServerProperties;
+import org.springframework.mock.web.MockHttpServletRequest;
+import org.springframework.mock.web.MockHttpServletResponse;
+import org.springframework.util.StreamUtils;
+import org.springframework.util.unit.DataSize;
+
+import java.io.ByteArrayInputStream;
+import java.nio.charset.StandardCharsets;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.zip.GZIPInputStream;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertNull;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+class CompressedResponseCacheTest {
+
+    private static final String BODY = "{\"content\":[" + "{\"name\":\"Product\"},".repeat(200) + "{}]}";
+
+    private final ProductVersions productVersions = new ProductVersions();
+    private final AtomicInteger handled = new AtomicInteger();
+    private final FilterChain chain = (request, response) -> {
+        handled.incrementAndGet();
+        response.setContentType("application/json");
+        response.getOutputStream().write(BODY.getBytes(StandardCharsets.UTF_8));
+    };
+    private CompressedResponseCache compressedResponseCache;
+
+    @BeforeEach
+    void setUp() {
+        compressedResponseCache = new CompressedResponseCache(productVersions, new MyapiProperties(),
+                new ServerProperties(), new SimpleMeterRegistry());
+    }
+
+    @Test
+    @DisplayName("Serve a repeated list request compressed from the cache until the catalog changes")
+    void doFilter1() throws Exception {
+        // Act
+        MockHttpServletResponse first = get("gzip");
+        MockHttpServletResponse second = get("gzip");
+        productVersions.advance();
+        get("gzip");
+
+        // Assert
+        assertEquals(2, handled.get());
+        assertEquals("gzip", second.getHeader("Content-Encoding"));
+        assertEquals(BODY, gunzip(second.getContentAsByteArray()));
+        assertEquals(gunzip(first.getContentAsByteArray()), gunzip(second.getContentAsByteArray()));
+    }
+
+    @Test
+    @DisplayName("Pass requests without gzip in Accept-Encoding through untouched")
+    void doFilter2() throws Exception {
+        // Act
+        get(null);
+        MockHttpServletResponse response = get(null);
+
+        // Assert
+        assertEquals(2, handled.get());
+        assertNull(response.getHeader("Content-Encoding"));
+        assertEquals(BODY, response.getContentAsString());
+    }
+
+    @Test
+    @DisplayName("Pass cross-origin requests through so the CORS headers are added by the handler")
+    void doFilter3() throws Exception {
+        // Arrange
+        get("gzip");
+
+        // Act
+        MockHttpServletResponse response = get("gzip", "https://shop.example.com");
+
+        // Assert
+        assertEquals(2, handled.get());
+        assertNull(response.getHeader("Content-Encoding"));
+        assertEquals(BODY, response.getContentAsString());
+    }
+
+    @Test
+    @DisplayName("Stream a body larger than the max entry size through without holding it back or caching it")
+    void doFilter4() throws Exception {
+        // Arrange
+        MyapiProperties properties = new MyapiProperties();
+        properties.getResponseCache().setMaxEntrySize(DataSize.ofBytes(BODY.length() / 2));
+        compressedResponseCache = new CompressedResponseCache(productVersions, properties, new ServerProperties(),
+                new SimpleMeterRegistry());
+        AtomicBoolean committedWhileWriting = new AtomicBoolean();
+        FilterChain largeBody = (request, response) -> {
+            handled.incrementAndGet();
+            response.setContentType("application/json");
+            byte[] body = BODY.getBytes(StandardCharsets.UTF_8);
+            response.getOutputStream().write(body, 0, body.length - 1);
+            committedWhileWriting.set(response.isCommitted() || ((MockHttpServletResponse) ((ServletResponseWrapper) response)
+                    .getResponse()).getContentAsByteArray().length > 0);
+            response.getOutputStream().write(body, body.length - 1, 1);
+        };
+
+        // Act
+        MockHttpServletResponse first = get("gzip", null, largeBody);
+        MockHttpServletResponse second = get("gzip", null, largeBody);
+
+        // Assert
+        assertTrue(committedWhileWriting.get());
+        assertEquals(2, handled.get());
+        assertNull(second.getHeader("Content-Encoding"));
+        assertEquals(BODY, first.getContentAsString());
+    }
+
+    @Test
+    @DisplayName("Pass requests that refuse gzip with a zero weight through untouched")
+    void doFilter5() throws Exception {
+        // Act
+        get("gzip;q=0, deflate");
+        MockHttpServletResponse response = get("gzip;q=0, deflate");
+
+        // Assert
+        assertEquals(2, handled.get());
+        assertNull(response.getHeader("Content-Encoding"));
+        assertEquals(BODY, response.getContentAsString());
+    }
+
+    @Test
+    @DisplayName("Read gzip acceptance from the coding weights rather than a substring match")
+    void acceptsGzip1() {
+        // Assert
+        assertTrue(CompressedResponseCache.acceptsGzip("gzip, deflate, br"));
+        assertTrue(CompressedResponseCache.acceptsGzip("br;q=1.0, GZIP;q=0.5"));
+        assertTrue(CompressedResponseCache.acceptsGzip("deflate, *"));
+        assertFalse(CompressedResponseCache.acceptsGzip("gzip;q=0"));
+        assertFalse(CompressedResponseCache.acceptsGzip("gzip; q=0.0, *"));
+        assertFalse(CompressedResponseCache.acceptsGzip("*;q=0"));
+        assertFalse(CompressedResponseCache.acceptsGzip("deflate, br"));
+        assertFalse(CompressedResponseCache.acceptsGzip(null));
+    }
+
+    private MockHttpServletResponse get(String acceptEncoding) throws Exception {
+        return get(acceptEncoding, null);
+    }
+
+    private MockHttpServletResponse get(String acceptEncoding, String origin) throws Exception {
+        return get(acceptEncoding, origin, chain);
+    }
+
+    private MockHttpServletResponse get(String acceptEncoding, String origin, FilterChain chain) throws Exception {
+        MockHttpServletRequest request = new MockHttpServletRequest("GET", "/api/products/filter");
+        request.setQueryString("name=product");
+        if (acceptEncoding != null) {
+            request.addHeader("Accept-Encoding", acceptEncoding);
+        }
+        if (origin != null) {
+            request.addHeader("Origin", origin);
+        }
+        MockHttpServletResponse response = new MockHttpServletResponse();
+        compressedResponseCache.doFilter(request, response, chain);
+        return response;
+    }
+
+    private static String gunzip(byte[] gzip) throws Exception {
+        try (GZIPInputStream in = new GZIPInputStream(new ByteArrayInputStream(gzip))) {
+            return StreamUtils.copyToString(in, StandardCharsets.UTF_8);
+        }
+    }
+}
@@ -0,0 +1,48 @@
+package com.example.myapi.count;
+
+import com.example.myapi.config.MyapiProperties;
+import com.example.myapi.etag.ProductVersions;
+import com.example.myapi.repo.MatchCount;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+
+import java.util.ArrayList;
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+
+class ProductCountsTest {
+
+    @Test
+    @DisplayName("Count a query once per catalog generation and pass the approximate-above limit to the counter")
+    void count1() {
+        // Arrange
+        ProductVersions productVersions = new ProductVersions();
+        MyapiProperties properties = new MyapiProperties();
+        properties.getCounts().setApproximateAbove(1000);
+        ProductCounts productCounts = new ProductCounts(productVersions, properties, new SimpleMeterRegistry());
+        List<Long> limits = new ArrayList<>();
+
+        // Act
+        MatchCount first = productCounts.count("contains", List.of("CARS"), limit -> {
+            limits.add(limit);
+            return new MatchCount(3, false);
+        });
+        MatchCount again = productCounts.count("contains", List.of("CARS"), limit -> {
+            limits.add(limit);
+            return new MatchCount(4, false);
+        });
+        productVersions.advance();
+        MatchCount afterWrite = productCounts.count("contains", List.of("CARS"), limit -> {
+            limits.add(limit);
+            return new MatchCount(5, false);
+        });
+
+        // Assert
+        assertEquals(3, first.value());
+        assertEquals(3, again.value());
+        assertEquals(5, afterWrite.value());
+        assertEquals(List.of(1000L, 1000L), limits);
+    }
+}
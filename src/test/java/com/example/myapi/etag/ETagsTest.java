@@ -0,0 +1,36 @@
+package com.example.myapi.etag;
+
+import com.example.myapi.exception.PreconditionFailedException;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertNull;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+
+class ETagsTest {
+
+    @Test
+    @DisplayName("Read the expected version from If-Match")
+    void expectedVersion1() {
+        assertEquals(3L, ETags.expectedVersion(ETags.product(7, 3L), 7));
+        assertEquals(3L, ETags.expectedVersion("\"8-1\", \"7-3\"", 7));
+        assertNull(ETags.expectedVersion("*", 7));
+        assertNull(ETags.expectedVersion(null, 7));
+    }
+
+    @Test
+    @DisplayName("Tag no product without a version")
+    void product1() {
+        assertEquals("\"7-3\"", ETags.product(7, 3L));
+        assertNull(ETags.product(7, null));
+    }
+
+    @Test
+    @DisplayName("Fail the precondition for weak tags and tags of other products")
+    void expectedVersion2() {
+        assertThrows(PreconditionFailedException.class, () -> ETags.expectedVersion("W/\"7-3\"", 7));
+        assertThrows(PreconditionFailedException.class, () -> ETags.expectedVersion("\"17-3\"", 7));
+        assertThrows(PreconditionFailedException.class, () -> ETags.expectedVersion("\"7-x\"", 7));
+    }
+}
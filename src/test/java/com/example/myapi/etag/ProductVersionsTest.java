@@ -0,0 +1,54 @@
+package com.example.myapi.etag;
+
+import com.example.myapi.dto.ProductPatchDto;
+import com.example.myapi.event.ProductChangeEvent;
+import com.example.myapi.model.Product;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertNotEquals;
+import static org.junit.jupiter.api.Assertions.assertNull;
+
+class ProductVersionsTest {
+
+    private ProductVersions productVersions;
+
+    @BeforeEach
+    void setUp() {
+        productVersions = new ProductVersions();
+    }
+
+    @Test
+    @DisplayName("Track versions from reads and change events")
+    void onProductChange1() {
+        // Arrange
+        long generation = productVersions.generation();
+        productVersions.record(1, 0L, generation);
+
+        // Act
+        productVersions.onProductChange(ProductChangeEvent.updated(Product.builder().id(1).version(1L).build()));
+        productVersions.onProductChange(ProductChangeEvent.patched(2, ProductPatchDto.builder().quantity(1).build()));
+
+        // Assert
+        assertEquals(1L, productVersions.version(1));
+        assertNull(productVersions.version(2));
+        assertEquals(generation + 2, productVersions.generation());
+    }
+
+    @Test
+    @DisplayName("Discard a version read while a change was committed")
+    void record1() {
+        // Arrange
+        long generation = productVersions.generation();
+        productVersions.onProductChange(ProductChangeEvent.deleted(1));
+
+        // Act
+        productVersions.record(1, 0L, generation);
+
+        // Assert
+        assertNull(productVersions.version(1));
+        assertNotEquals(generation, productVersions.generation());
+    }
+}
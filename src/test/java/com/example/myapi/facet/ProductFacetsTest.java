@@ -0,0 +1,103 @@
+package com.example.myapi.facet;
+
+import com.example.myapi.config.MyapiProperties;
+import com.example.myapi.dto.FacetResponseDto;
+import com.example.myapi.dto.ProductPatchDto;
+import com.example.myapi.event.ProductChangeEvent;
+import com.example.myapi.model.Product;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+
+import java.math.BigDecimal;
+import java.util.List;
+import java.util.Map;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+
+class ProductFacetsTest {
+
+    private ProductFacets productFacets;
+
+    @BeforeEach
+    void setUp() {
+        productFacets = new ProductFacets(new MyapiProperties());
+        productFacets.onProductChange(ProductChangeEvent.created(product(1, "Cars", "Honda", true, "550000")));
+        productFacets.onProductChange(ProductChangeEvent.created(product(2, "Cars", "Tata Motors", false, "750000")));
+        productFacets.onProductChange(ProductChangeEvent.created(product(3, "Kitchen", "Honda", true, "99.99")));
+    }
+
+    @Test
+    @DisplayName("Count every facet over all products")
+    void facets1() {
+        // Act
+        FacetResponseDto facets = productFacets.facets(null, null);
+
+        // Assert
+        assertEquals(3, facets.getTotal());
+        assertEquals(List.of("cars", "kitchen"), List.copyOf(facets.getCategories().keySet()));
+        assertEquals(Map.of("honda", 2L, "tata motors", 1L), facets.getBrands());
+        assertEquals(Map.of("available", 2L, "unavailable", 1L), facets.getAvailability());
+        assertEquals(1L, facets.getPriceBuckets().get("0-1000"));
+        assertEquals(2L, facets.getPriceBuckets().get("100000-1000000"));
+    }
+
+    @Test
+    @DisplayName("Count facets within a category and brand filter")
+    void facets2() {
+        // Act
+        FacetResponseDto cars = productFacets.facets("CARS", null);
+        FacetResponseDto hondaCars = productFacets.facets("cars", "honda");
+        FacetResponseDto missing = productFacets.facets("toys", null);
+
+        // Assert
+        assertEquals(Map.of("honda", 1L, "tata motors", 1L), cars.getBrands());
+        assertEquals(1, hondaCars.getTotal());
+        assertEquals(0, missing.getTotal());
+    }
+
+    @Test
+    @DisplayName("Move counts on update, partial update and delete")
+    void onProductChange1() {
+        // Act
+        productFacets.onProductChange(ProductChangeEvent.updated(product(1, "Kitchen", "Honda", true, "550000")));
+        productFacets.onProductChange(ProductChangeEvent.patched(2, ProductPatchDto.builder().available(true).build()));
+        productFacets.onProductChange(ProductChangeEvent.deleted(3));
+        FacetResponseDto facets = productFacets.facets(null, null);
+
+        // Assert
+        assertEquals(2, facets.getTotal());
+        assertEquals(Map.of("cars", 1L, "kitchen", 1L), facets.getCategories());
+        assertEquals(Map.of("available", 2L, "unavailable", 0L), facets.getAvailability());
+    }
+
+    @Test
+    @DisplayName("Rebuild from the database, keeping changes made during the rebuild")
+    void rebuild1() {
+        // Arrange
+        ProductFacets.Rebuild rebuild = productFacets.startRebuild();
+        rebuild.add(1, "Cars", "Honda", true, new BigDecimal("550000"));
+        rebuild.add(2, "Cars", "Tata Motors", false, new BigDecimal("750000"));
+        productFacets.onProductChange(ProductChangeEvent.created(product(4, "Toys", "Lego", true, "49")));
+
+        // Act
+        int drift = productFacets.finishRebuild(rebuild);
+        FacetResponseDto facets = productFacets.facets(null, null);
+
+        // Assert
+        assertEquals(0, drift);
+        assertEquals(3, facets.getTotal());
+        assertEquals(Map.of("cars", 2L, "toys", 1L), facets.getCategories());
+    }
+
+    private static Product product(int id, String category, String brand, boolean available, String price) {
+        return Product.builder()
+                .id(id)
+                .name("Product " + id)
+                .category(category)
+                .brand(brand)
+                .available(available)
+                .price(new BigDecimal(price))
+                .build();
+    }
+}
@@ -0,0 +1,65 @@
+package com.example.myapi.inventory;
+
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.List;
+import java.util.stream.Stream;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+
+class InventoryLogTest {
+
+    @TempDir
+    private Path directory;
+
+    @Test
+    @DisplayName("Replay logged deltas after a restart, ignoring a torn last record")
+    void takeRecovered1() throws Exception {
+        // Arrange
+        try (InventoryLog log = new InventoryLog(directory)) {
+            log.append(1, 5);
+            log.sync(log.append(2, -3));
+        }
+        try (Stream<Path> segments = Files.list(directory)) {
+            Path segment = segments.filter(file -> file.toString().endsWith(".log")).findFirst().orElseThrow();
+            Files.write(segment, new byte[]{1, 2, 3}, StandardOpenOption.APPEND);
+        }
+
+        // Act
+        List<InventoryLog.Entry> entries;
+        long next;
+        try (InventoryLog log = new InventoryLog(directory)) {
+            entries = log.takeRecovered();
+            next = log.append(3, 1);
+        }
+
+        // Assert
+        assertEquals(List.of(new InventoryLog.Entry(1, 1, 5), new InventoryLog.Entry(2, 2, -3)), entries);
+        assertEquals(3, next);
+    }
+
+    @Test
+    @DisplayName("Delete rolled segments once flushed, keep numbering across restarts")
+    void deleteThrough1() throws Exception {
+        // Arrange
+        try (InventoryLog log = new InventoryLog(directory)) {
+            log.append(1, 5);
+            long flushed = log.roll();
+            log.append(1, 2);
+
+            // Act
+            log.deleteThrough(flushed);
+        }
+
+        // Assert
+        try (InventoryLog log = new InventoryLog(directory)) {
+            assertEquals(List.of(new InventoryLog.Entry(2, 1, 2)), log.takeRecovered());
+            assertEquals(3, log.append(1, 1));
+        }
+    }
+}
@@ -0,0 +1,138 @@
+package com.example.myapi.inventory;
+
+import com.example.myapi.config.MyapiProperties;
+import com.example.myapi.dto.ProductResponseDto;
+import com.example.myapi.etag.ProductVersions;
+import com.example.myapi.exception.InsufficientStockException;
+import com.example.myapi.repo.InventoryCheckpointRepo;
+import com.example.myapi.repo.ProductRepo;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+import org.mockito.ArgumentCaptor;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.scheduling.TaskScheduler;
+import org.springframework.transaction.PlatformTransactionManager;
+
+import java.nio.file.Path;
+import java.util.Collection;
+import java.util.List;
+import java.util.Map;
+import java.util.Optional;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.anyCollection;
+import static org.mockito.ArgumentMatchers.anyInt;
+import static org.mockito.ArgumentMatchers.anyString;
+import static org.mockito.ArgumentMatchers.eq;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.times;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.when;
+
+class InventoryWriteBehindTest {
+
+    @TempDir
+    private Path directory;
+    private final JdbcTemplate jdbcTemplate = mock(JdbcTemplate.class);
+    private final ProductRepo productRepo = mock(ProductRepo.class);
+    private final InventoryCheckpointRepo checkpointRepo = mock(InventoryCheckpointRepo.class);
+    private InventoryWriteBehind inventoryWriteBehind;
+
+    @BeforeEach
+    void setUp() throws Exception {
+        when(checkpointRepo.findById(anyString())).thenReturn(Optional.empty());
+        inventoryWriteBehind = create();
+        inventoryWriteBehind.recover();
+    }
+
+    @AfterEach
+    void tearDown() throws Exception {
+        inventoryWriteBehind.close();
+    }
+
+    @Test
+    @DisplayName("Add pending deltas to reads until the flushed row is read")
+    void applyPending1() {
+        // Arrange
+        List<Object[]> versions = List.<Object[]>of(new Object[]{1, 7L});
+        when(productRepo.findVersions(anyCollection())).thenReturn(versions);
+        inventoryWriteBehind.adjust(product(10, 5), 5);
+        inventoryWriteBehind.adjust(product(10, 5), -2);
+
+        // Act
+        ProductResponseDto beforeFlush = product(10, 5);
+        inventoryWriteBehind.applyPending(beforeFlush);
+        inventoryWriteBehind.flush();
+        ProductResponseDto staleRow = product(10, 5);
+        inventoryWriteBehind.applyPending(staleRow);
+        ProductResponseDto flushedRow = product(13, 7);
+        inventoryWriteBehind.applyPending(flushedRow);
+
+        // Assert
+        verify(jdbcTemplate).batchUpdate(anyString(), anyCollection(), anyInt(), any());
+        assertEquals(13, beforeFlush.getQuantity());
+        assertEquals(7L, beforeFlush.getVersion());
+        assertEquals(13, staleRow.getQuantity());
+        assertEquals(7L, staleRow.getVersion());
+        assertEquals(13, flushedRow.getQuantity());
+        assertEquals(7L, flushedRow.getVersion());
+        assertFalse(inventoryWriteBehind.hasPending(1));
+    }
+
+    @Test
+    @DisplayName("Replay and flush deltas that were not written before a restart")
+    void recover1() throws Exception {
+        // Arrange
+        when(jdbcTemplate.batchUpdate(anyString(), anyCollection(), anyInt(), any()))
+                .thenThrow(new IllegalStateException("database down"))
+                .thenReturn(new int[0][]);
+        inventoryWriteBehind.adjust(product(2, 0, 0), 4);
+        inventoryWriteBehind.adjust(product(2, 0, 0), 1);
+        assertThrows(IllegalStateException.class, inventoryWriteBehind::close);
+
+        // Act
+        inventoryWriteBehind = create();
+        inventoryWriteBehind.recover();
+
+        // Assert
+        ArgumentCaptor<Collection<Map.Entry<Integer, InventoryWriteBehind.Delta>>> deltas = ArgumentCaptor.captor();
+        verify(jdbcTemplate, times(2)).batchUpdate(anyString(), deltas.capture(), anyInt(), any());
+        assertEquals(List.of(Map.entry(2, new InventoryWriteBehind.Delta(5, 2))), List.copyOf(deltas.getValue()));
+    }
+
+    @Test
+    @DisplayName("Reject a delta that takes the quantity below zero together with the pending ones")
+    void adjust1() {
+        // Arrange
+        inventoryWriteBehind.adjust(product(10, 5), -6);
+
+        // Act & Assert
+        assertThrows(InsufficientStockException.class, () -> inventoryWriteBehind.adjust(product(10, 5), -5));
+        inventoryWriteBehind.adjust(product(10, 5), -4);
+        ProductResponseDto read = product(10, 5);
+        inventoryWriteBehind.applyPending(read);
+        assertEquals(0, read.getQuantity());
+    }
+
+    private InventoryWriteBehind create() throws Exception {
+        MyapiProperties properties = new MyapiProperties();
+        properties.getInventory().setLogDir(directory);
+        return new InventoryWriteBehind(properties, jdbcTemplate, productRepo, checkpointRepo,
+                mock(PlatformTransactionManager.class), mock(TaskScheduler.class), new ProductVersions(), new SimpleMeterRegistry());
+    }
+
+    private static ProductResponseDto product(int quantity, long version) {
+        return product(1, quantity, version);
+    }
+
+    private static ProductResponseDto product(int id, int quantity, long version) {
+        return ProductResponseDto.builder().id(id).quantity(quantity).version(version).build();
+    }
+}
@@ -0,0 +1,123 @@
+package com.example.myapi.json;
+
+import com.example.myapi.config.JacksonConfig;
+import com.example.myapi.config.MyapiProperties;
+import com.example.myapi.dto.ProductResponseDto;
+import com.fasterxml.jackson.core.JsonGenerator;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+import org.springframework.data.domain.PageImpl;
+import org.springframework.data.domain.PageRequest;
+import org.springframework.http.converter.json.Jackson2ObjectMapperBuilder;
+
+import java.io.ByteArrayOutputStream;
+import java.io.StringWriter;
+import java.math.BigDecimal;
+import java.nio.charset.StandardCharsets;
+import java.text.SimpleDateFormat;
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertNotNull;
+import static org.junit.jupiter.api.Assertions.assertNull;
+
+class ProductJsonCacheTest {
+
+    private final ObjectMapper plainMapper = Jackson2ObjectMapperBuilder.json().build();
+    private ProductJsonCache productJsonCache;
+    private ObjectMapper cachingMapper;
+    private ProductResponseDto product;
+
+    @BeforeEach
+    void setUp() throws Exception {
+        productJsonCache = new ProductJsonCache(new MyapiProperties(), new SimpleMeterRegistry());
+        cachingMapper = Jackson2ObjectMapperBuilder.json()
+                .modules(new JacksonConfig().productJsonCacheModule(productJsonCache))
+                .build();
+        product = new ProductResponseDto(1, "Product 1", "Description \"1\" é", "Brand A", new BigDecimal("99.99"),
+                "Category 1", new SimpleDateFormat("dd-MM-yyyy").parse("01-01-2024"), true, 50, 0L);
+    }
+
+    @Test
+    @DisplayName("Serve a product from its cached encoding")
+    void serialize1() throws Exception {
+        // Act
+        String first = cachingMapper.writeValueAsString(product);
+        byte[] second = cachingMapper.writeValueAsBytes(product);
+
+        // Assert
+        assertEquals(plainMapper.writeValueAsString(product), first);
+        assertEquals(first, new String(second, "UTF-8"));
+        assertNotNull(productJsonCache.get(1, 0));
+    }
+
+    @Test
+    @DisplayName("Encode again once the version moves on")
+    void serialize2() throws Exception {
+        // Arrange
+        cachingMapper.writeValueAsBytes(product);
+        product.setName("Product 1 Updated");
+        product.setVersion(1L);
+
+        // Act
+        String json = cachingMapper.writeValueAsString(product);
+
+        // Assert
+        assertEquals(plainMapper.writeValueAsString(product), json);
+        assertNull(productJsonCache.get(1, 0));
+    }
+
+    @Test
+    @DisplayName("Encode a product without a version with the bean serializer and leave it uncached")
+    void serialize4() throws Exception {
+        // Arrange
+        product.setVersion(null);
+
+        // Act
+        String json = cachingMapper.writeValueAsString(product);
+
+        // Assert
+        assertEquals(plainMapper.writeValueAsString(product), json);
+        assertNull(productJsonCache.get(1, 0));
+    }
+
+    @Test
+    @DisplayName("Assemble pages from cached fragments")
+    void serialize3() throws Exception {
+        // Arrange
+        ProductResponseDto other = new ProductResponseDto(2, "Product 2", "Description 2", "Brand B", new BigDecimal("50.00"),
+                "Category 2", null, false, 0, 3L);
+        PageImpl<ProductResponseDto> page = new PageImpl<>(List.of(product, other), PageRequest.of(0, 2), 2);
+        cachingMapper.writeValueAsBytes(product);
+
+        // Act
+        byte[] json = cachingMapper.writeValueAsBytes(page);
+
+        // Assert
+        assertEquals(plainMapper.writeValueAsString(page), new String(json, "UTF-8"));
+    }
+
+    @Test
+    @DisplayName("Write a cached encoding as an escaped string value")
+    void writeString1() throws Exception {
+        // Arrange
+        RawJson json = new RawJson(plainMapper.writeValueAsBytes(product));
+        ByteArrayOutputStream bytes = new ByteArrayOutputStream();
+        StringWriter chars = new StringWriter();
+
+        // Act
+        try (JsonGenerator utf8 = plainMapper.getFactory().createGenerator(bytes);
+             JsonGenerator writer = plainMapper.getFactory().createGenerator(chars)) {
+            utf8.writeString(json);
+            writer.writeString(json);
+        }
+
+        // Assert
+        String expected = plainMapper.writeValueAsString(json.getValue());
+        assertEquals(expected, bytes.toString(StandardCharsets.UTF_8));
+        assertEquals(expected, chars.toString());
+    }
+}
@@ -0,0 +1,150 @@
+package com.example.myapi.replica;
+
+import com.example.myapi.config.MyapiProperties;
+import com.example.myapi.etag.ProductVersions;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.jdbc.datasource.DriverManagerDataSource;
+import org.springframework.mock.web.MockHttpServletRequest;
+import org.springframework.mock.web.MockHttpServletResponse;
+
+import java.sql.Connection;
+import java.sql.SQLFeatureNotSupportedException;
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.atomic.AtomicReference;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+// Separate in-memory H2 databases stand in for the primary and its replicas, replication is done by hand
+class ReplicaDataSourceTest {
+
+    private static final String PRIMARY = "jdbc:h2:mem:primary-test;DB_CLOSE_DELAY=-1";
+    private static final String REPLICA_1 = "jdbc:h2:mem:replica-1-test;DB_CLOSE_DELAY=-1";
+    private static final String REPLICA_2 = "jdbc:h2:mem:replica-2-test;DB_CLOSE_DELAY=-1";
+
+    private final ProductVersions productVersions = new ProductVersions();
+    private final SimpleMeterRegistry meterRegistry = new SimpleMeterRegistry();
+    private ReplicaDataSource replicaDataSource;
+
+    @AfterEach
+    void tearDown() {
+        replicaDataSource.destroy();
+        for (String url : List.of(PRIMARY, REPLICA_1, REPLICA_2)) {
+            new JdbcTemplate(new DriverManagerDataSource(url, "sa", "")).execute("DROP ALL OBJECTS");
+        }
+    }
+
+    @Test
+    @DisplayName("Spread reads round robin over the replicas that have caught up")
+    void getConnection1() throws Exception {
+        // Arrange
+        replicaDataSource = create(REPLICA_1, REPLICA_2);
+        replicate(REPLICA_1, productVersions.generation(), 0);
+        replicate(REPLICA_2, productVersions.generation(), 0);
+        replicaDataSource.check();
+
+        // Act
+        List<String> urls = new ArrayList<>();
+        for (int i = 0; i < 4; i++) {
+            urls.add(url(replicaDataSource));
+        }
+
+        // Assert
+        assertEquals(2, urls.stream().filter(REPLICA_1::startsWith).count());
+        assertEquals(2, urls.stream().filter(REPLICA_2::startsWith).count());
+    }
+
+    @Test
+    @DisplayName("Read from the primary while no replica has the latest changes within the maximum lag or is up")
+    void getConnection2() throws Exception {
+        // Arrange
+        replicaDataSource = create(REPLICA_1, REPLICA_2, "jdbc:h2:mem:missing-test;IFEXISTS=TRUE");
+        long generation = productVersions.generation();
+        replicate(REPLICA_1, generation, 60_000);
+        replicate(REPLICA_2, generation, 0);
+        productVersions.advance();
+        replicaDataSource.check();
+
+        // Act
+        String behind = url(replicaDataSource);
+        replicate(REPLICA_2, productVersions.generation(), 0);
+        replicaDataSource.check();
+        String caughtUp = url(replicaDataSource);
+
+        // Assert
+        assertTrue(PRIMARY.startsWith(behind));
+        assertTrue(REPLICA_2.startsWith(caughtUp));
+    }
+
+    @Test
+    @DisplayName("Reject connections for explicit credentials without counting them")
+    void getConnection3() {
+        // Arrange
+        replicaDataSource = create(REPLICA_1);
+
+        // Act & Assert
+        assertThrows(SQLFeatureNotSupportedException.class, () -> replicaDataSource.getConnection("sa", ""));
+        assertEquals(0, meterRegistry.get("replica.connections").tag("target", "primary").counter().count());
+    }
+
+    @Test
+    @DisplayName("Keep the reads of a client that has just written on the primary")
+    void doFilter1() throws Exception {
+        // Arrange
+        replicaDataSource = create(REPLICA_1);
+        replicate(REPLICA_1, productVersions.generation(), 0);
+        replicaDataSource.check();
+        ReadYourWritesFilter filter = new ReadYourWritesFilter(Duration.ofSeconds(5));
+        MockHttpServletResponse write = new MockHttpServletResponse();
+        filter.doFilter(new MockHttpServletRequest("PATCH", "/api/products/1"), write, (request, response) -> { });
+        MockHttpServletRequest read = new MockHttpServletRequest("GET", "/api/products/1");
+        read.setCookies(write.getCookie(ReadYourWritesFilter.COOKIE));
+        AtomicReference<String> url = new AtomicReference<>();
+
+        // Act
+        filter.doFilter(read, new MockHttpServletResponse(), (request, response) -> url.set(url(replicaDataSource)));
+        String otherClient = url(replicaDataSource);
+
+        // Assert
+        assertTrue(PRIMARY.startsWith(url.get()));
+        assertTrue(REPLICA_1.startsWith(otherClient));
+    }
+
+    private ReplicaDataSource create(String... replicaUrls) {
+        MyapiProperties.Replicas settings = new MyapiProperties.Replicas();
+        for (String replicaUrl : replicaUrls) {
+            MyapiProperties.Replicas.Instance instance = new MyapiProperties.Replicas.Instance();
+            instance.setUrl(replicaUrl);
+            instance.setUsername("sa");
+            instance.setPassword("");
+            settings.getInstances().add(instance);
+        }
+        settings.setConnectionTimeout(Duration.ofMillis(250));
+        return new ReplicaDataSource(new DriverManagerDataSource(PRIMARY, "sa", ""), settings, productVersions,
+                meterRegistry);
+    }
+
+    // What the replica would have received from the primary, a heartbeat lagMillis old
+    private static void replicate(String replicaUrl, long generation, long lagMillis) {
+        JdbcTemplate replica = new JdbcTemplate(new DriverManagerDataSource(replicaUrl, "sa", ""));
+        replica.execute("CREATE TABLE IF NOT EXISTS replica_heartbeat "
+                + "(id INT PRIMARY KEY, beat_at BIGINT NOT NULL, generation BIGINT NOT NULL)");
+        replica.update("MERGE INTO replica_heartbeat KEY (id) VALUES (1, ?, ?)",
+                System.currentTimeMillis() - lagMillis, generation);
+    }
+
+    private static String url(ReplicaDataSource replicaDataSource) {
+        try (Connection connection = replicaDataSource.getConnection()) {
+            return connection.getMetaData().getURL();
+        } catch (Exception e) {
+            throw new IllegalStateException(e);
+        }
+    }
+}
@@ -0,0 +1,109 @@
+package com.example.myapi.reservation;
+
+import com.example.myapi.dto.ProductCreateDto;
+import com.example.myapi.dto.ReservationCreateDto;
+import com.example.myapi.dto.ReservationResponseDto;
+import com.example.myapi.exception.InsufficientStockException;
+import com.example.myapi.inventory.InventoryWriteBehind;
+import com.example.myapi.service.IProductService;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.SpringBootTest;
+
+import java.math.BigDecimal;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.Callable;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+
+// Runs against the application context and its H2 database, the conditional UPDATEs are part of what is tested
+@SpringBootTest
+class StockReservationsTest {
+
+    private static final int THREADS = 32;
+
+    @Autowired
+    private IProductService productService;
+    @Autowired
+    private InventoryWriteBehind inventoryWriteBehind;
+
+    @Test
+    @DisplayName("Never oversell a product bought concurrently while its stock is topped up")
+    void confirm1() throws Exception {
+        // Arrange
+        int initial = 100;
+        int topUps = 10;
+        int topUp = 5;
+        int id = productService.create(ProductCreateDto.builder().name("Flash Sale").brand("Brand A")
+                .category("Deals").price(BigDecimal.ONE).available(true).quantity(initial).build()).getId();
+        AtomicInteger sold = new AtomicInteger();
+        AtomicBoolean toppedUp = new AtomicBoolean();
+        CountDownLatch start = new CountDownLatch(1);
+        List<Callable<Void>> tasks = new ArrayList<>();
+        tasks.add(() -> {
+            start.await();
+            for (int i = 0; i < topUps; i++) {
+                productService.adjustInventory(id, topUp);
+                Thread.sleep(5);
+            }
+            toppedUp.set(true);
+            return null;
+        });
+        for (int t = 0; t < THREADS; t++) {
+            tasks.add(() -> {
+                start.await();
+                int attempts = 0;
+                while (true) {
+                    // Read first, a rejection after the last top-up means the stock is gone
+                    boolean last = toppedUp.get();
+                    ReservationResponseDto reservation;
+                    try {
+                        reservation = productService.reserve(id, new ReservationCreateDto(1, null));
+                    } catch (InsufficientStockException e) {
+                        if (last) {
+                            return null;
+                        }
+                        Thread.onSpinWait();
+                        continue;
+                    }
+                    if (++attempts % 4 == 0) {
+                        productService.releaseReservation(reservation.getId());
+                        continue;
+                    }
+                    try {
+                        productService.confirmReservation(reservation.getId());
+                        sold.incrementAndGet();
+                    } catch (InsufficientStockException e) {
+                        // the counter had not seen a write yet, the conditional UPDATE refused the sale
+                    }
+                }
+            });
+        }
+
+        // Act
+        ExecutorService executor = Executors.newFixedThreadPool(tasks.size());
+        try {
+            List<Future<Void>> futures = tasks.stream().map(executor::submit).toList();
+            start.countDown();
+            for (Future<Void> future : futures) {
+                future.get(60, TimeUnit.SECONDS);
+            }
+        } finally {
+            executor.shutdownNow();
+        }
+        inventoryWriteBehind.flush();
+
+        // Assert
+        assertEquals(initial + topUps * topUp, sold.get());
+        assertEquals(0, productService.getById(id).getQuantity());
+    }
+}
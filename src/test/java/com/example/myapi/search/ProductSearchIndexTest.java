@@ -0,0 +1,169 @@
+package com.example.myapi.search;
+
+import com.example.myapi.config.MyapiProperties;
+import com.example.myapi.dto.ProductPatchDto;
+import com.example.myapi.event.ProductChangeEvent;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+
+import java.util.List;
+import java.util.Random;
+import java.util.concurrent.CancellationException;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+class ProductSearchIndexTest {
+
+    private ProductSearchIndex productSearchIndex;
+
+    @BeforeEach
+    void setUp() {
+        productSearchIndex = new ProductSearchIndex(new MyapiProperties(), new SimpleMeterRegistry());
+        productSearchIndex.index(1, "Tata Nexon", "A compact SUV with excellent safety features.", "Tata Motors", "Cars");
+        productSearchIndex.index(2, "Honda City", "A premium sedan, not an SUV.", "Honda", "Cars");
+        productSearchIndex.index(3, "Suvarna Kettle", "Electric kettle", "Suvarna", "Kitchen");
+        productSearchIndex.markReady();
+    }
+
+    @Test
+    @DisplayName("Rank name and brand matches above description matches")
+    void search1() {
+        // Act
+        ProductSearchIndex.SearchResult result = productSearchIndex.search("suv", 0, 10);
+
+        // Assert
+        assertEquals(3, result.total());
+        assertEquals(List.of(3, 1, 2), result.ids());
+    }
+
+    @Test
+    @DisplayName("Require every keyword token to match")
+    void search2() {
+        // Act
+        ProductSearchIndex.SearchResult result = productSearchIndex.search("SUV cars", 0, 10);
+
+        // Assert
+        assertEquals(List.of(1, 2), result.ids());
+    }
+
+    @Test
+    @DisplayName("Page through ranked results")
+    void search3() {
+        // Act
+        ProductSearchIndex.SearchResult result = productSearchIndex.search("suv", 1, 1);
+
+        // Assert
+        assertEquals(3, result.total());
+        assertEquals(List.of(1), result.ids());
+    }
+
+    @Test
+    @DisplayName("Rank and page partitioned searches like a search over the whole index")
+    void search4() {
+        // Arrange
+        MyapiProperties properties = new MyapiProperties();
+        properties.getSearch().setPartitions(7);
+        properties.getSearch().setMinParallelPostings(0);
+        ProductSearchIndex partitioned = new ProductSearchIndex(properties, new SimpleMeterRegistry());
+        ProductSearchIndex whole = new ProductSearchIndex(new MyapiProperties(), new SimpleMeterRegistry());
+        Random random = new Random(7);
+        List<String> words = List.of("suv", "sedan", "super", "kettle", "steel", "compact", "city");
+        for (int id = 1; id <= 2000; id++) {
+            String name = words.get(random.nextInt(words.size())) + " " + words.get(random.nextInt(words.size()));
+            String desc = words.get(random.nextInt(words.size()));
+            partitioned.index(id, name, desc, "Acme", "Cars");
+            whole.index(id, name, desc, "Acme", "Cars");
+        }
+
+        for (String keyword : List.of("s", "su", "suv", "steel city", "acme", "missing")) {
+            // Act
+            ProductSearchIndex.SearchResult expected = whole.search(keyword, 30, 25);
+            ProductSearchIndex.SearchResult actual = partitioned.search(keyword, 30, 25);
+
+            // Assert
+            assertEquals(expected.total(), actual.total(), keyword);
+            assertEquals(expected.ids(), actual.ids(), keyword);
+        }
+        partitioned.destroy();
+        whole.destroy();
+    }
+
+    @Test
+    @DisplayName("Cancel a partitioned search when its thread is interrupted")
+    void search5() {
+        // Arrange
+        MyapiProperties properties = new MyapiProperties();
+        properties.getSearch().setMinParallelPostings(0);
+        ProductSearchIndex partitioned = new ProductSearchIndex(properties, new SimpleMeterRegistry());
+        partitioned.index(1, "Tata Nexon", "A compact SUV", "Tata Motors", "Cars");
+
+        // Act
+        Thread.currentThread().interrupt();
+        assertThrows(CancellationException.class, () -> partitioned.search("suv", 0, 10));
+
+        // Assert
+        assertTrue(Thread.interrupted());
+        assertEquals(1, partitioned.search("suv", 0, 10).total());
+        partitioned.destroy();
+    }
+
+    @Test
+    @DisplayName("Reindex and remove products")
+    void index1() {
+        // Act
+        productSearchIndex.index(3, "Steel Kettle", "Electric kettle", "Acme", "Kitchen");
+        productSearchIndex.remove(2);
+
+        // Assert
+        assertEquals(List.of(1), productSearchIndex.search("suv", 0, 10).ids());
+        assertEquals(0, productSearchIndex.search("honda", 0, 10).total());
+        assertEquals(2, productSearchIndex.size());
+    }
+
+    @Test
+    @DisplayName("Apply partial updates to indexed products")
+    void update1() {
+        // Act
+        productSearchIndex.update(2, "Honda Jazz", null, null, null);
+
+        // Assert
+        assertEquals(0, productSearchIndex.search("city", 0, 10).total());
+        assertEquals(List.of(2), productSearchIndex.search("jazz sedan", 0, 10).ids());
+    }
+
+    @Test
+    @DisplayName("Rebuild from the database, replaying changes committed while the rows were read")
+    void rebuild1() {
+        // Arrange
+        productSearchIndex.startRebuild();
+        productSearchIndex.onProductChange(ProductChangeEvent.deleted(2));
+        productSearchIndex.onProductChange(ProductChangeEvent.patched(1, ProductPatchDto.builder().name("Tata Punch").build()));
+        // Rows read before those changes committed
+        productSearchIndex.index(1, "Tata Nexon", "A compact SUV with excellent safety features.", "Tata Motors", "Cars");
+        productSearchIndex.index(2, "Honda City", "A premium sedan, not an SUV.", "Honda", "Cars");
+        assertFalse(productSearchIndex.canSearch("suv"));
+
+        // Act
+        productSearchIndex.finishRebuild();
+
+        // Assert
+        assertTrue(productSearchIndex.canSearch("suv"));
+        assertEquals(0, productSearchIndex.search("honda", 0, 10).total());
+        assertEquals(0, productSearchIndex.search("nexon", 0, 10).total());
+        assertEquals(List.of(1), productSearchIndex.search("punch", 0, 10).ids());
+        assertEquals(1, productSearchIndex.size());
+    }
+
+    @Test
+    @DisplayName("Leave blank keywords to the database")
+    void canSearch1() {
+        assertTrue(productSearchIndex.canSearch("kettle"));
+        assertFalse(productSearchIndex.canSearch("  -- "));
+        assertFalse(productSearchIndex.canSearch(null));
+    }
+}
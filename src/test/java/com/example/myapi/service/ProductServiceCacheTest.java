@@ -0,0 +1,286 @@
+package com.example.myapi.service;
+
+import com.example.myapi.dto.ProductCreateDto;
+import com.example.myapi.dto.ProductPatchDto;
+import com.example.myapi.dto.ProductResponseDto;
+import com.example.myapi.dto.ProductUpdateDto;
+import com.example.myapi.event.ProductChangeEvent;
+import com.example.myapi.model.Product;
+import com.example.myapi.repo.ProductRepo;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.boot.test.context.TestConfiguration;
+import org.springframework.boot.test.mock.mockito.SpyBean;
+import org.springframework.cache.Cache;
+import org.springframework.cache.CacheManager;
+import org.springframework.context.annotation.Bean;
+import org.springframework.test.annotation.DirtiesContext;
+import org.springframework.transaction.event.TransactionPhase;
+import org.springframework.transaction.event.TransactionalEventListener;
+
+import java.math.BigDecimal;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Optional;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertNotNull;
+import static org.junit.jupiter.api.Assertions.assertNull;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+import static org.mockito.Mockito.clearInvocations;
+import static org.mockito.Mockito.doAnswer;
+import static org.mockito.Mockito.times;
+import static org.mockito.Mockito.verify;
+
+// Runs against the application context, the caching proxy around ProductService is what is tested. The spied
+// repository needs a context of its own, with its own database and inventory log, which is closed afterwards
+@SpringBootTest(properties = {
+        "spring.datasource.url=jdbc:h2:mem:product-cache-test",
+        "myapi.inventory.log-dir=target/product-cache-test/inventory"
+})
+@DirtiesContext
+class ProductServiceCacheTest {
+
+    private static final int THREADS = 8;
+
+    @Autowired
+    private ProductService productService;
+    @Autowired
+    private CacheManager cacheManager;
+    @Autowired
+    private BeforeCommit beforeCommit;
+    @SpyBean
+    private ProductRepo productRepo;
+    private Cache cache;
+    private int id;
+
+    @BeforeEach
+    void setUp() {
+        cache = cacheManager.getCache(ProductService.PRODUCT_CACHE);
+        cache.clear();
+        id = productService.create(ProductCreateDto.builder().name("Cached").brand("Brand A").category("Category 1")
+                .price(BigDecimal.ONE).available(true).quantity(10).build()).getId();
+        clearInvocations(productRepo);
+    }
+
+    @Test
+    @DisplayName("Read a product from the repository once and from the cache after that")
+    void getById1() {
+        // Act
+        ProductResponseDto first = productService.getById(id);
+        ProductResponseDto second = productService.getById(id);
+
+        // Assert
+        assertEquals(first, second);
+        verify(productRepo, times(1)).findById(id);
+    }
+
+    @Test
+    @DisplayName("Evict the cached product on update")
+    void update1() {
+        // Arrange
+        ProductResponseDto cached = productService.getById(id);
+        assertNotNull(cache.get(id));
+
+        // Act
+        productService.update(ProductUpdateDto.builder().id(id).name("Cached Updated").desc(cached.getDesc())
+                .brand(cached.getBrand()).price(cached.getPrice()).category(cached.getCategory())
+                .available(cached.isAvailable()).quantity(cached.getQuantity()).build());
+
+        // Assert
+        assertNull(cache.get(id));
+        assertEquals("Cached Updated", productService.getById(id).getName());
+    }
+
+    @Test
+    @DisplayName("Evict the cached product on patch")
+    void patch1() {
+        // Arrange
+        productService.getById(id);
+        assertNotNull(cache.get(id));
+
+        // Act
+        productService.patch(id, ProductPatchDto.builder().name("Cached Patched").build());
+
+        // Assert
+        assertNull(cache.get(id));
+        assertEquals("Cached Patched", productService.getById(id).getName());
+    }
+
+    @Test
+    @DisplayName("Do not keep a product loaded while a patch was being committed")
+    void patch2() {
+        // Arrange
+        // Runs inside the patch's transaction, where a load still reads the row as it was before
+        beforeCommit.run(() -> assertEquals("Cached", read(id).getName()));
+
+        // Act
+        productService.patch(id, ProductPatchDto.builder().name("Cached Patched").build());
+
+        // Assert
+        assertEquals("Cached Patched", productService.getById(id).getName());
+    }
+
+    @Test
+    @DisplayName("Do not keep a product that was read before a patch committed and cached after it")
+    void patch3() throws Exception {
+        // Arrange
+        Optional<Product> before = productRepo.findById(id);
+        CountDownLatch loading = new CountDownLatch(1);
+        CountDownLatch release = new CountDownLatch(1);
+        doAnswer(invocation -> {
+            loading.countDown();
+            release.await(5, TimeUnit.SECONDS);
+            return before;
+        }).when(productRepo).findById(id);
+        ExecutorService executor = Executors.newFixedThreadPool(2);
+
+        // Act
+        try {
+            Future<ProductResponseDto> load = executor.submit(() -> productService.getById(id));
+            assertTrue(loading.await(5, TimeUnit.SECONDS));
+            Future<?> patch = executor.submit(() ->
+                    productService.patch(id, ProductPatchDto.builder().name("Cached Patched").build()));
+            // Give the patch time to commit and reach the eviction while the load is held
+            Thread.sleep(200);
+            release.countDown();
+            assertEquals("Cached", load.get(10, TimeUnit.SECONDS).getName());
+            patch.get(10, TimeUnit.SECONDS);
+        } finally {
+            executor.shutdownNow();
+        }
+
+        // Assert
+        assertNull(cache.get(id));
+    }
+
+    @Test
+    @DisplayName("Do not keep a product that was read before a bulk update committed and cached after it")
+    void updateAll1() throws Exception {
+        // Arrange
+        Optional<Product> before = productRepo.findById(id);
+        ProductResponseDto current = productService.getById(id);
+        cache.clear();
+        CountDownLatch loading = new CountDownLatch(1);
+        CountDownLatch release = new CountDownLatch(1);
+        doAnswer(invocation -> {
+            loading.countDown();
+            release.await(5, TimeUnit.SECONDS);
+            return before;
+        }).when(productRepo).findById(id);
+        ExecutorService executor = Executors.newFixedThreadPool(2);
+
+        // Act
+        try {
+            Future<ProductResponseDto> load = executor.submit(() -> productService.getById(id));
+            assertTrue(loading.await(5, TimeUnit.SECONDS));
+            Future<?> update = executor.submit(() -> productService.updateAll(List.of(ProductUpdateDto.builder().id(id)
+                    .name("Cached Updated").desc(current.getDesc()).brand(current.getBrand()).price(current.getPrice())
+                    .category(current.getCategory()).available(current.isAvailable()).quantity(current.getQuantity())
+                    .build())));
+            // Give the update time to commit and reach the eviction while the load is held
+            Thread.sleep(200);
+            release.countDown();
+            assertEquals("Cached", load.get(10, TimeUnit.SECONDS).getName());
+            update.get(10, TimeUnit.SECONDS);
+        } finally {
+            executor.shutdownNow();
+        }
+
+        // Assert
+        assertNull(cache.get(id));
+    }
+
+    @Test
+    @DisplayName("Evict the cached product on delete")
+    void deleteById1() {
+        // Arrange
+        productService.getById(id);
+        assertNotNull(cache.get(id));
+
+        // Act
+        productService.deleteById(id);
+
+        // Assert
+        assertNull(cache.get(id));
+    }
+
+    @Test
+    @DisplayName("Share one load between concurrent misses on the same product")
+    void getById2() throws Exception {
+        // Arrange
+        Optional<Product> product = productRepo.findById(id);
+        CountDownLatch release = new CountDownLatch(1);
+        doAnswer(invocation -> {
+            release.await(5, TimeUnit.SECONDS);
+            return product;
+        }).when(productRepo).findById(id);
+        clearInvocations(productRepo);
+        ExecutorService executor = Executors.newFixedThreadPool(THREADS);
+        List<Future<ProductResponseDto>> reads = new ArrayList<>();
+
+        // Act
+        try {
+            for (int t = 0; t < THREADS; t++) {
+                reads.add(executor.submit(() -> productService.getById(id)));
+            }
+            // Give every reader time to miss while the first load is held
+            Thread.sleep(200);
+            release.countDown();
+            for (Future<ProductResponseDto> read : reads) {
+                assertEquals(id, read.get(10, TimeUnit.SECONDS).getId());
+            }
+        } finally {
+            executor.shutdownNow();
+        }
+
+        // Assert
+        verify(productRepo, times(1)).findById(id);
+    }
+
+    // Reads the product on another thread, outside the caller's transaction
+    private ProductResponseDto read(int id) {
+        ExecutorService executor = Executors.newSingleThreadExecutor();
+        try {
+            return executor.submit(() -> productService.getById(id)).get(10, TimeUnit.SECONDS);
+        } catch (Exception e) {
+            throw new IllegalStateException(e);
+        } finally {
+            executor.shutdownNow();
+        }
+    }
+
+    @TestConfiguration
+    static class Config {
+        @Bean
+        BeforeCommit beforeCommit() {
+            return new BeforeCommit();
+        }
+    }
+
+    // Runs an action once, inside the transaction of the next product change, just before it commits
+    static class BeforeCommit {
+        private volatile Runnable action;
+
+        void run(Runnable action) {
+            this.action = action;
+        }
+
+        @TransactionalEventListener(phase = TransactionPhase.BEFORE_COMMIT)
+        public void onProductChange(ProductChangeEvent event) {
+            Runnable current = action;
+            action = null;
+            if (current != null) {
+                current.run();
+            }
+        }
+    }
+}
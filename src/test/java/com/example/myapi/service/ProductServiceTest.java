@@ -1,30 +1,61 @@
 package com.example.myapi.service;
 
+import com.example.myapi.changes.ProductChangeLog;
+import com.example.myapi.config.MyapiProperties;
+import com.example.myapi.count.ProductCounts;
+import com.example.myapi.dto.BulkResponseDto;
+import com.example.myapi.dto.CursorPageResponseDto;
 import com.example.myapi.dto.ProductCreateDto;
 import com.example.myapi.dto.ProductResponseDto;
 import com.example.myapi.dto.ProductUpdateDto;
 import com.example.myapi.mapper.ProductMapper;
+import com.example.myapi.metrics.ProductMetrics;
 import com.example.myapi.model.Product;
+import com.example.myapi.event.ProductChangeEvent;
+import com.example.myapi.exception.BadRequestException;
+import com.example.myapi.exception.ResourceNotFoundException;
+import com.example.myapi.facet.ProductFacets;
+import com.example.myapi.inventory.InventoryWriteBehind;
+import com.example.myapi.repo.MatchCount;
 import com.example.myapi.repo.ProductRepo;
+import com.example.myapi.reservation.StockReservations;
+import com.example.myapi.search.ProductSearchIndex;
+import com.example.myapi.snapshot.CatalogSnapshot;
+import jakarta.persistence.EntityManager;
+import jakarta.validation.Validator;
 import org.junit.jupiter.api.BeforeEach;
 import org.junit.jupiter.api.DisplayName;
 import org.junit.jupiter.api.Test;
 import org.mockito.InjectMocks;
 import org.mockito.Mock;
 import org.mockito.MockitoAnnotations;
+import org.mockito.Spy;
 import org.slf4j.Logger;
+import org.springframework.context.ApplicationEventPublisher;
+import org.springframework.data.domain.Limit;
 import org.springframework.data.domain.Page;
-import org.springframework.data.domain.PageImpl;
 import org.springframework.data.domain.PageRequest;
+import org.springframework.data.domain.Slice;
+import org.springframework.data.domain.SliceImpl;
+import org.springframework.orm.ObjectOptimisticLockingFailureException;
+import org.springframework.transaction.PlatformTransactionManager;
 
 import java.math.BigDecimal;
 import java.text.ParseException;
 import java.text.SimpleDateFormat;
+import java.util.ArrayList;
 import java.util.Arrays;
 import java.util.List;
 import java.util.Optional;
+import java.util.Set;
 
 import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertNull;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.anyInt;
 import static org.mockito.Mockito.*;
 
 class ProductServiceTest {
@@ -35,6 +66,32 @@ class ProductServiceTest {
     private Logger logger;
     @Mock
     private ProductMapper productMapper;
+    @Mock
+    private EntityManager entityManager;
+    @Mock
+    private ProductSearchIndex productSearchIndex;
+    @Mock
+    private ApplicationEventPublisher eventPublisher;
+    @Mock
+    private Validator validator;
+    @Mock
+    private PlatformTransactionManager transactionManager;
+    @Spy
+    private MyapiProperties properties = new MyapiProperties();
+    @Mock
+    private ProductMetrics productMetrics;
+    @Mock
+    private ProductFacets productFacets;
+    @Mock
+    private InventoryWriteBehind inventoryWriteBehind;
+    @Mock
+    private StockReservations stockReservations;
+    @Mock
+    private ProductChangeLog productChangeLog;
+    @Mock
+    private CatalogSnapshot catalogSnapshot;
+    @Mock
+    private ProductCounts productCounts;
 
     @InjectMocks
     private ProductService productService;
@@ -51,19 +108,19 @@ class ProductServiceTest {
         products = Arrays.asList(
                 new Product(0, "Product 1", "Description 1", "Brand A",
                         new BigDecimal("99.99"), "Category 1", dateFormat.parse("01-01-2024"),
-                        true, 50),
+                        true, 50, 0L, null, null, null),
                 new Product(1, "Product 2", "Description 2", "Brand B",
                         new BigDecimal("50.00"), "Category 2", dateFormat.parse("01-01-2024"),
-                        true, 50));
+                        true, 50, 0L, null, null, null));
 
         // Product response dto objects converted from product objects
         productResponseDtos = Arrays.asList(
                 new ProductResponseDto(0, "Product 1", "Description 1", "Brand A",
                         new BigDecimal("99.99"), "Category 1", dateFormat.parse("01-01-2024"),
-                        true, 50),
+                        true, 50, 0L),
                 new ProductResponseDto(1, "Product 2", "Description 2", "Brand B",
                         new BigDecimal("50.00"), "Category 2", dateFormat.parse("01-01-2024"),
-                        true, 50));
+                        true, 50, 0L));
 
     }
 
@@ -71,9 +128,7 @@ class ProductServiceTest {
     @DisplayName("Get all products")
     void getAll1(){
         // Arrange
-        when(productRepo.findAll()).thenReturn(this.products);
-        when(productMapper.toResponseDto(this.products.get(0))).thenReturn(this.productResponseDtos.get(0));
-        when(productMapper.toResponseDto(this.products.get(1))).thenReturn(this.productResponseDtos.get(1));
+        when(productRepo.findAllResponses()).thenReturn(this.productResponseDtos);
 
         // Act
         List<ProductResponseDto> productResponseDtos = productService.getAll();
@@ -82,7 +137,26 @@ class ProductServiceTest {
         assertEquals(2, productResponseDtos.size());
         assertEquals("Product 1", productResponseDtos.get(0).getName());
         assertEquals("Product 2", productResponseDtos.get(1).getName());
-        verify(productRepo, times(1)).findAll();
+        verify(productRepo, never()).findAll();
+        verify(productMapper, never()).toResponseDto(any());
+    }
+
+    @Test
+    @DisplayName("Export all products through the streaming cursor")
+    void exportAll1(){
+        // Arrange
+        when(productRepo.streamAll()).thenReturn(this.productResponseDtos.stream());
+        List<ProductResponseDto> exported = new ArrayList<>();
+
+        // Act
+        productService.exportAll(exported::add);
+
+        // Assert
+        assertEquals(2, exported.size());
+        assertEquals("Product 1", exported.get(0).getName());
+        assertEquals("Product 2", exported.get(1).getName());
+        verify(productMapper, never()).toResponseDto(any());
+        verify(productRepo, never()).findAll();
     }
 
     @Test
@@ -95,11 +169,9 @@ class ProductServiceTest {
         int SIZE = 2;
 
         PageRequest pageRequest = PageRequest.of(PAGE,SIZE);
-        Page<Product> pageProducts = new PageImpl<>(this.products, pageRequest, 2);
+        Slice<ProductResponseDto> pageProducts = new SliceImpl<>(this.productResponseDtos, pageRequest, false);
 
-        when(productRepo.findAll(pageRequest)).thenReturn(pageProducts);
-        when(productMapper.toResponseDto(this.products.get(0))).thenReturn(this.productResponseDtos.get(0));
-        when(productMapper.toResponseDto(this.products.get(1))).thenReturn(this.productResponseDtos.get(1));
+        when(productRepo.findContaining(null, null, pageRequest)).thenReturn(pageProducts);
 
         // Act
         Page<ProductResponseDto> productResponseDtoPage = productService.filterProductByNameAndCategoryPage(NAME,CATEGORY,PAGE,SIZE);
@@ -109,8 +181,7 @@ class ProductServiceTest {
         assertEquals(2, productResponseDtosPageConverted.size());
         assertEquals("Product 1", productResponseDtosPageConverted.get(0).getName());
         assertEquals("Product 2", productResponseDtosPageConverted.get(1).getName());
-        verify(productMapper, times(1)).toResponseDto(this.products.get(0));
-        verify(productMapper, times(1)).toResponseDto(this.products.get(1));
+        verify(productMapper, never()).toResponseDto(any());
     }
 
 
@@ -124,11 +195,9 @@ class ProductServiceTest {
         int SIZE = 2;
 
         PageRequest pageRequest = PageRequest.of(PAGE,SIZE);
-        Page<Product> pageProducts = new PageImpl<>(this.products, pageRequest, 2);
+        Slice<ProductResponseDto> pageProducts = new SliceImpl<>(this.productResponseDtos, pageRequest, false);
 
-        when(productRepo.findByCategoryContainingIgnoreCase(CATEGORY, pageRequest)).thenReturn(pageProducts);
-        when(productMapper.toResponseDto(this.products.get(0))).thenReturn(this.productResponseDtos.get(0));
-        when(productMapper.toResponseDto(this.products.get(1))).thenReturn(this.productResponseDtos.get(1));
+        when(productRepo.findContaining(null, CATEGORY, pageRequest)).thenReturn(pageProducts);
 
         // Act
         Page<ProductResponseDto> productResponseDtoPage = productService.filterProductByNameAndCategoryPage(NAME,CATEGORY,PAGE,SIZE);
@@ -138,8 +207,7 @@ class ProductServiceTest {
         assertEquals(2, productResponseDtosPageConverted.size());
         assertEquals("Product 1", productResponseDtosPageConverted.get(0).getName());
         assertEquals("Product 2", productResponseDtosPageConverted.get(1).getName());
-        verify(productMapper, times(1)).toResponseDto(this.products.get(0));
-        verify(productMapper, times(1)).toResponseDto(this.products.get(1));
+        verify(productMapper, never()).toResponseDto(any());
     }
 
     @Test
@@ -152,11 +220,9 @@ class ProductServiceTest {
         int SIZE = 2;
 
         PageRequest pageRequest = PageRequest.of(PAGE,SIZE);
-        Page<Product> pageProducts = new PageImpl<>(this.products, pageRequest, 2);
+        Slice<ProductResponseDto> pageProducts = new SliceImpl<>(this.productResponseDtos, pageRequest, false);
 
-        when(productRepo.findByNameContainingIgnoreCase(NAME, pageRequest)).thenReturn(pageProducts);
-        when(productMapper.toResponseDto(this.products.get(0))).thenReturn(this.productResponseDtos.get(0));
-        when(productMapper.toResponseDto(this.products.get(1))).thenReturn(this.productResponseDtos.get(1));
+        when(productRepo.findContaining(NAME, null, pageRequest)).thenReturn(pageProducts);
 
         // Act
         Page<ProductResponseDto> productResponseDtoPage = productService.filterProductByNameAndCategoryPage(NAME,CATEGORY,PAGE,SIZE);
@@ -166,8 +232,7 @@ class ProductServiceTest {
         assertEquals(2, productResponseDtosPageConverted.size());
         assertEquals("Product 1", productResponseDtosPageConverted.get(0).getName());
         assertEquals("Product 2", productResponseDtosPageConverted.get(1).getName());
-        verify(productMapper, times(1)).toResponseDto(this.products.get(0));
-        verify(productMapper, times(1)).toResponseDto(this.products.get(1));
+        verify(productMapper, never()).toResponseDto(any());
     }
 
     @Test
@@ -180,11 +245,9 @@ class ProductServiceTest {
         int SIZE = 2;
 
         PageRequest pageRequest = PageRequest.of(PAGE,SIZE);
-        Page<Product> pageProducts = new PageImpl<>(this.products, pageRequest, 2);
+        Slice<ProductResponseDto> pageProducts = new SliceImpl<>(this.productResponseDtos, pageRequest, false);
 
-        when(productRepo.findByNameContainingIgnoreCaseAndCategoryContainingIgnoreCase(NAME, CATEGORY, pageRequest)).thenReturn(pageProducts);
-        when(productMapper.toResponseDto(this.products.get(0))).thenReturn(this.productResponseDtos.get(0));
-        when(productMapper.toResponseDto(this.products.get(1))).thenReturn(this.productResponseDtos.get(1));
+        when(productRepo.findContaining(NAME, CATEGORY, pageRequest)).thenReturn(pageProducts);
 
         // Act
         Page<ProductResponseDto> productResponseDtoPage = productService.filterProductByNameAndCategoryPage(NAME,CATEGORY,PAGE,SIZE);
@@ -194,8 +257,57 @@ class ProductServiceTest {
         assertEquals(2, productResponseDtosPageConverted.size());
         assertEquals("Product 1", productResponseDtosPageConverted.get(0).getName());
         assertEquals("Product 2", productResponseDtosPageConverted.get(1).getName());
-        verify(productMapper, times(1)).toResponseDto(this.products.get(0));
-        verify(productMapper, times(1)).toResponseDto(this.products.get(1));
+        verify(productMapper, never()).toResponseDto(any());
+    }
+
+    @Test
+    @DisplayName("Filter products by normalized name and category prefix")
+    void filterProductByNameAndCategoryPagePrefix() {
+        // Arrange
+        String NAME = " Product ";
+        String CATEGORY = "CATEGORY";
+        int PAGE = 0;
+        int SIZE = 2;
+
+        PageRequest pageRequest = PageRequest.of(PAGE,SIZE);
+        Slice<ProductResponseDto> pageProducts = new SliceImpl<>(this.productResponseDtos, pageRequest, false);
+
+        when(productRepo.findNormalized("product", "category", true, pageRequest)).thenReturn(pageProducts);
+
+        // Act
+        Page<ProductResponseDto> productResponseDtoPage = productService.filterProductByNameAndCategoryPage(NAME,CATEGORY,MatchMode.PREFIX,PAGE,SIZE);
+
+        // Assert
+        assertEquals(2, productResponseDtoPage.getNumberOfElements());
+        verify(productRepo, never()).findContaining(any(), any(), any());
+    }
+
+    @Test
+    @DisplayName("Take the total from the count cache while more pages follow, and from the last page itself")
+    void filterProductByNameAndCategoryPageCount() {
+        // Arrange
+        String NAME = "product";
+        int SIZE = 2;
+
+        PageRequest first = PageRequest.of(0, SIZE);
+        PageRequest last = PageRequest.of(3, SIZE);
+        when(productRepo.findContaining(NAME, null, first)).thenReturn(new SliceImpl<>(this.productResponseDtos, first, true));
+        when(productRepo.findContaining(NAME, null, last)).thenReturn(new SliceImpl<>(this.productResponseDtos.subList(0, 1), last, false));
+        when(productCounts.count(eq("contains"), eq(Arrays.asList("PRODUCT", null)), any())).thenReturn(new MatchCount(40, true));
+
+        // Act
+        Page<ProductResponseDto> firstPage = productService.filterProductByNameAndCategoryPage(NAME, null, 0, SIZE);
+        Page<ProductResponseDto> lastPage = productService.filterProductByNameAndCategoryPage(NAME, null, 3, SIZE);
+
+        // Assert
+        assertEquals(40, firstPage.getTotalElements());
+        assertTrue(((CountedPage<ProductResponseDto>) firstPage).isTotalApproximate());
+        assertTrue(firstPage.hasNext());
+        assertEquals(7, lastPage.getTotalElements());
+        assertFalse(lastPage.hasNext());
+        verify(productCounts, times(1)).count(any(), any(), any());
+        verify(productMetrics, times(1)).recordFilter(3, 2);
+        verify(productMetrics, times(1)).recordFilter(1, 1);
     }
 
     @Test
@@ -207,11 +319,9 @@ class ProductServiceTest {
         int SIZE = 2;
 
         PageRequest pageRequest = PageRequest.of(PAGE,SIZE);
-        Page<Product> pageProducts = new PageImpl<>(this.products, pageRequest, 2);
+        Slice<ProductResponseDto> pageProducts = new SliceImpl<>(this.productResponseDtos, pageRequest, false);
 
         when(productRepo.searchProducts(KEYWORD, pageRequest)).thenReturn(pageProducts);
-        when(productMapper.toResponseDto(this.products.get(0))).thenReturn(this.productResponseDtos.get(0));
-        when(productMapper.toResponseDto(this.products.get(1))).thenReturn(this.productResponseDtos.get(1));
 
         // Act
         Page<ProductResponseDto> productResponseDtoPage = productService.searchProductByKeyword(KEYWORD,pageRequest);
@@ -221,8 +331,67 @@ class ProductServiceTest {
         assertEquals(2, productResponseDtosPageConverted.size());
         assertEquals("Product 1", productResponseDtosPageConverted.get(0).getName());
         assertEquals("Product 2", productResponseDtosPageConverted.get(1).getName());
-        verify(productMapper, times(1)).toResponseDto(this.products.get(0));
-        verify(productMapper, times(1)).toResponseDto(this.products.get(1));
+        verify(productMapper, never()).toResponseDto(any());
+    }
+
+    @Test
+    @DisplayName("Search products through the in-memory index")
+    void searchProductByKeyword2() {
+        // Arrange
+        String KEYWORD = "product";
+        int PAGE = 0;
+        int SIZE = 2;
+
+        PageRequest pageRequest = PageRequest.of(PAGE,SIZE);
+        when(productSearchIndex.canSearch(KEYWORD)).thenReturn(true);
+        when(productSearchIndex.search(KEYWORD, 0, SIZE)).thenReturn(new ProductSearchIndex.SearchResult(List.of(1, 0), 7, 9));
+        when(productRepo.findResponsesByIdIn(List.of(1, 0))).thenReturn(this.productResponseDtos);
+
+        // Act
+        Page<ProductResponseDto> productResponseDtoPage = productService.searchProductByKeyword(KEYWORD,pageRequest);
+        List<ProductResponseDto> productResponseDtosPageConverted = productResponseDtoPage.get().toList();
+
+        // Assert
+        assertEquals(7, productResponseDtoPage.getTotalElements());
+        assertEquals("Product 2", productResponseDtosPageConverted.get(0).getName());
+        assertEquals("Product 1", productResponseDtosPageConverted.get(1).getName());
+        verify(productRepo, never()).searchProducts(KEYWORD, pageRequest);
+        verify(productMetrics, times(1)).recordSearch(9, 7, 2);
+    }
+
+    @Test
+    @DisplayName("Filter products with a keyset cursor")
+    void filterProductByNameAndCategoryAfter1() {
+        // Arrange
+        String NAME = "product";
+        int SIZE = 1;
+
+        when(productRepo.filterProductsAfter(NAME, null, 0, Limit.of(SIZE + 1))).thenReturn(this.productResponseDtos);
+
+        // Act
+        CursorPageResponseDto<ProductResponseDto> firstSlice = productService.filterProductByNameAndCategoryAfter(NAME, null, null, SIZE);
+        when(productRepo.filterProductsAfter(NAME, null, this.products.get(0).getId(), Limit.of(SIZE + 1)))
+                .thenReturn(List.of(this.productResponseDtos.get(1)));
+        CursorPageResponseDto<ProductResponseDto> secondSlice = productService.filterProductByNameAndCategoryAfter(NAME, null, firstSlice.getNextCursor(), SIZE);
+
+        // Assert
+        assertEquals(1, firstSlice.getContent().size());
+        assertEquals("Product 1", firstSlice.getContent().get(0).getName());
+        assertTrue(firstSlice.isHasNext());
+        assertEquals("Product 2", secondSlice.getContent().get(0).getName());
+        assertFalse(secondSlice.isHasNext());
+        assertNull(secondSlice.getNextCursor());
+        verify(productRepo, never()).count();
+    }
+
+    @Test
+    @DisplayName("Reject a keyset cursor page size below one")
+    void filterProductByNameAndCategoryAfter2() {
+        // Act & Assert
+        assertThrows(BadRequestException.class, () -> productService.filterProductByNameAndCategoryAfter("product", null, null, 0));
+        assertThrows(BadRequestException.class, () -> productService.searchProductByKeywordAfter("product", null, -1));
+        verify(productRepo, never()).filterProductsAfter(any(), any(), anyInt(), any());
+        verify(productRepo, never()).searchProductsAfter(any(), anyInt(), any());
     }
 
     @Test
@@ -249,16 +418,59 @@ class ProductServiceTest {
     void deleteById1() {
         // Arrange
         int ID = 0;
-        Optional<Product> productOptional = Optional.ofNullable(this.products.get(ID));
 
-        when(productRepo.findById(ID)).thenReturn(productOptional);
+        when(productRepo.deleteProductById(ID)).thenReturn(1);
+        when(inventoryWriteBehind.hasPending(ID)).thenReturn(true);
 
         // Act
         productService.deleteById(ID);
 
         // Assert
-        verify(productRepo, times(1)).findById(ID);
-        verify(productRepo, times(1)).deleteById(ID);
+        verify(inventoryWriteBehind, times(1)).flush();
+        verify(productRepo, times(1)).deleteProductById(ID);
+        verify(productRepo, never()).findById(ID);
+        verify(eventPublisher, times(1)).publishEvent(any(ProductChangeEvent.class));
+    }
+
+    @Test
+    @DisplayName("Delete missing product by id")
+    void deleteById2() {
+        // Arrange
+        int ID = 9;
+
+        when(productRepo.deleteProductById(ID)).thenReturn(0);
+
+        // Act & Assert
+        assertThrows(ResourceNotFoundException.class, () -> productService.deleteById(ID));
+        verify(eventPublisher, never()).publishEvent(any(ProductChangeEvent.class));
+    }
+
+    @Test
+    @DisplayName("Delete product by id at a stale version")
+    void deleteById3() {
+        // Arrange
+        int ID = 0;
+
+        when(productRepo.deleteProductByIdAndVersion(ID, 4L)).thenReturn(0);
+        when(productRepo.existsById(ID)).thenReturn(true);
+
+        // Act & Assert
+        assertThrows(ObjectOptimisticLockingFailureException.class, () -> productService.deleteById(ID, 4L));
+        verify(eventPublisher, never()).publishEvent(any(ProductChangeEvent.class));
+    }
+
+    @Test
+    @DisplayName("Reject an inventory adjustment for a missing product")
+    void adjustInventory1() {
+        // Arrange
+        int ID = 9;
+
+        when(productRepo.findResponseById(ID)).thenReturn(Optional.empty());
+
+        // Act & Assert
+        assertThrows(ResourceNotFoundException.class, () -> productService.adjustInventory(ID, 5));
+        verify(inventoryWriteBehind, never()).adjust(any(), anyInt());
+        verify(eventPublisher, never()).publishEvent(any(ProductChangeEvent.class));
     }
 
     @Test
@@ -270,7 +482,7 @@ class ProductServiceTest {
                 new BigDecimal("99.99"), "Category 1", true, 50);
 
         Product productEntityfromCreateDto = new Product(null, "Product 1", "Description 1", "Brand A",
-                new BigDecimal("99.99"), "Category 1", null ,true, 50);
+                new BigDecimal("99.99"), "Category 1", null ,true, 50, 0L, null, null, null);
 
         when(productRepo.save(productEntityfromCreateDto)).thenReturn(this.products.get(ID));
         when(productMapper.toEntityFromCreateDto(productCreateDto)).thenReturn(productEntityfromCreateDto);
@@ -297,16 +509,16 @@ class ProductServiceTest {
         Optional<Product> optionalProduct = Optional.ofNullable(this.products.get(ID));
 
         ProductUpdateDto productUpdateDto = new ProductUpdateDto(ID,"Product 1", "Description Updated", "Brand A",
-                new BigDecimal("99.99"), "Category 1", true, 50);
+                new BigDecimal("99.99"), "Category 1", true, 50, null);
 
         Product productEntityfromUpdateDto = new Product(ID, "Product 1", "Description Updated", "Brand A",
-                new BigDecimal("99.99"), "Category 1", null ,true, 50);
+                new BigDecimal("99.99"), "Category 1", null ,true, 50, 0L, null, null, null);
 
         Product updatedProduct = new Product(ID, "Product 1", "Description Updated", "Brand A",
-                new BigDecimal("99.99"), "Category 1", dateFormat.parse("01-01-2024") ,true, 50);
+                new BigDecimal("99.99"), "Category 1", dateFormat.parse("01-01-2024") ,true, 50, 0L, null, null, null);
 
         ProductResponseDto updatedProductResponseDto = new ProductResponseDto(ID, "Product 1", "Description Updated", "Brand A",
-                new BigDecimal("99.99"), "Category 1", dateFormat.parse("01-01-2024") ,true, 50);
+                new BigDecimal("99.99"), "Category 1", dateFormat.parse("01-01-2024") ,true, 50, 0L);
 
         when(productRepo.findById(ID)).thenReturn(optionalProduct);
         when(productMapper.updateProductFromUpdateDto(productUpdateDto, optionalProduct.get())).thenReturn(updatedProduct);
@@ -324,4 +536,66 @@ class ProductServiceTest {
         verify(productMapper, times(1)).updateProductFromUpdateDto(productUpdateDto, optionalProduct.get());
         verify(productMapper, times(1)).toResponseDto(updatedProduct);
     }
-}
\ No newline at end of file
+
+    @Test
+    @DisplayName("Bulk create products in chunks")
+    void createAll1() {
+        // Arrange
+        int ID = 7;
+        properties.getBulk().setChunkSize(1);
+        ProductCreateDto productCreateDto = new ProductCreateDto("Product 1", "Description 1", "Brand A",
+                new BigDecimal("99.99"), "Category 1", true, 50);
+        Product productEntityfromCreateDto = new Product(null, "Product 1", "Description 1", "Brand A",
+                new BigDecimal("99.99"), "Category 1", null ,true, 50, 0L, null, null, null);
+
+        when(productMapper.toEntityFromCreateDto(productCreateDto)).thenReturn(productEntityfromCreateDto);
+        doAnswer(invocation -> {
+            invocation.<Product>getArgument(0).setId(ID);
+            return null;
+        }).when(entityManager).persist(productEntityfromCreateDto);
+
+        // Act
+        BulkResponseDto bulkResponseDto = productService.createAll(List.of(productCreateDto, productCreateDto));
+
+        // Assert
+        assertEquals(2, bulkResponseDto.getTotal());
+        assertEquals(2, bulkResponseDto.getSucceeded());
+        assertEquals(201, bulkResponseDto.getItems().get(1).getStatus());
+        assertEquals(1, bulkResponseDto.getItems().get(1).getIndex());
+        assertEquals(ID, bulkResponseDto.getItems().get(1).getId());
+        verify(entityManager, times(2)).persist(productEntityfromCreateDto);
+        verify(entityManager, times(2)).flush();
+        verify(transactionManager, times(2)).commit(any());
+    }
+
+    @Test
+    @DisplayName("Bulk delete reports missing products per item")
+    void deleteAllById1() {
+        // Arrange
+        when(productRepo.findExistingIds(List.of(0, 9))).thenReturn(List.of(0));
+
+        // Act
+        BulkResponseDto bulkResponseDto = productService.deleteAllById(List.of(0, 9));
+
+        // Assert
+        assertEquals(1, bulkResponseDto.getSucceeded());
+        assertEquals(1, bulkResponseDto.getFailed());
+        assertEquals(404, bulkResponseDto.getItems().get(1).getStatus());
+        verify(productRepo, times(1)).deleteAllByIdInBatch(Set.of(0));
+    }
+
+    @Test
+    @DisplayName("Reject update with a stale version")
+    void update2() {
+        // Arrange
+        int ID = 0;
+        ProductUpdateDto productUpdateDto = new ProductUpdateDto(ID,"Product 1", "Description Updated", "Brand A",
+                new BigDecimal("99.99"), "Category 1", true, 50, 3L);
+
+        when(productRepo.findById(ID)).thenReturn(Optional.of(this.products.get(ID)));
+
+        // Act & Assert
+        assertThrows(ObjectOptimisticLockingFailureException.class, () -> productService.update(productUpdateDto));
+        verify(productRepo, never()).save(any(Product.class));
+    }
+}
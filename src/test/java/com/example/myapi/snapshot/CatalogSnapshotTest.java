@@ -0,0 +1,143 @@
+package com.example.myapi.snapshot;
+
+import com.example.myapi.dto.ProductPatchDto;
+import com.example.myapi.event.ProductChangeEvent;
+import com.example.myapi.model.Product;
+import com.example.myapi.service.ProductQuery;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+
+import java.math.BigDecimal;
+import java.time.LocalDate;
+import java.time.ZoneOffset;
+import java.util.ArrayList;
+import java.util.Date;
+import java.util.List;
+import java.util.Random;
+import java.util.stream.IntStream;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+
+class CatalogSnapshotTest {
+
+    private static final List<String> CATEGORIES = List.of("Cars", "Kitchen", "Books", "Toys");
+    private static final List<String> BRANDS = List.of("Honda", "Tata Motors", "Suvarna", "Acme", "Lego");
+    private static final LocalDate FIRST_RELEASE = LocalDate.of(2020, 1, 1);
+
+    private record Row(int id, String category, String brand, boolean available, BigDecimal price, LocalDate releaseDate) {
+    }
+
+    @Test
+    @DisplayName("Match the same products as a row by row filter, across the parallel scan and deleted rows")
+    void scan1() {
+        // Arrange
+        Random random = new Random(42);
+        List<Row> rows = new ArrayList<>();
+        CatalogColumns columns = new CatalogColumns(0);
+        // Enough blocks for the scan to run in parallel chunks
+        for (int id = 1; id <= 150_000; id++) {
+            Row row = randomRow(random, id);
+            rows.add(row);
+            columns.put(id, row.category(), row.brand(), row.available(), row.price(), date(row.releaseDate()));
+        }
+        for (int i = 0; i < 5_000; i++) {
+            int id = 1 + random.nextInt(rows.size());
+            columns.remove(id);
+            rows.set(id - 1, null);
+        }
+
+        for (int i = 0; i < 50; i++) {
+            ProductQuery query = randomQuery(random);
+            List<Integer> expected = rows.stream().filter(row -> row != null && matches(row, query)).map(Row::id).toList();
+            int offset = random.nextInt(20);
+
+            // Act
+            CatalogColumns.Result result = columns.scan(columns.filter(query), offset, 25);
+
+            // Assert
+            assertEquals(expected.size(), result.total(), query.toString());
+            assertEquals(expected.subList(Math.min(offset, expected.size()), Math.min(offset + 25, expected.size())),
+                    IntStream.of(result.ids()).boxed().toList(), query.toString());
+        }
+    }
+
+    @Test
+    @DisplayName("Order the page by id when products were added out of id order")
+    void scan2() {
+        // Arrange
+        CatalogColumns columns = new CatalogColumns(0);
+        for (int id : new int[]{7, 3, 9, 1, 5}) {
+            columns.put(id, "Cars", "Honda", id != 9, new BigDecimal("100.00"), null);
+        }
+        ProductQuery query = new ProductQuery(true, "cars", null, null, null, null, null);
+
+        // Act
+        CatalogColumns.Result result = columns.scan(columns.filter(query), 1, 2);
+
+        // Assert
+        assertEquals(4, result.total());
+        assertEquals(List.of(3, 5), IntStream.of(result.ids()).boxed().toList());
+    }
+
+    @Test
+    @DisplayName("Replay the changes made while a rebuild was running onto the rebuilt snapshot")
+    void finishRebuild1() {
+        // Arrange
+        CatalogSnapshot snapshot = new CatalogSnapshot();
+        CatalogSnapshot.Rebuild rebuild = snapshot.startRebuild(0);
+        boolean readyBefore = snapshot.isReady();
+        rebuild.add(1, "Cars", "Honda", true, new BigDecimal("550000"), null);
+        rebuild.add(2, "Cars", "Tata Motors", true, new BigDecimal("750000"), null);
+        ProductPatchDto patch = new ProductPatchDto();
+        patch.setPrice(new BigDecimal("500000"));
+        snapshot.onProductChange(ProductChangeEvent.patched(2, patch));
+        snapshot.onProductChange(ProductChangeEvent.deleted(1));
+        snapshot.onProductChange(ProductChangeEvent.created(Product.builder().id(3).category("Cars").brand("Honda")
+                .available(true).price(new BigDecimal("450000")).build()));
+
+        // Act
+        snapshot.finishRebuild(rebuild);
+        CatalogSnapshot.ScanResult result = snapshot.scan(
+                new ProductQuery(null, "Cars", null, null, new BigDecimal("600000"), null, null), 0, 10);
+
+        // Assert
+        assertFalse(readyBefore);
+        assertEquals(List.of(2, 3), result.ids());
+        assertEquals(2, snapshot.size());
+    }
+
+    private static Row randomRow(Random random, int id) {
+        // Missing values make sure they never match a predicate on them
+        String category = random.nextInt(20) == 0 ? null : CATEGORIES.get(random.nextInt(CATEGORIES.size()));
+        String brand = random.nextInt(20) == 0 ? null : BRANDS.get(random.nextInt(BRANDS.size()));
+        BigDecimal price = random.nextInt(20) == 0 ? null : BigDecimal.valueOf(random.nextInt(1_000_000), 2);
+        LocalDate releaseDate = random.nextInt(20) == 0 ? null : FIRST_RELEASE.plusDays(random.nextInt(2000));
+        return new Row(id, category, brand, random.nextBoolean(), price, releaseDate);
+    }
+
+    private static ProductQuery randomQuery(Random random) {
+        Boolean available = random.nextInt(3) == 0 ? null : random.nextBoolean();
+        String category = random.nextBoolean() ? null : CATEGORIES.get(random.nextInt(CATEGORIES.size())).toUpperCase();
+        String brand = random.nextInt(3) > 0 ? null : BRANDS.get(random.nextInt(BRANDS.size()));
+        BigDecimal minPrice = random.nextBoolean() ? null : BigDecimal.valueOf(random.nextInt(500_000), 2);
+        BigDecimal maxPrice = random.nextBoolean() ? null : BigDecimal.valueOf(random.nextInt(1_000_000), 2);
+        LocalDate releasedFrom = random.nextBoolean() ? null : FIRST_RELEASE.plusDays(random.nextInt(1000));
+        LocalDate releasedTo = random.nextBoolean() ? null : FIRST_RELEASE.plusDays(random.nextInt(2000));
+        return new ProductQuery(available, category, brand, minPrice, maxPrice, releasedFrom, releasedTo);
+    }
+
+    private static boolean matches(Row row, ProductQuery query) {
+        return (query.available() == null || query.available() == row.available())
+                && (query.category() == null || query.category().equalsIgnoreCase(row.category()))
+                && (query.brand() == null || query.brand().equalsIgnoreCase(row.brand()))
+                && (query.minPrice() == null || row.price() != null && row.price().compareTo(query.minPrice()) >= 0)
+                && (query.maxPrice() == null || row.price() != null && row.price().compareTo(query.maxPrice()) <= 0)
+                && (query.releasedFrom() == null || row.releaseDate() != null && !row.releaseDate().isBefore(query.releasedFrom()))
+                && (query.releasedTo() == null || row.releaseDate() != null && !row.releaseDate().isAfter(query.releasedTo()));
+    }
+
+    private static Date date(LocalDate date) {
+        return date != null ? Date.from(date.atStartOfDay(ZoneOffset.UTC).toInstant()) : null;
+    }
+}